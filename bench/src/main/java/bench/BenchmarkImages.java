@@ -0,0 +1,38 @@
+package bench;
+
+import java.util.Random;
+
+import model.Image;
+import model.PackedRGBImage;
+
+/**
+ * This utility class creates the images which are used by the benchmarks.
+ */
+final class BenchmarkImages {
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * Creates an image of random colors with a fixed seed, so that every run of a benchmark processes
+   * the same pixels.
+   *
+   * @param size the size of the image, as width x height, for example 1920x1080.
+   * @return the created image.
+   * @throws IllegalArgumentException if the size is not in the form width x height
+   */
+  static Image create(String size) {
+    String[] dimensions = size.split("x");
+    if (dimensions.length != 2) {
+      throw new IllegalArgumentException("Size should be in the form width x height: " + size);
+    }
+    int width = Integer.parseInt(dimensions[0]);
+    int height = Integer.parseInt(dimensions[1]);
+    Random random = new Random(42);
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextInt() & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+}
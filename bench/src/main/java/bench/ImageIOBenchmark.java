@@ -0,0 +1,85 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import controller.ImageUtil;
+import model.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures reading and writing PNG, JPEG and BMP files with ImageUtil, on images from
+ * a thumbnail up to 50 megapixels. The files are kept in a temporary directory which is deleted
+ * after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ImageIOBenchmark {
+
+  @Param({"160x120", "1920x1080", "4000x3000", "8192x6144"})
+  public String size;
+
+  @Param({"png", "jpg", "bmp"})
+  public String format;
+
+  private Image image;
+  private Path directory;
+  private String imageSource;
+  private String imageTarget;
+
+  /**
+   * Creates the image and writes the files which are read by the benchmarks.
+   *
+   * @throws IOException if the temporary directory cannot be created
+   */
+  @Setup
+  public void setUp() throws IOException {
+    image = BenchmarkImages.create(size);
+    directory = Files.createTempDirectory("ime-bench");
+    imageSource = directory.resolve("source." + format).toString();
+    imageTarget = directory.resolve("target." + format).toString();
+    ImageUtil.createImage(format, imageSource, image);
+  }
+
+  /**
+   * Deletes the temporary directory and its files.
+   */
+  @TearDown
+  public void tearDown() {
+    File[] files = directory.toFile().listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.toFile().delete();
+  }
+
+  @Benchmark
+  public Image readImage() {
+    return ImageUtil.readImage(imageSource);
+  }
+
+  @Benchmark
+  public void createImage() {
+    ImageUtil.createImage(format, imageTarget, image);
+  }
+}
@@ -0,0 +1,111 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import model.Image;
+import model.LookupTables;
+import model.PackedRGB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class compares the point operations computed with lookup tables to the same operations
+ * computed directly from the components of every pixel, as the model did before. Both are applied
+ * on a single thread to the pixels of an image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LookupTableBenchmark {
+
+  private static final double[][] SEPIA = {
+      {0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+
+  @Param({"1920x1080", "8192x6144"})
+  public String size;
+
+  @Param({"brighten", "luma", "intensity", "sepia"})
+  public String operation;
+
+  @Param({"direct", "table"})
+  public String engine;
+
+  private int[] source;
+  private int[] dest;
+  private IntUnaryOperator function;
+
+  /**
+   * Creates the pixels and the operation which is measured.
+   */
+  @Setup
+  public void setUp() {
+    Image image = BenchmarkImages.create(size);
+    source = new int[image.getWidth() * image.getHeight()];
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        source[i * image.getWidth() + j] = image.getRGB(i, j);
+      }
+    }
+    dest = new int[source.length];
+    boolean table = engine.equals("table");
+    switch (operation) {
+      case "brighten":
+        function = table ? LookupTables.brighten(50) : rgb -> PackedRGB.pack(
+                PackedRGB.clamp(PackedRGB.red(rgb) + 50),
+                PackedRGB.clamp(PackedRGB.green(rgb) + 50),
+                PackedRGB.clamp(PackedRGB.blue(rgb) + 50));
+        break;
+      case "luma":
+        function = table ? LookupTables.greyscale("luma-component") : rgb -> {
+          int luma = PackedRGB.luma(PackedRGB.red(rgb), PackedRGB.green(rgb),
+                  PackedRGB.blue(rgb));
+          return PackedRGB.pack(luma, luma, luma);
+        };
+        break;
+      case "intensity":
+        function = table ? LookupTables.greyscale("intensity-component") : rgb -> {
+          int intensity = PackedRGB.intensity(PackedRGB.red(rgb), PackedRGB.green(rgb),
+                  PackedRGB.blue(rgb));
+          return PackedRGB.pack(intensity, intensity, intensity);
+        };
+        break;
+      case "sepia":
+        function = table ? LookupTables.matrix(SEPIA, false) : rgb -> {
+          int r = PackedRGB.red(rgb);
+          int g = PackedRGB.green(rgb);
+          int b = PackedRGB.blue(rgb);
+          return PackedRGB.pack(
+                  PackedRGB.clamp((int) ((SEPIA[0][0] * r) + (SEPIA[0][1] * g)
+                          + (SEPIA[0][2] * b))),
+                  PackedRGB.clamp((int) ((SEPIA[1][0] * r) + (SEPIA[1][1] * g)
+                          + (SEPIA[1][2] * b))),
+                  PackedRGB.clamp((int) ((SEPIA[2][0] * r) + (SEPIA[2][1] * g)
+                          + (SEPIA[2][2] * b))));
+        };
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown operation " + operation);
+    }
+  }
+
+  @Benchmark
+  public int[] apply() {
+    for (int i = 0; i < source.length; i++) {
+      dest[i] = function.applyAsInt(source[i]);
+    }
+    return dest;
+  }
+}
@@ -0,0 +1,145 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+import model.ImprovedImageProcessingImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures every operation of the model, on images from a thumbnail up to 50
+ * megapixels. Every operation reads the source image "src" and replaces the destination image,
+ * so the number of images held by the model does not grow during a run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ModelBenchmark {
+
+  @Param({"160x120", "1920x1080", "4000x3000", "8192x6144"})
+  public String size;
+
+  private ImprovedImageProcessing model;
+
+  /**
+   * Creates the model and loads the source image and its channels into it.
+   */
+  @Setup
+  public void setUp() {
+    model = new ImprovedImageProcessingImpl();
+    // every iteration must compute its result instead of finding it in the cache
+    model.getResultCache().setCapacity(0);
+    model.loadImage(BenchmarkImages.create(size), "src");
+    model.rgbSplit("src", "red", "green", "blue");
+  }
+
+  @Benchmark
+  public Image greyscaleRed() {
+    return model.greyscale("red-component", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleGreen() {
+    return model.greyscale("green-component", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleBlue() {
+    return model.greyscale("blue-component", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleValue() {
+    return model.greyscale("value-component", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleIntensity() {
+    return model.greyscale("intensity-component", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleLuma() {
+    return model.greyscale("luma-component", "src", "dest");
+  }
+
+  @Benchmark
+  public Image horizontalFlip() {
+    return model.horizontalFlip("src", "dest");
+  }
+
+  @Benchmark
+  public Image verticalFlip() {
+    return model.verticalFlip("src", "dest");
+  }
+
+  @Benchmark
+  public Image brighten() {
+    return model.brighten(50, "src", "dest");
+  }
+
+  @Benchmark
+  public Image darken() {
+    return model.brighten(-50, "src", "dest");
+  }
+
+  @Benchmark
+  public List<Image> rgbSplit() {
+    return model.rgbSplit("src", "dest-red", "dest-green", "dest-blue");
+  }
+
+  @Benchmark
+  public Image rgbCombine() {
+    return model.rgbCombine("dest", "red", "green", "blue");
+  }
+
+  @Benchmark
+  public Image blur() {
+    return model.filtering("blur", "src", "dest");
+  }
+
+  @Benchmark
+  public Image sharpen() {
+    return model.filtering("sharpen", "src", "dest");
+  }
+
+  @Benchmark
+  public Image sepia() {
+    return model.colorTransformation("sepia", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleTransformation() {
+    return model.colorTransformation("greyscale", "src", "dest");
+  }
+
+  @Benchmark
+  public Image dither() {
+    return model.dither("src", "dest");
+  }
+
+  @Benchmark
+  public Image orderedDitherBayer() {
+    return model.orderedDither("bayer-8", "src", "dest");
+  }
+
+  @Benchmark
+  public Image orderedDitherBlueNoise() {
+    return model.orderedDither("blue-noise", "src", "dest");
+  }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+import model.ImprovedImageProcessingImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures a typical chain of point operations, with and without deferred evaluation.
+ * The last image of the chain is read completely, as it would be when it is saved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PointChainBenchmark {
+
+  @Param({"160x120", "1920x1080", "4000x3000", "8192x6144"})
+  public String size;
+
+  @Param({"false", "true"})
+  public boolean deferred;
+
+  private ImprovedImageProcessing model;
+
+  /**
+   * Creates the model and loads the source image into it.
+   */
+  @Setup
+  public void setUp() {
+    model = new ImprovedImageProcessingImpl();
+    // every iteration must compute its result instead of finding it in the cache
+    model.getResultCache().setCapacity(0);
+    model.setDeferred(deferred);
+    model.loadImage(BenchmarkImages.create(size), "src");
+  }
+
+  @Benchmark
+  public int brightenGreyscaleSepia() {
+    model.brighten(50, "src", "a");
+    model.greyscale("luma-component", "a", "b");
+    model.colorTransformation("sepia", "b", "c");
+    model.brighten(-20, "c", "d");
+    Image result = model.greyscale("red-component", "d", "e");
+    int checksum = 0;
+    for (int i = 0; i < result.getHeight(); i++) {
+      for (int j = 0; j < result.getWidth(); j++) {
+        checksum += result.getRGB(i, j);
+      }
+    }
+    return checksum;
+  }
+}
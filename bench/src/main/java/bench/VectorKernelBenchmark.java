@@ -0,0 +1,91 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+import model.ImprovedImageProcessingImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class compares the scalar and the Vector API loops of the operations which use them. Every
+ * run is forked with the Vector API module, and the scalar runs turn it off with the ime.vector
+ * system property before the model is created, since the loops are selected once per JVM. It
+ * needs JDK 16 or later, whose builds of the benchmarks include the vector sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class VectorKernelBenchmark {
+
+  @Param({"1920x1080", "4000x3000"})
+  public String size;
+
+  @Param({"scalar", "vector"})
+  public String loops;
+
+  private ImprovedImageProcessing model;
+
+  /**
+   * Selects the loops, then creates the model and loads the source image and its channels.
+   */
+  @Setup
+  public void setUp() {
+    System.setProperty("ime.vector", String.valueOf(loops.equals("vector")));
+    model = new ImprovedImageProcessingImpl();
+    // every iteration must compute its result instead of finding it in the cache
+    model.getResultCache().setCapacity(0);
+    model.setParallelism(1);
+    model.loadImage(BenchmarkImages.create(size), "src");
+    model.rgbSplit("src", "red", "green", "blue");
+  }
+
+  @Benchmark
+  public Image brighten() {
+    return model.brighten(10, "src", "dest");
+  }
+
+  @Benchmark
+  public Image sepia() {
+    return model.colorTransformation("sepia", "src", "dest");
+  }
+
+  @Benchmark
+  public Image greyscaleLuma() {
+    return model.greyscale("luma-component", "src", "dest");
+  }
+
+  @Benchmark
+  public List<Image> rgbSplit() {
+    return model.rgbSplit("src", "dest-red", "dest-green", "dest-blue");
+  }
+
+  @Benchmark
+  public Image rgbCombine() {
+    return model.rgbCombine("dest", "red", "green", "blue");
+  }
+
+  @Benchmark
+  public Image blur() {
+    return model.filtering("blur", "src", "dest");
+  }
+
+  @Benchmark
+  public Image sharpen() {
+    return model.filtering("sharpen", "src", "dest");
+  }
+}
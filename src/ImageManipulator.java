@@ -1,11 +1,18 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
 
+import controller.BatchProcessingController;
+import controller.CommandMetrics;
 import controller.ImageMVCController;
 import controller.ImageMVCControllerImpl;
 import controller.ImageProcessingController;
 import controller.ImageProcessingControllerImpl;
+import controller.ImageProcessingServer;
+import model.BudgetedImageStore;
 import model.ImprovedImageProcessing;
 import model.ImprovedImageProcessingImpl;
 import view.ImageProcessingTextView;
@@ -25,16 +32,58 @@ public class ImageManipulator {
    * @param args accepts a single argument of type array.
    */
   public static void main(String[] args) {
-    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    long budget = Runtime.getRuntime().maxMemory() / 2;
+    if (args.length >= 2 && args[0].equalsIgnoreCase("-budget")) {
+      try {
+        budget = Math.multiplyExact(Long.parseLong(args[1]), 1024L * 1024);
+      } catch (NumberFormatException | ArithmeticException e) {
+        budget = -1;
+      }
+      if (budget < 0) {
+        System.out.println("Command Line Argument is invalid. Program exited.");
+        return;
+      }
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl(
+            new BudgetedImageStore(budget));
     ImageProcessingTextView textView = new ImageProcessingTextViewImpl(System.out);
-    if (args.length == 2 && args[0].equalsIgnoreCase("-file")) {
+    if ((args.length == 2 || args.length == 4 && args[2].equalsIgnoreCase("-metrics"))
+            && args[0].equalsIgnoreCase("-file")) {
+      CommandMetrics metrics = CommandMetrics.getShared();
+      metrics.setRecording(args.length == 4);
       try {
         InputStream in = new FileInputStream(args[1]);
         ImageProcessingController controller = new ImageProcessingControllerImpl(model, in,
-                textView);
+                textView, Set.of(), Runtime.getRuntime().availableProcessors());
         controller.execute();
+        if (args.length == 4) {
+          metrics.writeLog(args[3]);
+        }
       } catch (FileNotFoundException e) {
         System.out.println("File Not Found");
+      } catch (IOException e) {
+        System.out.println("Unable to write metrics to " + args[3]);
+      }
+    } else if (args.length >= 4 && args.length <= 6 && args[0].equalsIgnoreCase("-batch")) {
+      try {
+        String glob = args.length > 4 ? args[4] : "*";
+        int workers = args.length > 5 ? Integer.parseInt(args[5])
+                : Runtime.getRuntime().availableProcessors();
+        ImageProcessingController controller = new BatchProcessingController(args[1], args[2],
+                glob, args[3], workers, System.out);
+        controller.execute();
+      } catch (IllegalArgumentException e) {
+        System.out.println("Command Line Argument is invalid. Program exited.");
+      }
+    } else if (args.length <= 2 && args.length > 0 && args[0].equalsIgnoreCase("-server")) {
+      try {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        ImageProcessingController controller = new ImageProcessingServer(port, budget,
+                System.out);
+        controller.execute();
+      } catch (IllegalArgumentException e) {
+        System.out.println("Command Line Argument is invalid. Program exited.");
       }
     } else if (args.length == 1 && args[0].equalsIgnoreCase("-text")) {
       InputStream in = System.in;
@@ -0,0 +1,149 @@
+package controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import model.Image;
+
+/**
+ * This class saves images in the background, so that a script can go on with its next commands
+ * while the images it saved are encoded. Every image is written to a temporary file in the
+ * directory of its destination, which is then renamed to the destination, so a file is never
+ * seen partially written. Saves to the same file are written in the order they were submitted.
+ *
+ * <p>The images are written by a fixed number of threads. When too many images are waiting to
+ * be written, the thread which submits an image writes it itself, which bounds the memory held
+ * by the images waiting to be written.
+ */
+public class AsyncImageWriter {
+  private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+  private final ThreadPoolExecutor pool;
+  private final Map<Path, CompletableFuture<Void>> pending = new HashMap<>();
+  private final Map<String, String> failures = new LinkedHashMap<>();
+
+  /**
+   * Constructor to initialize the writer with the given number of threads.
+   *
+   * @param threads the number of images written at the same time.
+   * @throws IllegalArgumentException if threads is less than 1
+   */
+  public AsyncImageWriter(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be at least 1");
+    }
+    pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(2 * threads), new ThreadPoolExecutor.CallerRunsPolicy());
+    pool.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Submits an image to be written to a file, in the format given by the extension of the file.
+   * The image must not change afterwards.
+   *
+   * @param filepath the path of the file.
+   * @param image    the image to be written.
+   * @param raw      true to write PPM files in the raw (P6) format, false for the plain (P3)
+   *                 format.
+   * @return true if the image was submitted, false if the extension of the file is not a
+   *         supported format
+   */
+  public boolean submit(String filepath, Image image, boolean raw) {
+    int index = filepath.lastIndexOf('.');
+    String extension = index > 0 ? filepath.substring(index + 1).toLowerCase(Locale.ROOT) : "";
+    if (!extension.equals("ppm") && !ImageIO.getImageWritersBySuffix(extension).hasNext()) {
+      return false;
+    }
+    Path path = Paths.get(filepath).toAbsolutePath().normalize();
+    // completed outside the lock, since the image may then be written by this thread
+    CompletableFuture<Void> submitted = new CompletableFuture<>();
+    synchronized (this) {
+      CompletableFuture<Void> previous = pending.getOrDefault(path, DONE);
+      pending.put(path, submitted.runAfterBoth(previous, () -> { }).thenRunAsync(() -> {
+        try {
+          write(path, extension, image, raw);
+        } catch (IOException | RuntimeException e) {
+          synchronized (this) {
+            failures.put(filepath, String.valueOf(e.getMessage()));
+          }
+        }
+      }, pool));
+    }
+    submitted.complete(null);
+    return true;
+  }
+
+  /**
+   * Waits until the images submitted for the given file are written, before the file is read.
+   *
+   * @param filepath the path of the file.
+   */
+  public void await(String filepath) {
+    CompletableFuture<Void> write;
+    synchronized (this) {
+      write = pending.get(Paths.get(filepath).toAbsolutePath().normalize());
+    }
+    if (write != null) {
+      write.join();
+    }
+  }
+
+  /**
+   * Waits until all the submitted images are written, and stops the threads of the writer.
+   *
+   * @return the error messages of the images which could not be written, by the path of their
+   *         file
+   */
+  public Map<String, String> close() {
+    CompletableFuture<?>[] writes;
+    synchronized (this) {
+      writes = pending.values().toArray(new CompletableFuture<?>[0]);
+    }
+    CompletableFuture.allOf(writes).join();
+    pool.shutdown();
+    synchronized (this) {
+      return new LinkedHashMap<>(failures);
+    }
+  }
+
+  private static void write(Path path, String extension, Image image, boolean raw)
+          throws IOException {
+    if (extension.equals("ppm")) {
+      // PPMCodec also writes to a temporary file which it renames over the file
+      PPMCodec.write(path.toString(), image, raw);
+      return;
+    }
+    // not created with createTempFile, whose permissions would be kept by the file
+    Path temporary = path.resolveSibling("." + path.getFileName() + "."
+            + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(temporary)) {
+        ImageUtil.writeImage(extension, out, image);
+      }
+      try {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+}
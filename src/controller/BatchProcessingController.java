@@ -0,0 +1,154 @@
+package controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.ImprovedImageProcessing;
+import model.ImprovedImageProcessingImpl;
+
+/**
+ * This class runs a script template on every file of a directory which matches a glob pattern.
+ * The files are processed concurrently by a fixed number of workers, every file with its own
+ * model, so the images of a file are released as soon as its script is finished.
+ *
+ * <p>The following placeholders are replaced in every line of the template before it is run:
+ * {input} by the path of the input file, {name} by its name without extension, {ext} by its
+ * extension and {output} by the output directory. When all the files are processed, the time
+ * taken by every file and the commands which failed are printed, followed by a summary.
+ */
+public class BatchProcessingController implements ImageProcessingController {
+  private final Path template;
+  private final Path inputDirectory;
+  private final String glob;
+  private final Path outputDirectory;
+  private final int workers;
+  private final PrintStream out;
+
+  /**
+   * Constructor to initialize the batch with its template, files and number of workers.
+   *
+   * @param template        the path of the script template.
+   * @param inputDirectory  the directory which contains the input files.
+   * @param glob            the glob pattern which selects the input files, for example *.ppm.
+   * @param outputDirectory the directory where the output files are saved.
+   * @param workers         the number of files processed at the same time.
+   * @param out             the stream where the report is printed.
+   * @throws IllegalArgumentException if workers is less than 1
+   */
+  public BatchProcessingController(String template, String inputDirectory, String glob,
+                                   String outputDirectory, int workers, PrintStream out) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("Number of workers must be at least 1");
+    }
+    this.template = Paths.get(template);
+    this.inputDirectory = Paths.get(inputDirectory);
+    this.glob = glob;
+    this.outputDirectory = Paths.get(outputDirectory);
+    this.workers = workers;
+    this.out = out;
+  }
+
+  @Override
+  public void execute() {
+    List<String> lines;
+    List<Path> files = new ArrayList<>();
+    try {
+      lines = Files.readAllLines(template);
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDirectory, glob)) {
+        for (Path file : stream) {
+          if (Files.isRegularFile(file)) {
+            files.add(file);
+          }
+        }
+      }
+      Files.createDirectories(outputDirectory);
+    } catch (IOException | IllegalArgumentException e) {
+      out.println("Unable to start batch: " + e.getMessage());
+      return;
+    }
+    Collections.sort(files);
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    List<Future<Result>> results = new ArrayList<>();
+    for (Path file : files) {
+      results.add(pool.submit(() -> process(lines, file)));
+    }
+    int failed = 0;
+    for (int i = 0; i < files.size(); i++) {
+      Result result;
+      try {
+        result = results.get(i).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        pool.shutdownNow();
+        out.println("Batch interrupted");
+        return;
+      } catch (ExecutionException e) {
+        result = new Result(0, List.of(String.valueOf(e.getCause())));
+      }
+      if (result.errors.isEmpty()) {
+        out.println("OK     " + result.millis + " ms " + files.get(i));
+      } else {
+        failed++;
+        out.println("FAILED " + result.millis + " ms " + files.get(i));
+        for (String error : result.errors) {
+          out.println("       " + error);
+        }
+      }
+    }
+    pool.shutdown();
+    out.println("Processed " + files.size() + " files in "
+            + (System.nanoTime() - start) / 1000000 + " ms: " + (files.size() - failed)
+            + " succeeded, " + failed + " failed");
+  }
+
+  private Result process(List<String> lines, Path file) {
+    long start = System.nanoTime();
+    String fileName = file.getFileName().toString();
+    int index = fileName.lastIndexOf('.');
+    String name = index > 0 ? fileName.substring(0, index) : fileName;
+    String extension = index > 0 ? fileName.substring(index + 1) : "";
+    StringBuilder script = new StringBuilder();
+    for (String line : lines) {
+      script.append(line.replace("{input}", file.toString())
+              .replace("{name}", name)
+              .replace("{ext}", extension)
+              .replace("{output}", outputDirectory.toString())).append('\n');
+    }
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    model.setParallelism(1);
+    // the model lives for a single job, so loaded images are not hashed for a cache
+    model.getResultCache().setCapacity(0);
+    ErrorRecorder recorder = new ErrorRecorder();
+    new ImageProcessingControllerImpl(model, new ByteArrayInputStream(
+            script.toString().getBytes(StandardCharsets.UTF_8)), recorder, Set.of(), 1).execute();
+    return new Result((System.nanoTime() - start) / 1000000, recorder.getErrors());
+  }
+
+  /**
+   * The time taken by a file and the errors of its script.
+   */
+  private static class Result {
+    private final long millis;
+    private final List<String> errors;
+
+    Result(long millis, List<String> errors) {
+      this.millis = millis;
+      this.errors = errors;
+    }
+  }
+}
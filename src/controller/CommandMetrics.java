@@ -0,0 +1,355 @@
+package controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import model.Image;
+
+/**
+ * This class measures the commands run by the controllers: their wall-clock time, the CPU time
+ * and the bytes allocated by all the threads of the program while they run, which include the
+ * threads which process their images in parallel, and the size of the images they create. The
+ * measurements are summed by kind of command, such as blur, and can be displayed with the stats
+ * command, recorded one by one into a CSV or JSON log, and read through JMX.
+ *
+ * <p>The CPU time and the allocations are measured for the whole program, so they also include
+ * the work of the commands which run at the same time, for example the independent commands of a
+ * planned script or the saves written in the background. They are exact for commands which run
+ * alone, such as in a script which starts with 'parallelism 1'. Saves which are written in the
+ * background are measured until they are submitted.
+ */
+public class CommandMetrics {
+  private static final String DOMAIN = "imageprocessing";
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static CommandMetrics shared;
+
+  private final boolean published;
+  private final Map<String, Stats> stats = new TreeMap<>();
+  private List<Sample> samples;
+
+  /**
+   * Constructor to initialize empty metrics, which are not published through JMX.
+   */
+  public CommandMetrics() {
+    this(false);
+  }
+
+  private CommandMetrics(boolean published) {
+    this.published = published;
+  }
+
+  /**
+   * Returns the metrics of the whole program, which the controllers record their commands to.
+   * Their statistics are published as MXBeans named imageprocessing:type=CommandStats,name=
+   * followed by the kind of command.
+   *
+   * @return the metrics of the program
+   */
+  public static synchronized CommandMetrics getShared() {
+    if (shared == null) {
+      shared = new CommandMetrics(true);
+    }
+    return shared;
+  }
+
+  /**
+   * Sets whether every command is recorded, so that the commands can be written to a log. The
+   * records which were kept so far are discarded when recording stops.
+   *
+   * @param recording true to record every command, false to keep only the statistics.
+   */
+  public synchronized void setRecording(boolean recording) {
+    samples = recording ? new ArrayList<>() : null;
+  }
+
+  /**
+   * Runs a command and records its measurements. The command failed if it returns null or no
+   * images, or throws an exception, which is thrown again.
+   *
+   * @param line    the line of the command, whose first word is its kind.
+   * @param command the action which runs the command.
+   * @return the images returned by the command
+   */
+  List<Image> measure(String line, Supplier<List<Image>> command) {
+    Map<Long, long[]> before = counters();
+    long start = System.nanoTime();
+    List<Image> result = null;
+    try {
+      result = command.get();
+      return result;
+    } finally {
+      long wallNanos = System.nanoTime() - start;
+      long cpuNanos = 0;
+      long allocatedBytes = 0;
+      for (Map.Entry<Long, long[]> entry : counters().entrySet()) {
+        long[] previous = before.getOrDefault(entry.getKey(), new long[2]);
+        cpuNanos += entry.getValue()[0] - previous[0];
+        allocatedBytes += entry.getValue()[1] - previous[1];
+      }
+      record(line.trim(), wallNanos, cpuNanos, allocatedBytes, result);
+    }
+  }
+
+  /**
+   * Returns the CPU time and the allocated bytes of every live thread, by the id of the thread.
+   * They are zero when the JVM cannot measure them.
+   */
+  private static Map<Long, long[]> counters() {
+    long[] ids = THREADS.getAllThreadIds();
+    Map<Long, long[]> counters = new HashMap<>();
+    if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+      return counters;
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+    long[] cpu = THREADS.isThreadCpuTimeSupported() ? threads.getThreadCpuTime(ids)
+            : new long[ids.length];
+    long[] allocated = threads.isThreadAllocatedMemorySupported()
+            ? threads.getThreadAllocatedBytes(ids) : new long[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      // threads which ended report -1
+      counters.put(ids[i], new long[]{Math.max(0, cpu[i]), Math.max(0, allocated[i])});
+    }
+    return counters;
+  }
+
+  private synchronized void record(String line, long wallNanos, long cpuNanos,
+                                   long allocatedBytes, List<Image> result) {
+    String command = line.split(" +")[0].toLowerCase(Locale.ROOT);
+    int width = 0;
+    int height = 0;
+    long pixels = 0;
+    if (result != null) {
+      for (Image image : result) {
+        if (image != null) {
+          if (pixels == 0) {
+            width = image.getWidth();
+            height = image.getHeight();
+          }
+          pixels += (long) image.getWidth() * image.getHeight();
+        }
+      }
+    }
+    boolean succeeded = result != null && !result.isEmpty();
+    Stats commandStats = stats.get(command);
+    if (commandStats == null) {
+      commandStats = new Stats();
+      stats.put(command, commandStats);
+      if (published) {
+        publish(command, commandStats);
+      }
+    }
+    commandStats.add(wallNanos, cpuNanos, allocatedBytes, pixels, succeeded);
+    if (samples != null) {
+      samples.add(new Sample(command, line, wallNanos, cpuNanos, allocatedBytes, width, height,
+              pixels, succeeded));
+    }
+  }
+
+  private static void publish(String command, Stats commandStats) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(commandStats,
+              new ObjectName(DOMAIN + ":type=CommandStats,name=" + ObjectName.quote(command)));
+    } catch (JMException e) {
+      // the statistics are still displayed by the stats command
+    }
+  }
+
+  /**
+   * Returns a table of the statistics of every kind of command, in alphabetical order.
+   *
+   * @return the table, one line per kind of command
+   */
+  public synchronized String format() {
+    StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+            "%-16s %6s %6s %12s %10s %12s %12s %10s%n", "command", "count", "failed",
+            "wall ms", "max ms", "cpu ms", "alloc MB", "Mpx/s"));
+    for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+      Stats commandStats = entry.getValue();
+      table.append(String.format(Locale.ROOT, "%-16s %6d %6d %12.3f %10.3f %12.3f %12.3f %10.2f%n",
+              entry.getKey(), commandStats.getCount(), commandStats.getFailures(),
+              commandStats.getTotalWallMillis(), commandStats.getMaxWallMillis(),
+              commandStats.getTotalCpuMillis(), commandStats.getAllocatedBytes() / 1e6,
+              commandStats.getMegapixelsPerSecond()));
+    }
+    return table.toString();
+  }
+
+  /**
+   * Writes the commands recorded since recording started to a file, one command per line. The
+   * file is written as a JSON array if its name ends with .json, and as CSV otherwise.
+   *
+   * @param filepath the path of the file.
+   * @throws IOException if the file cannot be written
+   */
+  public void writeLog(String filepath) throws IOException {
+    List<Sample> recorded;
+    synchronized (this) {
+      recorded = samples == null ? List.of() : new ArrayList<>(samples);
+    }
+    boolean json = filepath.toLowerCase(Locale.ROOT).endsWith(".json");
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(filepath),
+            StandardCharsets.UTF_8))) {
+      if (json) {
+        out.println("[");
+      } else {
+        out.println("command,line,wall_ms,cpu_ms,allocated_bytes,width,height,pixels,"
+                + "megapixels_per_second,succeeded");
+      }
+      for (int i = 0; i < recorded.size(); i++) {
+        Sample sample = recorded.get(i);
+        if (json) {
+          out.println(sample.toJson() + (i + 1 < recorded.size() ? "," : ""));
+        } else {
+          out.println(sample.toCsv());
+        }
+      }
+      if (json) {
+        out.println("]");
+      }
+    }
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+
+  private static double megapixelsPerSecond(long pixels, long nanos) {
+    return nanos == 0 ? 0 : pixels * 1e3 / nanos;
+  }
+
+  /**
+   * The measurements of a single command, for the log.
+   */
+  private static final class Sample {
+    private final String command;
+    private final String line;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final int width;
+    private final int height;
+    private final long pixels;
+    private final boolean succeeded;
+
+    Sample(String command, String line, long wallNanos, long cpuNanos, long allocatedBytes,
+           int width, int height, long pixels, boolean succeeded) {
+      this.command = command;
+      this.line = line;
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.width = width;
+      this.height = height;
+      this.pixels = pixels;
+      this.succeeded = succeeded;
+    }
+
+    String toCsv() {
+      return String.format(Locale.ROOT, "%s,\"%s\",%.3f,%.3f,%d,%d,%d,%d,%.2f,%b", command,
+              line.replace("\"", "\"\""), millis(wallNanos), millis(cpuNanos), allocatedBytes,
+              width, height, pixels, megapixelsPerSecond(pixels, wallNanos), succeeded);
+    }
+
+    String toJson() {
+      return String.format(Locale.ROOT, "{\"command\":\"%s\",\"line\":\"%s\",\"wallMillis\":%.3f,"
+                      + "\"cpuMillis\":%.3f,\"allocatedBytes\":%d,\"width\":%d,\"height\":%d,"
+                      + "\"pixels\":%d,\"megapixelsPerSecond\":%.2f,\"succeeded\":%b}",
+              escape(command), escape(line), millis(wallNanos), millis(cpuNanos), allocatedBytes,
+              width, height, pixels, megapixelsPerSecond(pixels, wallNanos), succeeded);
+    }
+
+    private static String escape(String text) {
+      StringBuilder escaped = new StringBuilder();
+      for (char c : text.toCharArray()) {
+        if (c == '"' || c == '\\') {
+          escaped.append('\\').append(c);
+        } else if (c < 0x20) {
+          escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+        } else {
+          escaped.append(c);
+        }
+      }
+      return escaped.toString();
+    }
+  }
+
+  /**
+   * The statistics of one kind of command.
+   */
+  private static final class Stats implements CommandStatsMXBean {
+    private long count;
+    private long failures;
+    private long wallNanos;
+    private long maxWallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long pixels;
+
+    synchronized void add(long wall, long cpu, long allocated, long created, boolean succeeded) {
+      count++;
+      if (!succeeded) {
+        failures++;
+      }
+      wallNanos += wall;
+      maxWallNanos = Math.max(maxWallNanos, wall);
+      cpuNanos += cpu;
+      allocatedBytes += allocated;
+      pixels += created;
+    }
+
+    @Override
+    public synchronized long getCount() {
+      return count;
+    }
+
+    @Override
+    public synchronized long getFailures() {
+      return failures;
+    }
+
+    @Override
+    public synchronized double getTotalWallMillis() {
+      return millis(wallNanos);
+    }
+
+    @Override
+    public synchronized double getMaxWallMillis() {
+      return millis(maxWallNanos);
+    }
+
+    @Override
+    public synchronized double getTotalCpuMillis() {
+      return millis(cpuNanos);
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    @Override
+    public synchronized long getPixels() {
+      return pixels;
+    }
+
+    @Override
+    public synchronized double getMegapixelsPerSecond() {
+      return megapixelsPerSecond(pixels, wallNanos);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package controller;
+
+/**
+ * This interface represents the statistics of one kind of command, such as blur, which are
+ * published through JMX. The totals cover every command of this kind run by the program.
+ */
+public interface CommandStatsMXBean {
+
+  /**
+   * Returns the number of commands run.
+   *
+   * @return the number of commands
+   */
+  long getCount();
+
+  /**
+   * Returns the number of commands which failed.
+   *
+   * @return the number of failed commands
+   */
+  long getFailures();
+
+  /**
+   * Returns the total wall-clock time of the commands.
+   *
+   * @return the time in milliseconds
+   */
+  double getTotalWallMillis();
+
+  /**
+   * Returns the longest wall-clock time of a command.
+   *
+   * @return the time in milliseconds
+   */
+  double getMaxWallMillis();
+
+  /**
+   * Returns the total CPU time used by all the threads of the program during the commands.
+   *
+   * @return the time in milliseconds
+   */
+  double getTotalCpuMillis();
+
+  /**
+   * Returns the total number of bytes allocated by all the threads of the program during the
+   * commands.
+   *
+   * @return the number of bytes
+   */
+  long getAllocatedBytes();
+
+  /**
+   * Returns the total number of pixels of the images created by the commands.
+   *
+   * @return the number of pixels
+   */
+  long getPixels();
+
+  /**
+   * Returns the number of pixels created per second of wall-clock time by the commands.
+   *
+   * @return the throughput in megapixels per second
+   */
+  double getMegapixelsPerSecond();
+}
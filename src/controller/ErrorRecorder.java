@@ -0,0 +1,43 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import view.ImageProcessingTextView;
+
+/**
+ * Text view which records the error messages of a script instead of printing them, so that they
+ * can be reported for the file or request which ran the script.
+ */
+class ErrorRecorder implements ImageProcessingTextView {
+  private final List<String> errors = new ArrayList<>();
+
+  /**
+   * Returns the error messages recorded so far, in the order of the commands.
+   *
+   * @return the error messages
+   */
+  List<String> getErrors() {
+    return errors;
+  }
+
+  @Override
+  public void displayErrorMessage(String command) {
+    errors.add("Invalid Command Entered " + command);
+  }
+
+  @Override
+  public void displayErrorWhileRunningScriptFile(String error, String command) {
+    errors.add("Error while running script file: " + error + " " + command);
+  }
+
+  @Override
+  public void displaySuccessMessage(String command) {
+    // successful commands are not reported
+  }
+
+  @Override
+  public void displayStats(String stats) {
+    // statistics are not reported
+  }
+}
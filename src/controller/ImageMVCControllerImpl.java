@@ -1,7 +1,15 @@
 package controller;
 
+import java.awt.Dimension;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import controller.commands.Brighten;
 import controller.commands.ColorTransformation;
@@ -11,22 +19,50 @@ import controller.commands.Greyscale;
 import controller.commands.HorizontalFlip;
 import controller.commands.ImageCommandController;
 import controller.commands.Load;
+import controller.commands.OrderedDither;
 import controller.commands.RGBCombine;
 import controller.commands.RGBSplit;
 import controller.commands.Save;
 import controller.commands.VerticalFlip;
+import model.Histogram;
 import model.Image;
 import model.ImprovedImageProcessing;
+import model.ImprovedImageProcessingImpl;
+import model.OperationMonitor;
+import model.Resampler;
 import view.ImageProcessingView;
 
 /**
  * The implementation of the ImageMVCController interface that handles communication
  * between the model, the view, and the user input. It uses the ImageProcessingView and
  * ImprovedImageProcessing model to execute commands on images.
+ *
+ * <p>The parameters of a command are asked on the event dispatch thread, but the command itself
+ * and the preparation of its image for display run in the background, one command at a time in
+ * the order they were given, so that the window keeps responding. The progress of the running
+ * command is displayed by the view, and the cancel command stops the running command and the
+ * commands which wait for it.
+ *
+ * <p>The image is edited on a preview, a copy of the image reduced to the size of the display
+ * kept in a second model, so that the result of an edit is displayed in about the same time
+ * whatever the size of the image. Every edit is recorded and replayed on the full-resolution
+ * image of the model on another thread, in order. Saving, splitting and loading wait for the
+ * edits before them to be replayed, and the preview is then reduced again from the
+ * full-resolution image. An edit whose replay fails or is cancelled cancels the edits after it,
+ * and the preview goes back to the full-resolution image.
  */
 public class ImageMVCControllerImpl implements ImageMVCController {
+  private static final Set<String> PREVIEWED = Set.of("brighten", "greyscale", "sepia", "blur",
+          "sharpen", "dither", "ordered-dither", "horizontal-flip", "vertical-flip");
+  private static final String CURRENT_IMAGE = "image";
+
   private final ImprovedImageProcessing model;
+  private final ImprovedImageProcessing preview;
   private final ImageProcessingView view;
+  private final CommandMetrics metrics = CommandMetrics.getShared();
+  private final ThreadPoolExecutor worker;
+  private final ThreadPoolExecutor replayer;
+  private final Set<Operation> pending = new HashSet<>();
 
   /**
    * Constructs an ImageMVCControllerImpl object with the provided ImprovedImageProcessing model
@@ -36,8 +72,27 @@ public class ImageMVCControllerImpl implements ImageMVCController {
    * @param view  The ImageProcessingView.
    */
   public ImageMVCControllerImpl(ImprovedImageProcessing model, ImageProcessingView view) {
+    this(model, new ImprovedImageProcessingImpl(), view);
+  }
+
+  /**
+   * Constructs an ImageMVCControllerImpl object with the provided ImprovedImageProcessing model,
+   * the model which holds the preview of the image and ImageProcessingView view.
+   *
+   * @param model   The ImprovedImageProcessing model of the full-resolution images.
+   * @param preview The ImprovedImageProcessing model of the preview.
+   * @param view    The ImageProcessingView.
+   */
+  public ImageMVCControllerImpl(ImprovedImageProcessing model, ImprovedImageProcessing preview,
+                                ImageProcessingView view) {
     this.model = model;
+    this.preview = preview;
     this.view = view;
+    this.worker = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    this.worker.allowCoreThreadTimeOut(true);
+    this.replayer = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+    this.replayer.allowCoreThreadTimeOut(true);
   }
 
   @Override
@@ -48,26 +103,199 @@ public class ImageMVCControllerImpl implements ImageMVCController {
 
   @Override
   public void processImage(String command) {
+    if (command.equals("cancel")) {
+      cancelPending();
+      return;
+    }
     List<String> commands = this.view.getParameters(command);
-    if (commands != null) {
+    if (commands != null && commands.get(0).equals("parallelism")) {
+      int parallelism;
       try {
-        List<Image> m = readCommands(commands);
+        parallelism = Integer.parseInt(commands.get(1));
+      } catch (NumberFormatException ex) {
+        parallelism = 0;
+      }
+      if (parallelism < 1) {
+        this.view.displayErrorDialog();
+      } else {
+        setParallelism(parallelism);
+      }
+    } else if (commands != null) {
+      Operation operation = new Operation();
+      synchronized (pending) {
+        pending.add(operation);
+        this.view.displayProcessing(true);
+      }
+      worker.execute(() -> run(commands, operation));
+    }
+  }
+
+  /**
+   * Changes the number of threads of both models between their operations, since an operation
+   * which is running would lose the threads it uses. The preview changes on the worker, and the
+   * full-resolution model on the replayer after the edits queued before it are replayed.
+   */
+  private void setParallelism(int parallelism) {
+    worker.execute(() -> {
+      try {
+        this.preview.setParallelism(parallelism);
+      } catch (IllegalArgumentException ex) {
+        this.view.displayErrorDialog();
+        return;
+      }
+      replayer.execute(() -> this.model.setParallelism(parallelism));
+    });
+  }
+
+  /**
+   * Runs the commands on the thread of the worker, unless they were cancelled while they waited.
+   * Edits are run on the preview and queued for replay, and the other commands are run on the
+   * full-resolution images once the edits before them are replayed.
+   */
+  private void run(List<String> commands, Operation operation) {
+    boolean replaying = false;
+    try {
+      if (operation.cancelled) {
+        return;
+      }
+      if (PREVIEWED.contains(commands.get(0))) {
+        this.preview.setMonitor(operation);
+        List<Image> m = readCommands(commands, preview);
+        if (m == null) {
+          this.view.displayErrorDialog();
+        } else {
+          this.view.displayCurrentImage(m);
+          replayer.execute(() -> replay(commands, operation));
+          replaying = true;
+        }
+      } else {
+        List<Image> m = replayer.submit(() -> runFullResolution(commands, operation)).get();
         if (m == null) {
           this.view.displayErrorDialog();
+        } else if (m.size() == 1) {
+          displayFullResolution();
         } else {
           this.view.displayCurrentImage(m);
         }
-      } catch (Exception ex) {
+      }
+    } catch (CancellationException ex) {
+      // the current image stays on display
+    } catch (ExecutionException ex) {
+      if (!(ex.getCause() instanceof CancellationException)) {
+        this.view.displayErrorDialog();
+      }
+    } catch (Exception ex) {
+      this.view.displayErrorDialog();
+    } finally {
+      this.preview.setMonitor(null);
+      if (!replaying) {
+        finish(operation);
+      }
+    }
+  }
+
+  /**
+   * Runs the commands on the full-resolution images, on the thread of the replayer.
+   */
+  private List<Image> runFullResolution(List<String> commands, Operation operation) {
+    if (operation.cancelled) {
+      throw new CancellationException("Operation cancelled");
+    }
+    this.model.setMonitor(operation);
+    try {
+      return readCommands(commands, model);
+    } finally {
+      this.model.setMonitor(null);
+    }
+  }
+
+  /**
+   * Replays an edit which was displayed on the preview on the full-resolution image.
+   */
+  private void replay(List<String> commands, Operation operation) {
+    boolean replayed = false;
+    try {
+      if (runFullResolution(commands, operation) == null) {
         this.view.displayErrorDialog();
+      } else {
+        replayed = true;
+        displayHistogram();
       }
+    } catch (CancellationException ex) {
+      // the preview goes back to the full-resolution image below
+    } catch (Exception ex) {
+      this.view.displayErrorDialog();
+    } finally {
+      if (!replayed) {
+        cancelPending();
+        worker.execute(this::resetPreview);
+      }
+      finish(operation);
     }
   }
 
-  private List<Image> readCommands(List<String> inputArray) {
+  /**
+   * Reduces the full-resolution image again to the preview after a failed or cancelled edit.
+   */
+  private void resetPreview() {
+    try {
+      displayFullResolution();
+    } catch (Exception ex) {
+      // there is no image yet
+    }
+  }
+
+  /**
+   * Replaces the preview with the full-resolution image reduced to the size of the display, and
+   * displays it with its histograms.
+   */
+  private void displayFullResolution() {
+    Dimension size = this.view.getDisplaySize();
+    Image image = this.model.saveImage(CURRENT_IMAGE);
+    this.preview.loadImage(Resampler.fit(image, size.width, size.height), CURRENT_IMAGE);
+    this.view.displayCurrentImage(List.of(this.preview.saveImage(CURRENT_IMAGE)));
+    replayer.execute(this::displayHistogram);
+  }
+
+  /**
+   * Displays the histograms of the full-resolution image, on the thread of the replayer, unless
+   * other commands wait for the replayer and will display them after they run. The histograms
+   * are counted from the full-resolution image rather than the preview, whose averaged pixels
+   * would spread the values of the image.
+   */
+  private void displayHistogram() {
+    if (replayer.getQueue().isEmpty()) {
+      Histogram histogram = this.model.histogram(CURRENT_IMAGE);
+      if (histogram != null) {
+        this.view.displayHistogram(histogram);
+      }
+    }
+  }
+
+  private void cancelPending() {
+    synchronized (pending) {
+      for (Operation operation : pending) {
+        operation.cancelled = true;
+      }
+    }
+  }
+
+  private void finish(Operation operation) {
+    synchronized (pending) {
+      pending.remove(operation);
+      if (pending.isEmpty()) {
+        this.view.displayProcessing(false);
+      }
+    }
+  }
+
+  private List<Image> readCommands(List<String> inputArray, ImprovedImageProcessing target) {
     ImageCommandController cmd = null;
+    String line = null;
     try {
       int i = 0;
       while (i < inputArray.size()) {
+        int first = i;
         switch (inputArray.get(i)) {
           case "load":
             cmd = new Load(inputArray.get(++i), inputArray.get(++i));
@@ -97,6 +325,10 @@ public class ImageMVCControllerImpl implements ImageMVCController {
           case "dither":
             cmd = new Dither(inputArray.get(++i), inputArray.get(++i));
             break;
+          case "ordered-dither":
+            cmd = new OrderedDither(inputArray.get(++i), inputArray.get(++i),
+                    inputArray.get(++i));
+            break;
           case "brighten":
             cmd = new Brighten(Integer.parseInt(inputArray.get(++i)), inputArray.get(++i),
                     inputArray.get(++i));
@@ -111,11 +343,11 @@ public class ImageMVCControllerImpl implements ImageMVCController {
             break;
           case "load-rgbcombine":
             cmd = new Load(inputArray.get(++i), inputArray.get(++i));
-            cmd.execute(model);
+            cmd.execute(target);
             break;
           case "save-rgbsplit":
             cmd = new Save(inputArray.get(++i), inputArray.get(++i));
-            Image rgbImage = cmd.execute(model).get(0);
+            Image rgbImage = cmd.execute(target).get(0);
             List<Image> image = new ArrayList<>();
             image.add(rgbImage);
             image.add(null);
@@ -124,14 +356,36 @@ public class ImageMVCControllerImpl implements ImageMVCController {
             return null;
         }
         i++;
+        line = String.join(" ", inputArray.subList(first, i));
       }
     } catch (NumberFormatException e) {
       return null;
     }
-    if (cmd != null) {
-      return cmd.execute(model);
+    if (cmd != null && target != model) {
+      // only the commands on the full-resolution images are measured
+      return cmd.execute(target);
+    } else if (cmd != null) {
+      ImageCommandController measured = cmd;
+      return metrics.measure(line, () -> measured.execute(model));
     } else {
       return null;
     }
   }
+
+  /**
+   * The monitor of a command given through the view, which displays its progress.
+   */
+  private class Operation implements OperationMonitor {
+    private volatile boolean cancelled;
+
+    @Override
+    public void progress(int rowsDone, int rows) {
+      view.displayProgress(rowsDone, rows);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
 }
@@ -2,26 +2,38 @@ package controller;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.function.Predicate;
 
+import controller.commands.BoxBlur;
 import controller.commands.Brighten;
 import controller.commands.ColorTransformation;
+import controller.commands.Crop;
 import controller.commands.Dither;
 import controller.commands.Filtering;
+import controller.commands.GaussianBlur;
 import controller.commands.Greyscale;
 import controller.commands.HorizontalFlip;
 import controller.commands.ImageCommandController;
 import controller.commands.Load;
+import controller.commands.OrderedDither;
 import controller.commands.RGBCombine;
 import controller.commands.RGBSplit;
 import controller.commands.Save;
+import controller.commands.Transpose;
 import controller.commands.VerticalFlip;
 import model.Image;
 import model.ImprovedImageProcessing;
+import model.ResultCache;
 import view.ImageProcessingTextView;
 
 /**
@@ -32,6 +44,10 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
   private final ImprovedImageProcessing model;
   private final InputStream in;
   private final ImageProcessingTextView view;
+  private final Set<String> kept;
+  private final int threads;
+  private final CommandMetrics metrics = CommandMetrics.getShared();
+  private AsyncImageWriter writer;
 
   /**
    * This method is the constructor to the ImageProcessingControllerImpl class.
@@ -44,18 +60,58 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
     this.model = model;
     this.in = in;
     this.view = view;
+    this.kept = null;
+    this.threads = 1;
   }
 
-  private void readCommands(String[] inputArray, String command) {
+  /**
+   * Constructor for a controller which reads its whole input as a single script, and plans it
+   * before running it. The lines of the scripts given to run commands are included in it.
+   * Commands whose images are neither saved nor kept are skipped, and every image which is not
+   * kept is removed from the model as soon as no later command uses it, so the memory of its
+   * pixels is reused. Independent commands run concurrently on the given number of threads, or
+   * on the number set by the parallelism command after it, and their messages are displayed in
+   * the order of the script. Saved images are written in the background by half as many threads;
+   * the script waits for them before loading a file which is being written and at its end, where
+   * the saves which failed are reported.
+   *
+   * @param model   takes in model object.
+   * @param in      input of the InputStream.
+   * @param view    the view which displays the result of every command.
+   * @param kept    the names of the images which are kept in the model after the script.
+   * @param threads the number of commands which run at the same time, 1 to run them one after
+   *                the other.
+   * @throws IllegalArgumentException if threads is less than 1
+   */
+  public ImageProcessingControllerImpl(ImprovedImageProcessing model, InputStream in,
+                                       ImageProcessingTextView view, Set<String> kept,
+                                       int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be at least 1");
+    }
+    this.model = model;
+    this.in = in;
+    this.view = view;
+    this.kept = Set.copyOf(kept);
+    this.threads = threads;
+  }
+
+  private void readCommands(String[] inputArray, String command, ImageProcessingTextView view) {
     ImageCommandController cmd = null;
     try {
       if (inputArray.length == 3) {
         switch (inputArray[0]) {
           case "load":
+            if (writer != null) {
+              writer.await(inputArray[1]);
+            }
             cmd = new Load(inputArray[1], inputArray[2]);
             break;
           case "save":
-            cmd = new Save(inputArray[1], inputArray[2]);
+            cmd = new Save(inputArray[1], inputArray[2], false, writer);
+            break;
+          case "save-raw":
+            cmd = new Save(inputArray[1], inputArray[2], true, writer);
             break;
           case "horizontal-flip":
             cmd = new HorizontalFlip(inputArray[1], inputArray[2]);
@@ -63,6 +119,9 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
           case "vertical-flip":
             cmd = new VerticalFlip(inputArray[1], inputArray[2]);
             break;
+          case "transpose":
+            cmd = new Transpose(inputArray[1], inputArray[2]);
+            break;
           case "greyscale":
             cmd = new Greyscale("luma-component", inputArray[1], inputArray[2]);
             break;
@@ -79,9 +138,33 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
             cmd = new Dither(inputArray[1], inputArray[2]);
             break;
           default:
-            this.view.displayErrorMessage(command);
+            view.displayErrorMessage(command);
             return;
         }
+      } else if (inputArray.length == 1 && inputArray[0].equals("stats")) {
+        ResultCache cache = this.model.getResultCache();
+        view.displayStats(cache == null ? metrics.format()
+                : metrics.format() + cache + System.lineSeparator());
+        return;
+      } else if (inputArray.length == 2 && inputArray[0].equalsIgnoreCase("cache")) {
+        this.model.getResultCache().setCapacity(Long.parseLong(inputArray[1]) * 1024 * 1024);
+        view.displaySuccessMessage(command);
+        return;
+      } else if (inputArray.length == 2 && inputArray[0].equalsIgnoreCase("parallelism")) {
+        this.model.setParallelism(Integer.parseInt(inputArray[1]));
+        view.displaySuccessMessage(command);
+        return;
+      } else if (inputArray.length == 2 && inputArray[0].equalsIgnoreCase("deferred")) {
+        if (inputArray[1].equalsIgnoreCase("on")) {
+          this.model.setDeferred(true);
+        } else if (inputArray[1].equalsIgnoreCase("off")) {
+          this.model.setDeferred(false);
+        } else {
+          view.displayErrorMessage(command);
+          return;
+        }
+        view.displaySuccessMessage(command);
+        return;
       } else if (inputArray.length == 4) {
         if (inputArray[0].equalsIgnoreCase("brighten")) {
           cmd = new Brighten(Integer.parseInt(inputArray[1]), inputArray[2],
@@ -90,29 +173,44 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
         if (inputArray[0].equalsIgnoreCase("greyscale")) {
           cmd = new Greyscale(inputArray[1], inputArray[2], inputArray[3]);
         }
+        if (inputArray[0].equalsIgnoreCase("ordered-dither")) {
+          cmd = new OrderedDither(inputArray[1], inputArray[2], inputArray[3]);
+        }
+        if (inputArray[0].equalsIgnoreCase("blur")) {
+          cmd = new BoxBlur(Integer.parseInt(inputArray[1]), inputArray[2], inputArray[3]);
+        }
+        if (inputArray[0].equalsIgnoreCase("gaussian-blur")) {
+          cmd = new GaussianBlur(Double.parseDouble(inputArray[1]), inputArray[2],
+                  inputArray[3]);
+        }
       } else if (inputArray.length == 5) {
         if (inputArray[0].equalsIgnoreCase("rgb-split")) {
           cmd = new RGBSplit(inputArray[1], inputArray[2], inputArray[3], inputArray[4]);
         } else if (inputArray[0].equalsIgnoreCase("rgb-combine")) {
           cmd = new RGBCombine(inputArray[1], inputArray[2], inputArray[3], inputArray[4]);
         }
+      } else if (inputArray.length == 7 && inputArray[0].equalsIgnoreCase("crop")) {
+        cmd = new Crop(Integer.parseInt(inputArray[1]), Integer.parseInt(inputArray[2]),
+                Integer.parseInt(inputArray[3]), Integer.parseInt(inputArray[4]), inputArray[5],
+                inputArray[6]);
       } else {
-        this.view.displayErrorMessage(command);
+        view.displayErrorMessage(command);
         return;
       }
-    } catch (NumberFormatException e) {
-      this.view.displayErrorMessage(command);
+    } catch (IllegalArgumentException e) {
+      view.displayErrorMessage(command);
       return;
     }
     if (cmd != null) {
-      List<Image> m = cmd.execute(model);
+      ImageCommandController measured = cmd;
+      List<Image> m = metrics.measure(command, () -> measured.execute(model));
       if (m == null || m.size() == 0) {
-        this.view.displayErrorMessage(command);
+        view.displayErrorMessage(command);
       } else {
-        this.view.displaySuccessMessage(command);
+        view.displaySuccessMessage(command);
       }
     } else {
-      this.view.displayErrorMessage(command);
+      view.displayErrorMessage(command);
     }
   }
 
@@ -127,7 +225,7 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
         runScriptInputArray = Arrays.stream(runScriptInputArray)
                 .filter(Predicate.not(String::isEmpty))
                 .toArray(String[]::new);
-        readCommands(runScriptInputArray, line);
+        readCommands(runScriptInputArray, line, view);
         line = reader.readLine();
       }
       reader.close();
@@ -138,6 +236,10 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
 
   @Override
   public void execute() {
+    if (kept != null) {
+      executePlanned();
+      return;
+    }
     String[] inputArray;
     Scanner scan = new Scanner(this.in);
     while (scan.hasNext()) {
@@ -150,9 +252,44 @@ public class ImageProcessingControllerImpl implements ImageProcessingController
         if ((inputArray.length == 2) && (inputArray[0].equals("run"))) {
           readScript(inputArray[1]);
         } else {
-          readCommands(inputArray, input);
+          readCommands(inputArray, input, view);
+        }
+      }
+    }
+  }
+
+  private void executePlanned() {
+    List<String> lines = new ArrayList<>();
+    Scanner scan = new Scanner(this.in);
+    while (scan.hasNext()) {
+      String input = scan.nextLine();
+      String[] inputArray = input.trim().split(" +");
+      if (inputArray.length == 2 && inputArray[0].equals("run")) {
+        try {
+          lines.addAll(Files.readAllLines(Paths.get(inputArray[1])));
+          continue;
+        } catch (IOException e) {
+          // the run command is kept, and reports the error when it is reached
+        }
+      }
+      lines.add(input);
+    }
+    writer = new AsyncImageWriter(Math.max(1, threads / 2));
+    try {
+      new ScriptScheduler(view, (step, stepView) -> {
+        String[] inputArray = step.getTokens();
+        if (inputArray.length == 2 && inputArray[0].equals("run")) {
+          readScript(inputArray[1]);
+        } else {
+          readCommands(inputArray, step.getLine(), stepView);
         }
+      }, model::removeImage).run(ScriptPlanner.plan(lines, kept), threads);
+    } finally {
+      Map<String, String> failures = writer.close();
+      writer = null;
+      for (Map.Entry<String, String> failure : failures.entrySet()) {
+        view.displayErrorWhileRunningScriptFile(failure.getValue(), "save " + failure.getKey());
       }
     }
   }
-}
\ No newline at end of file
+}
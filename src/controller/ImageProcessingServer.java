@@ -0,0 +1,389 @@
+package controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+import model.ImprovedImageProcessingImpl;
+
+/**
+ * This class serves the image operations over HTTP, so that other programs can process images
+ * without starting a new JVM for every job. It listens on the loopback interface unless another
+ * address is given, and handles every request on its own virtual thread when the JVM supports
+ * them, or on a pooled thread otherwise.
+ *
+ * <p>POST /process takes an image in the body, in PPM or any format supported by ImageIO, and a
+ * script in the existing command syntax in the script query parameter, whose lines are separated
+ * by newlines or semicolons. The image is loaded as "input" into a new model, the script is run,
+ * and the image named by the output parameter ("output" by default) is streamed back in the
+ * format given by the format parameter ("png" by default). Commands which access files (load,
+ * save, save-raw and run) are rejected. GET /stats returns the number of requests and their
+ * latencies as JSON.
+ *
+ * <p>Every request reserves the memory of its body, given by its Content-Length, from the memory
+ * budget before the body is read, and then the memory its images are estimated to need before it
+ * is processed. It waits while the budget is used by other requests, so the number of concurrent
+ * requests is bounded by their sizes rather than by a fixed number.
+ */
+public class ImageProcessingServer implements ImageProcessingController {
+  private static final Set<String> FILE_COMMANDS = Set.of("load", "save", "save-raw", "run");
+  private static final long BUDGET_TIMEOUT_SECONDS = 30;
+
+  private final InetSocketAddress address;
+  private final long budget;
+  private final Semaphore memory;
+  private final int totalPermits;
+  private final PrintStream out;
+  private final LatencyStats stats = new LatencyStats();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final CountDownLatch stopped = new CountDownLatch(1);
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * Constructor to initialize a server which listens on the given port of the loopback interface.
+   *
+   * @param port   the port, or 0 to use any free port.
+   * @param budget the number of bytes the images of all requests may use at the same time.
+   * @param out    the stream where the address of the server is printed.
+   * @throws IllegalArgumentException if the port is out of range or the budget is not positive
+   */
+  public ImageProcessingServer(int port, long budget, PrintStream out) {
+    this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), budget, out);
+  }
+
+  /**
+   * Constructor to initialize a server which listens on the given address.
+   *
+   * @param address the address and port.
+   * @param budget  the number of bytes the images of all requests may use at the same time.
+   * @param out     the stream where the address of the server is printed.
+   * @throws IllegalArgumentException if the budget is not positive
+   */
+  public ImageProcessingServer(InetSocketAddress address, long budget, PrintStream out) {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive");
+    }
+    this.address = address;
+    this.budget = budget;
+    this.totalPermits = (int) Math.min(Integer.MAX_VALUE, budget >> 10);
+    this.memory = new Semaphore(totalPermits, true);
+    this.out = out;
+  }
+
+  /**
+   * Starts listening for requests, without waiting for them.
+   *
+   * @throws IOException if the server cannot listen on its address
+   */
+  public synchronized void start() throws IOException {
+    if (server != null) {
+      return;
+    }
+    server = HttpServer.create(address, 0);
+    executor = requestExecutor();
+    server.setExecutor(executor);
+    server.createContext("/process", this::process);
+    server.createContext("/stats", this::stats);
+    server.start();
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the port, or -1 if the server is not started
+   */
+  public synchronized int getPort() {
+    return server == null ? -1 : server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server, letting the requests which are being processed finish for up to a second.
+   */
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(1);
+      executor.shutdown();
+      server = null;
+      stopped.countDown();
+    }
+  }
+
+  @Override
+  public void execute() {
+    try {
+      start();
+    } catch (IOException e) {
+      out.println("Unable to start server: " + e.getMessage());
+      return;
+    }
+    out.println("Listening on http://" + address.getHostString() + ":" + getPort());
+    try {
+      stopped.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stop();
+    }
+  }
+
+  /**
+   * Returns an executor which runs every request on a new virtual thread, or a cached thread pool
+   * when the JVM has no virtual threads.
+   */
+  private static ExecutorService requestExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+              .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  private void stats(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!exchange.getRequestMethod().equals("GET")) {
+        sendText(exchange, 405, "Method not allowed");
+        return;
+      }
+      byte[] body = stats.toJson(inFlight.get()).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+    }
+  }
+
+  private void process(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    inFlight.incrementAndGet();
+    int status = 500;
+    try {
+      status = handle(exchange);
+    } catch (RuntimeException e) {
+      sendText(exchange, 500, "Unable to process image: " + e);
+    } finally {
+      stats.record(System.nanoTime() - start, status == 200);
+      inFlight.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  /**
+   * Handles a processing request and returns the status of its response.
+   */
+  private int handle(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equals("POST")) {
+      return sendText(exchange, 405, "Method not allowed");
+    }
+    Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+    String script = parameters.get("script");
+    String output = parameters.getOrDefault("output", "output");
+    String format = parameters.getOrDefault("format", "png").toLowerCase(Locale.ROOT);
+    if (script == null) {
+      return sendText(exchange, 400, "Missing script parameter");
+    }
+    if (!format.equals("ppm") && !ImageIO.getImageWritersByFormatName(format).hasNext()) {
+      return sendText(exchange, 400, "Unsupported output format " + format);
+    }
+    List<String> lines = new ArrayList<>();
+    for (String line : script.split("[\n;]")) {
+      String[] tokens = line.trim().split("\\s+");
+      if (FILE_COMMANDS.contains(tokens[0].toLowerCase(Locale.ROOT))) {
+        return sendText(exchange, 400, "Command not allowed: " + line.trim());
+      }
+      if (!tokens[0].isEmpty()) {
+        lines.add(line.trim());
+      }
+    }
+    long length;
+    try {
+      length = Long.parseLong(exchange.getRequestHeaders().getFirst("Content-Length"));
+    } catch (NumberFormatException e) {
+      return sendText(exchange, 411, "Content-Length is required");
+    }
+    // the body is read into memory, so its memory is reserved before it is read
+    int bodyPermits = permits(length);
+    if (length < 0 || length > Integer.MAX_VALUE - 8 || bodyPermits > totalPermits) {
+      return sendText(exchange, 413, "Image is larger than the memory budget");
+    }
+    if (!reserve(bodyPermits)) {
+      return sendText(exchange, 503, "Memory budget is in use, try again later");
+    }
+    try {
+      byte[] upload = exchange.getRequestBody().readNBytes((int) length);
+      if (upload.length < length) {
+        return sendText(exchange, 400, "Request body is shorter than its Content-Length");
+      }
+      int[] size = readSize(upload);
+      if (size == null) {
+        return sendText(exchange, 415, "Unsupported image format");
+      }
+      // the decoded input, one image per command and the encoded response
+      long estimate = 4L * size[0] * size[1] * (lines.size() + 2) + upload.length;
+      int permits = permits(estimate);
+      if (permits > totalPermits) {
+        return sendText(exchange, 413, "Request needs more memory than the budget");
+      }
+      if (!reserve(permits - bodyPermits)) {
+        return sendText(exchange, 503, "Memory budget is in use, try again later");
+      }
+      try {
+        return run(exchange, upload, lines, output, format);
+      } finally {
+        memory.release(permits - bodyPermits);
+      }
+    } finally {
+      memory.release(bodyPermits);
+    }
+  }
+
+  /**
+   * Returns the number of permits of the memory budget which stand for a number of bytes.
+   */
+  private static int permits(long bytes) {
+    return (int) Math.min(Integer.MAX_VALUE, (Math.max(0, bytes) + 1023) >> 10);
+  }
+
+  /**
+   * Takes permits from the memory budget, waiting while other requests use it, and returns
+   * false if they were not available in time.
+   */
+  private boolean reserve(int permits) {
+    try {
+      return memory.tryAcquire(permits, BUDGET_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private int run(HttpExchange exchange, byte[] upload, List<String> lines, String output,
+                  String format) throws IOException {
+    Image input;
+    try {
+      input = upload[0] == 'P' ? PPMCodec.read(new ByteArrayInputStream(upload))
+              : ImageUtil.readImage(new ByteArrayInputStream(upload));
+    } catch (IOException | RuntimeException e) {
+      return sendText(exchange, 400, "Unable to read image: " + e.getMessage());
+    }
+    if (input == null) {
+      return sendText(exchange, 415, "Unsupported image format");
+    }
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    model.setParallelism(1);
+    // the model lives for a single job, so loaded images are not hashed for a cache
+    model.getResultCache().setCapacity(0);
+    Image result;
+    try {
+      model.loadImage(input, "input");
+      ErrorRecorder recorder = new ErrorRecorder();
+      new ImageProcessingControllerImpl(model, new ByteArrayInputStream(
+              String.join("\n", lines).getBytes(StandardCharsets.UTF_8)), recorder,
+              Set.of(output), 1).execute();
+      if (!recorder.getErrors().isEmpty()) {
+        return sendText(exchange, 400, String.join("\n", recorder.getErrors()));
+      }
+      result = model.saveImage(output);
+    } finally {
+      // shuts down the threads of any parallelism set by the script
+      model.setParallelism(1);
+    }
+    if (result == null) {
+      return sendText(exchange, 400, "No image named " + output);
+    }
+    exchange.getResponseHeaders().set("Content-Type",
+            format.equals("ppm") ? "image/x-portable-pixmap" : "image/" + format);
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream body = exchange.getResponseBody();
+    if (format.equals("ppm")) {
+      PPMCodec.write(body, result, true);
+    } else {
+      ImageUtil.writeImage(format, body, result);
+    }
+    body.flush();
+    return 200;
+  }
+
+  /**
+   * Returns the width and height of an encoded image from its header, without decoding its
+   * pixels, or null if its format is not supported.
+   */
+  private static int[] readSize(byte[] upload) throws IOException {
+    if (upload.length == 0) {
+      return null;
+    }
+    if (upload[0] == 'P') {
+      try {
+        return PPMCodec.readSize(new ByteArrayInputStream(upload));
+      } catch (IOException e) {
+        return null;
+      }
+    }
+    try (ImageInputStream stream = ImageIO.createImageInputStream(
+            new ByteArrayInputStream(upload))) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream);
+        return new int[]{reader.getWidth(0), reader.getHeight(0)};
+      } catch (IOException e) {
+        return null;
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> parameters = new HashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+    for (String pair : query.split("&")) {
+      int index = pair.indexOf('=');
+      String name = index < 0 ? pair : pair.substring(0, index);
+      String value = index < 0 ? "" : pair.substring(index + 1);
+      parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+              URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return parameters;
+  }
+
+  private static int sendText(HttpExchange exchange, int status, String message)
+          throws IOException {
+    byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+    return status;
+  }
+}
@@ -2,19 +2,16 @@ package controller;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
 
 import javax.imageio.ImageIO;
 
-import model.Color;
 import model.Image;
-import model.Pixel;
-import model.RGBImage;
-import model.RGBPixel;
+import model.RasterConverter;
 
 /**
  * This utility class supports I/O operations to load and save image files of different formats.
@@ -33,20 +30,7 @@ public class ImageUtil {
       if (image == null) {
         return null;
       }
-      Pixel[][] listOfPixels = new RGBPixel[image.getHeight()][image.getWidth()];
-      Image finalImage = new RGBImage(image.getWidth(), image.getHeight(), 255,
-              listOfPixels);
-      for (int y = 0; y < image.getHeight(); y++) {
-        for (int x = 0; x < image.getWidth(); x++) {
-          Color rgb = new Color(image.getRGB(x, y));
-          try {
-            listOfPixels[y][x] = new RGBPixel(y, x, rgb.getRed(), rgb.getGreen(), rgb.getBlue());
-          } catch (NullPointerException e) {
-            System.out.println("y" + y + "x" + x);
-          }
-        }
-      }
-      return finalImage;
+      return RasterConverter.fromBufferedImage(image);
     } catch (FileNotFoundException e) {
       System.out.println("File " + filepath + " not found!");
       return null;
@@ -62,81 +46,70 @@ public class ImageUtil {
    * @param imageExtension the format in which image must be saved
    * @param filepath       the filepath where the image file is created
    * @param m              the Image object which is saved
+   * @return true if the image was written, false if the format is not supported or the file
+   *         cannot be written
    */
-  public static void createImage(String imageExtension, String filepath, Image m) {
+  public static boolean createImage(String imageExtension, String filepath, Image m) {
     try {
-      BufferedImage image = new BufferedImage(m.getWidth(), m.getHeight(),
-              BufferedImage.TYPE_INT_RGB);
-      Pixel[][] listOfPixels = m.getPixels();
-      for (int y = 0; y < image.getHeight(); y++) {
-        for (int x = 0; x < image.getWidth(); x++) {
-          Color rgb = new Color(listOfPixels[y][x].getColorComponent().getRedComponent(),
-                  listOfPixels[y][x].getColorComponent().getGreenComponent(),
-                  listOfPixels[y][x].getColorComponent().getBlueComponent());
-          try {
-            image.setRGB(x, y, rgb.getRGB());
-          } catch (NullPointerException e) {
-            System.out.println("y" + y + "x" + x);
-          }
-        }
-      }
-      File myObj = new File(filepath);
-      if (myObj.createNewFile()) {
-        System.out.println("File created: " + myObj.getName());
-      } else {
-        System.out.println("File already exists.");
-      }
-      ImageIO.write(image, imageExtension, new File(filepath));
-      System.out.println("Image saved successfully.");
+      return ImageIO.write(RasterConverter.toBufferedImage(m), imageExtension, new File(filepath));
     } catch (IOException e) {
-      System.out.println("Unable to create file " + filepath);
+      return false;
     }
   }
 
   /**
-   * Reads an image from a PPM file into an Image object.
+   * Reads an image in any format supported by ImageIO from a stream. The stream is not closed.
+   *
+   * @param in the stream which contains the encoded image
+   * @return the Image object after decoding the stream, or null if its format is not supported
+   * @throws IOException if the stream cannot be read or decoded
+   */
+  public static Image readImage(InputStream in) throws IOException {
+    BufferedImage image = ImageIO.read(in);
+    return image == null ? null : RasterConverter.fromBufferedImage(image);
+  }
+
+  /**
+   * Writes an image to a stream in a format supported by ImageIO. The stream is not closed.
+   *
+   * @param imageExtension the format in which the image is written
+   * @param out            the stream where the encoded image is written
+   * @param m              the Image object which is written
+   * @return true if the image was written, false if the format is not supported
+   * @throws IOException if the image cannot be written
+   */
+  public static boolean writeImage(String imageExtension, OutputStream out, Image m)
+          throws IOException {
+    return ImageIO.write(RasterConverter.toBufferedImage(m), imageExtension, out);
+  }
+
+  /**
+   * Reads an image from a plain (P3) or raw (P6) PPM file into an Image object.
    *
    * @param filename the filepath of PPM file
    * @return the Image object after reading the image file
    */
   public static Image readPPM(String filename) {
-    Scanner sc;
-    Image m;
-    Pixel[][] listOfPixels;
-
     try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
+      return PPMCodec.read(filename);
+    } catch (NoSuchFileException e) {
       System.out.println("File " + filename + " not found!");
       return null;
+    } catch (IOException e) {
+      System.out.println("Unable to read file " + filename + ": " + e.getMessage());
+      return null;
     }
-    StringBuilder builder = new StringBuilder();
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    sc = new Scanner(builder.toString());
-
-    String token;
+  }
 
-    token = sc.next();
-    if (!token.equals("P3")) {
-      System.out.println("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-    listOfPixels = new RGBPixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        listOfPixels[i][j] = new RGBPixel(j, i, sc.nextInt(), sc.nextInt(), sc.nextInt());
-      }
-    }
-    m = new RGBImage(width, height, maxValue, listOfPixels);
-    return m;
+  /**
+   * Creates a plain (P3) PPM file from an Image object.
+   *
+   * @param filepath the filepath where the image file is created
+   * @param m        the Image object which is saved
+   * @return true if the image was written, false if the file cannot be written
+   */
+  public static boolean createPPM(String filepath, Image m) {
+    return createPPM(filepath, m, false);
   }
 
   /**
@@ -144,40 +117,15 @@ public class ImageUtil {
    *
    * @param filepath the filepath where the image file is created
    * @param m        the Image object which is saved
+   * @param raw      true to create a raw (P6) file, false to create a plain (P3) file
+   * @return true if the image was written, false if the file cannot be written
    */
-  public static void createPPM(String filepath, Image m) {
-    try {
-      File myObj = new File(filepath);
-      if (myObj.createNewFile()) {
-        System.out.println("File created: " + myObj.getName());
-      } else {
-        System.out.println("File already exists.");
-      }
-    } catch (IOException e) {
-      System.out.println("An error occurred.");
-      e.printStackTrace();
-    }
+  public static boolean createPPM(String filepath, Image m, boolean raw) {
     try {
-      FileWriter myWriter = new FileWriter(filepath, false);
-      myWriter.write("P3\n"
-              + "# Created by GIMP version 2.10.20 PNM plug-in\n");
-      myWriter.write(m.getWidth() + " " + m.getHeight() + "\n" + m.getMaxValueOfColor() + "\n");
-      Pixel[][] listOfPixels = m.getPixels();
-      for (int i = 0; i < m.getHeight(); i++) {
-        for (int j = 0; j < m.getWidth(); j++) {
-          if (listOfPixels[i][j] == null || listOfPixels[i][j].getColorComponent() == null) {
-            return;
-          }
-          myWriter.write(listOfPixels[i][j].getColorComponent().getRedComponent() + "\n"
-                  + listOfPixels[i][j].getColorComponent().getGreenComponent() + "\n"
-                  + listOfPixels[i][j].getColorComponent().getBlueComponent() + "\n");
-        }
-      }
-      myWriter.close();
-      System.out.println("Successfully wrote to the file." + filepath);
+      PPMCodec.write(filepath, m, raw);
+      return true;
     } catch (IOException e) {
-      System.out.println("An error occurred.");
-      e.printStackTrace();
+      return false;
     }
   }
 }
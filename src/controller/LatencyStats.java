@@ -0,0 +1,63 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class collects the latencies of the requests of a server. The totals cover every request,
+ * while the percentiles are computed over a window of the most recent requests.
+ */
+class LatencyStats {
+  private static final int WINDOW = 4096;
+
+  private final long[] recent = new long[WINDOW];
+  private long requests;
+  private long failures;
+  private long totalNanos;
+  private long maxNanos;
+
+  /**
+   * Records the latency of a request.
+   *
+   * @param nanos     the time taken by the request, in nanoseconds.
+   * @param succeeded true if the request succeeded, false otherwise.
+   */
+  synchronized void record(long nanos, boolean succeeded) {
+    recent[(int) (requests % WINDOW)] = nanos;
+    requests++;
+    if (!succeeded) {
+      failures++;
+    }
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  /**
+   * Returns the statistics as a JSON object, with the latencies in milliseconds.
+   *
+   * @param inFlight the number of requests which are being processed.
+   * @return the JSON representation of the statistics
+   */
+  synchronized String toJson(int inFlight) {
+    long[] window = Arrays.copyOf(recent, (int) Math.min(requests, WINDOW));
+    Arrays.sort(window);
+    return String.format(Locale.ROOT, "{\"requests\":%d,\"failures\":%d,\"inFlight\":%d,"
+                    + "\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p90Millis\":%.3f,"
+                    + "\"p99Millis\":%.3f,\"maxMillis\":%.3f}",
+            requests, failures, inFlight, requests == 0 ? 0 : millis(totalNanos / requests),
+            percentile(window, 50), percentile(window, 90), percentile(window, 99),
+            millis(maxNanos));
+  }
+
+  private static double percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+    return millis(sorted[Math.max(0, rank - 1)]);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+}
@@ -0,0 +1,363 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import model.Image;
+import model.MappedRGBImage;
+import model.PackedRGB;
+import model.PackedRGBImage;
+
+/**
+ * This class reads and writes PPM files through a FileChannel, or PPM data through the channel of
+ * a stream. It supports the plain (P3) and the raw (P6) formats, with a maximum color value of up
+ * to 65535.
+ *
+ * <p>Tokens are parsed directly from the bytes of the file, and comments may appear anywhere in
+ * the header. Images with a maximum value above 255 are scaled down to 8 bits per component when
+ * they are read, since the model works with 8-bit components, and images are always written
+ * with 8-bit components and a maximum value of at most 255.
+ *
+ * <p>Raw files with 8-bit components whose pixels would take more than a quarter of the maximum
+ * heap size are not read but mapped into a MappedRGBImage, since their pixels are stored in the
+ * file exactly as in that image.
+ */
+public final class PPMCodec {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAP_FRACTION = 4;
+  private static final String COMMENT = "# Created by GIMP version 2.10.20 PNM plug-in";
+  private static final ThreadLocal<ByteBuffer> WRITE_BUFFER =
+          ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+  private PPMCodec() {
+  }
+
+  /**
+   * Reads an image from a P3 or P6 PPM file.
+   *
+   * @param filename the filepath of PPM file
+   * @return the Image object after reading the image file
+   * @throws java.nio.file.NoSuchFileException if the file does not exist
+   * @throws IOException                       if the file cannot be read or is not a valid PPM
+   *                                           file
+   */
+  public static Image read(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      Input input = new Input(channel);
+      int format = readFormat(input);
+      int width = input.nextInt();
+      int height = input.nextInt();
+      int maxValue = input.nextInt();
+      if (format == '6' && maxValue < 256
+              && 4L * width * height > Runtime.getRuntime().maxMemory() / MAP_FRACTION) {
+        return MappedRGBImage.map(filename, input.offset(), width, height, maxValue);
+      }
+      return read(input, format, width, height, maxValue);
+    }
+  }
+
+  /**
+   * Maps the pixels of a raw (P6) PPM file with a maximum value below 256 into an image, without
+   * reading them. The pixels are read from the file when they are used, so the file must not be
+   * modified while the image is used, and its components are not checked against the maximum
+   * value.
+   *
+   * @param filename the filepath of PPM file
+   * @return the image whose pixels are mapped from the file
+   * @throws java.nio.file.NoSuchFileException if the file does not exist
+   * @throws IOException                       if the file cannot be read, is not a valid P6 file
+   *                                           or has a maximum value above 255
+   */
+  public static Image map(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      Input input = new Input(channel);
+      int format = readFormat(input);
+      int width = input.nextInt();
+      int height = input.nextInt();
+      int maxValue = input.nextInt();
+      if (format != '6' || maxValue > 255) {
+        throw new IOException("Only P6 PPM files with a maximum value up to 255 can be mapped");
+      }
+      return MappedRGBImage.map(filename, input.offset(), width, height, maxValue);
+    }
+  }
+
+  /**
+   * Reads an image from P3 or P6 PPM data. The stream is not closed.
+   *
+   * @param in the stream which contains the PPM data
+   * @return the Image object after reading the data
+   * @throws IOException if the stream cannot be read or does not contain valid PPM data
+   */
+  public static Image read(InputStream in) throws IOException {
+    return read(Channels.newChannel(in));
+  }
+
+  /**
+   * Reads the width and height from the header of P3 or P6 PPM data, without reading its pixels.
+   *
+   * @param in the stream which contains the PPM data
+   * @return the width and the height of the image
+   * @throws IOException if the stream cannot be read or does not begin with a valid PPM header
+   */
+  public static int[] readSize(InputStream in) throws IOException {
+    Input input = new Input(Channels.newChannel(in));
+    readFormat(input);
+    return new int[]{input.nextInt(), input.nextInt()};
+  }
+
+  private static int readFormat(Input input) throws IOException {
+    if (input.read() != 'P') {
+      throw new IOException("Invalid PPM file: file should begin with P3 or P6");
+    }
+    int format = input.read();
+    if (format != '3' && format != '6') {
+      throw new IOException("Invalid PPM file: file should begin with P3 or P6");
+    }
+    return format;
+  }
+
+  private static Image read(ReadableByteChannel channel) throws IOException {
+    Input input = new Input(channel);
+    int format = readFormat(input);
+    int width = input.nextInt();
+    int height = input.nextInt();
+    return read(input, format, width, height, input.nextInt());
+  }
+
+  private static Image read(Input input, int format, int width, int height, int maxValue)
+          throws IOException {
+    if (maxValue > 65535) {
+      throw new IOException("Invalid PPM file: maximum value should not exceed 65535");
+    }
+    int[] data = new int[Math.multiplyExact(width, height)];
+    for (int i = 0; i < data.length; i++) {
+      int r;
+      int g;
+      int b;
+      if (format == '3') {
+        r = input.nextInt();
+        g = input.nextInt();
+        b = input.nextInt();
+      } else if (maxValue < 256) {
+        r = input.nextByte();
+        g = input.nextByte();
+        b = input.nextByte();
+      } else {
+        r = input.nextShort();
+        g = input.nextShort();
+        b = input.nextShort();
+      }
+      if (r > maxValue || g > maxValue || b > maxValue) {
+        throw new IOException("Invalid PPM file: component exceeds maximum value");
+      }
+      if (maxValue > 255) {
+        r = scale(r, maxValue);
+        g = scale(g, maxValue);
+        b = scale(b, maxValue);
+      }
+      data[i] = PackedRGB.pack(r, g, b);
+    }
+    return new PackedRGBImage(width, height, Math.min(maxValue, 255), data);
+  }
+
+  /**
+   * Writes an image to a PPM file, replacing the file if it exists. The image is written to a
+   * temporary file next to it, which is then renamed over it, so an image mapped from the file
+   * it is saved to is still read from the original file while it is written.
+   *
+   * @param filepath the filepath where the image file is created
+   * @param image    the Image object which is saved
+   * @param raw      true to write the raw (P6) format, false to write the plain (P3) format
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(String filepath, Image image, boolean raw) throws IOException {
+    Path path = Paths.get(filepath);
+    // not created with createTempFile, whose permissions would be kept by the file
+    Path temporary = path.resolveSibling("." + path.getFileName() + "."
+            + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.WRITE)) {
+        write(channel, image, raw);
+      }
+      try {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Writes an image as PPM data to a stream. The stream is not closed.
+   *
+   * @param out   the stream where the PPM data is written
+   * @param image the Image object which is written
+   * @param raw   true to write the raw (P6) format, false to write the plain (P3) format
+   * @throws IOException if the data cannot be written
+   */
+  public static void write(OutputStream out, Image image, boolean raw) throws IOException {
+    write(Channels.newChannel(out), image, raw);
+  }
+
+  private static void write(WritableByteChannel channel, Image image, boolean raw)
+          throws IOException {
+    ByteBuffer buffer = WRITE_BUFFER.get();
+    buffer.clear();
+    // the components are 8-bit, so a larger maximum value is written as 255
+    int maxValue = Math.min(image.getMaxValueOfColor(), 255);
+    buffer.put(((raw ? "P6" : "P3") + "\n" + COMMENT + "\n" + image.getWidth() + " "
+            + image.getHeight() + "\n" + maxValue + "\n").getBytes(StandardCharsets.US_ASCII));
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        if (buffer.remaining() < 18) {
+          flush(channel, buffer);
+        }
+        int rgb = image.getRGB(i, j);
+        if (!raw) {
+          putDecimal(buffer, PackedRGB.red(rgb));
+          putDecimal(buffer, PackedRGB.green(rgb));
+          putDecimal(buffer, PackedRGB.blue(rgb));
+        } else {
+          buffer.put((byte) PackedRGB.red(rgb));
+          buffer.put((byte) PackedRGB.green(rgb));
+          buffer.put((byte) PackedRGB.blue(rgb));
+        }
+      }
+    }
+    flush(channel, buffer);
+  }
+
+  private static int scale(int value, int maxValue) {
+    return (value * 255 + maxValue / 2) / maxValue;
+  }
+
+  private static void putDecimal(ByteBuffer buffer, int value) {
+    if (value >= 100) {
+      buffer.put((byte) ('0' + value / 100));
+    }
+    if (value >= 10) {
+      buffer.put((byte) ('0' + value / 10 % 10));
+    }
+    buffer.put((byte) ('0' + value % 10));
+    buffer.put((byte) '\n');
+  }
+
+  private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Buffered reader of the bytes and tokens of a file or stream.
+   */
+  private static final class Input {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private int position;
+    private int limit;
+    private long start;
+
+    Input(ReadableByteChannel channel) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      this.bytes = buffer.array();
+    }
+
+    int read() throws IOException {
+      if (position == limit) {
+        buffer.clear();
+        int count;
+        do {
+          count = channel.read(buffer);
+        }
+        while (count == 0);
+        if (count < 0) {
+          return -1;
+        }
+        start += limit;
+        position = 0;
+        limit = buffer.position();
+      }
+      return bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Returns the position in the file or stream of the next byte to be read.
+     */
+    long offset() {
+      return start + position;
+    }
+
+    int nextByte() throws IOException {
+      int value = read();
+      if (value < 0) {
+        throw new IOException("Invalid PPM file: unexpected end of file");
+      }
+      return value;
+    }
+
+    int nextShort() throws IOException {
+      return (nextByte() << 8) | nextByte();
+    }
+
+    /**
+     * Reads the next decimal token, skipping whitespace and comments before it. The single
+     * character which ends the token is consumed.
+     */
+    int nextInt() throws IOException {
+      int c = read();
+      while (c == '#' || isWhitespace(c)) {
+        if (c == '#') {
+          while (c != '\n' && c != '\r' && c >= 0) {
+            c = read();
+          }
+        }
+        c = read();
+      }
+      if (c < '0' || c > '9') {
+        throw new IOException(c < 0 ? "Invalid PPM file: unexpected end of file"
+                : "Invalid PPM file: expected a number");
+      }
+      int value = 0;
+      while (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if (value > 0xFFFFFF) {
+          throw new IOException("Invalid PPM file: number is too large");
+        }
+        c = read();
+      }
+      if (c >= 0 && !isWhitespace(c)) {
+        throw new IOException("Invalid PPM file: expected whitespace after a number");
+      }
+      return value;
+    }
+
+    private static boolean isWhitespace(int c) {
+      return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * This class plans a whole script before it is run. Every command is parsed into the names of
+ * the images it reads and writes, which form the dependency graph of the script. Going backwards
+ * from the save commands and the images which are kept after the script, the planner drops the
+ * commands whose images are never used, and finds the last command which uses every image so
+ * that the image can be removed from the model right after it.
+ *
+ * <p>Commands which are not image operations, such as parallelism or invalid commands, are kept
+ * in their place so that they have the same effect and report the same errors. The parallelism,
+ * deferred, cache and run commands are barriers, which change how the commands after them run,
+ * and so is the stats command, which reports all the commands before it.
+ */
+final class ScriptPlanner {
+  private static final Set<String> UNARY_COMMANDS = Set.of("horizontal-flip", "vertical-flip",
+          "transpose", "greyscale", "sepia", "blur", "sharpen", "dither");
+  private static final Set<String> BARRIER_COMMANDS = Set.of("parallelism", "deferred", "run",
+          "cache");
+
+  private ScriptPlanner() {
+  }
+
+  /**
+   * A command of a planned script, with the images which can be removed after it.
+   */
+  static final class Step {
+    private final String line;
+    private final String[] tokens;
+    private final List<String> reads;
+    private final List<String> writes;
+    private final boolean sink;
+    private List<String> released = Collections.emptyList();
+
+    private Step(String line, String[] tokens, List<String> reads, List<String> writes,
+                 boolean sink) {
+      this.line = line;
+      this.tokens = tokens;
+      this.reads = reads;
+      this.writes = writes;
+      this.sink = sink;
+    }
+
+    /**
+     * Returns the images read by the command.
+     *
+     * @return the names of the images
+     */
+    List<String> getReads() {
+      return reads;
+    }
+
+    /**
+     * Returns the images written by the command.
+     *
+     * @return the names of the images
+     */
+    List<String> getWrites() {
+      return writes;
+    }
+
+    /**
+     * Returns the file read by a load command or written by a save command.
+     *
+     * @return the path of the file, or null if the command does not access a file
+     */
+    String getFile() {
+      return tokens.length == 3 && (sink || tokens[0].equals("load")) ? tokens[1] : null;
+    }
+
+    /**
+     * Returns whether the command writes a file, which is true for the save commands.
+     *
+     * @return true if the command writes its file, false otherwise
+     */
+    boolean isSink() {
+      return sink;
+    }
+
+    /**
+     * Returns whether the command changes how the commands after it run, so that it must run
+     * after all the commands before it and before all the commands after it.
+     *
+     * @return true if the command is a barrier, false otherwise
+     */
+    boolean isBarrier() {
+      return tokens.length == 2 && BARRIER_COMMANDS.contains(tokens[0].toLowerCase(Locale.ROOT))
+              || tokens.length == 1 && tokens[0].equals("stats");
+    }
+
+    /**
+     * Returns the line of the command.
+     *
+     * @return the line as written in the script
+     */
+    String getLine() {
+      return line;
+    }
+
+    /**
+     * Returns the words of the command.
+     *
+     * @return the words of the line
+     */
+    String[] getTokens() {
+      return tokens;
+    }
+
+    /**
+     * Returns the images which no later command uses, which can be removed after this command.
+     *
+     * @return the names of the images
+     */
+    List<String> getReleased() {
+      return released;
+    }
+  }
+
+  /**
+   * Plans a script. The returned steps are the commands which are needed by the save commands or
+   * by the images to be kept, in their order in the script.
+   *
+   * @param lines the lines of the script.
+   * @param kept  the images which are used after the script, and must be neither dropped nor
+   *              removed.
+   * @return the commands to be run
+   */
+  static List<Step> plan(List<String> lines, Set<String> kept) {
+    List<Step> steps = new ArrayList<>();
+    for (String line : lines) {
+      String[] tokens = Arrays.stream(line.split(" "))
+              .filter(Predicate.not(String::isEmpty))
+              .toArray(String[]::new);
+      if (tokens.length > 0) {
+        steps.add(parse(line, tokens));
+      }
+    }
+    Set<String> live = new HashSet<>(kept);
+    List<Step> planned = new ArrayList<>();
+    for (int i = steps.size() - 1; i >= 0; i--) {
+      Step step = steps.get(i);
+      if (step.writes.isEmpty() && step.reads.isEmpty() && !step.sink) {
+        planned.add(step);
+        continue;
+      }
+      if (!step.sink && Collections.disjoint(step.writes, live)) {
+        continue;
+      }
+      Set<String> released = new LinkedHashSet<>();
+      for (String name : step.reads) {
+        if (!live.contains(name)) {
+          released.add(name);
+        }
+      }
+      for (String name : step.writes) {
+        if (!live.contains(name)) {
+          released.add(name);
+        }
+      }
+      live.removeAll(step.writes);
+      live.addAll(step.reads);
+      step.released = new ArrayList<>(released);
+      planned.add(step);
+    }
+    Collections.reverse(planned);
+    return planned;
+  }
+
+  /**
+   * Parses the images read and written by a command, in the same way as the controller which
+   * runs it.
+   */
+  private static Step parse(String line, String[] tokens) {
+    String command = tokens[0];
+    switch (tokens.length) {
+      case 3:
+        if (command.equals("save") || command.equals("save-raw")) {
+          return new Step(line, tokens, List.of(tokens[2]), List.of(), true);
+        } else if (command.equals("load")) {
+          return new Step(line, tokens, List.of(), List.of(tokens[2]), false);
+        } else if (UNARY_COMMANDS.contains(command)) {
+          return new Step(line, tokens, List.of(tokens[1]), List.of(tokens[2]), false);
+        }
+        break;
+      case 4:
+        command = command.toLowerCase(Locale.ROOT);
+        if (command.equals("brighten") || command.equals("greyscale")
+                || command.equals("ordered-dither") || command.equals("blur")
+                || command.equals("gaussian-blur")) {
+          return new Step(line, tokens, List.of(tokens[2]), List.of(tokens[3]), false);
+        }
+        break;
+      case 5:
+        command = command.toLowerCase(Locale.ROOT);
+        if (command.equals("rgb-split")) {
+          return new Step(line, tokens, List.of(tokens[1]),
+                  List.of(tokens[2], tokens[3], tokens[4]), false);
+        } else if (command.equals("rgb-combine")) {
+          return new Step(line, tokens, List.of(tokens[2], tokens[3], tokens[4]),
+                  List.of(tokens[1]), false);
+        }
+        break;
+      case 7:
+        if (command.equalsIgnoreCase("crop")) {
+          return new Step(line, tokens, List.of(tokens[5]), List.of(tokens[6]), false);
+        }
+        break;
+      default:
+        break;
+    }
+    return new Step(line, tokens, List.of(), List.of(), false);
+  }
+}
@@ -0,0 +1,231 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import view.ImageProcessingTextView;
+
+/**
+ * This class runs the commands of a planned script concurrently when they are independent. A
+ * command waits only for the commands before it which write the images it reads, which read or
+ * write the images it writes, and which write or read the same file, so the branches of a script
+ * which start from the same image run at the same time, and saves overlap with the computation of
+ * other images. Barrier commands wait for all the commands before them.
+ *
+ * <p>The messages of every command are recorded and displayed in the order of the script once the
+ * command and all the commands before it are finished, so the view shows the same messages in the
+ * same order as when the commands run one after the other. An image is removed from the model
+ * only once every command which reads it is finished, and a later command which writes an image
+ * of the same name waits until it is removed.
+ */
+final class ScriptScheduler {
+  private final ImageProcessingTextView view;
+  private final BiConsumer<ScriptPlanner.Step, ImageProcessingTextView> command;
+  private final Consumer<String> release;
+
+  /**
+   * Constructor to initialize the scheduler with the actions which run the commands.
+   *
+   * @param view    the view which displays the messages of the commands.
+   * @param command the action which runs a command and displays its messages on the given view.
+   * @param release the action which removes an image from the model.
+   */
+  ScriptScheduler(ImageProcessingTextView view,
+                  BiConsumer<ScriptPlanner.Step, ImageProcessingTextView> command,
+                  Consumer<String> release) {
+    this.view = view;
+    this.command = command;
+    this.release = release;
+  }
+
+  /**
+   * Runs the commands with the given number of threads. After a parallelism command, the
+   * commands after it run with its number of threads. With a single thread, the commands run one
+   * after the other on the calling thread.
+   *
+   * @param steps   the planned commands.
+   * @param threads the number of commands which run at the same time.
+   */
+  void run(List<ScriptPlanner.Step> steps, int threads) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+    pool.allowCoreThreadTimeOut(true);
+    try {
+      int start = 0;
+      while (start < steps.size()) {
+        int end = start;
+        while (end < steps.size() && !steps.get(end).isBarrier()) {
+          end++;
+        }
+        if (pool.getMaximumPoolSize() == 1) {
+          for (ScriptPlanner.Step step : steps.subList(start, end)) {
+            runInOrder(step);
+          }
+        } else {
+          runConcurrently(steps.subList(start, end), pool);
+        }
+        if (end < steps.size()) {
+          ScriptPlanner.Step barrier = steps.get(end);
+          runInOrder(barrier);
+          resize(pool, barrier);
+        }
+        start = end + 1;
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void runInOrder(ScriptPlanner.Step step) {
+    command.accept(step, view);
+    for (String name : step.getReleased()) {
+      release.accept(name);
+    }
+  }
+
+  /**
+   * Uses the number of threads of a parallelism command for the commands after it.
+   */
+  private static void resize(ThreadPoolExecutor pool, ScriptPlanner.Step barrier) {
+    String[] tokens = barrier.getTokens();
+    if (!tokens[0].equalsIgnoreCase("parallelism")) {
+      return;
+    }
+    int threads;
+    try {
+      threads = Integer.parseInt(tokens[1]);
+    } catch (NumberFormatException e) {
+      return;
+    }
+    if (threads < 1) {
+      return;
+    }
+    if (threads > pool.getMaximumPoolSize()) {
+      pool.setMaximumPoolSize(threads);
+      pool.setCorePoolSize(threads);
+    } else {
+      pool.setCorePoolSize(threads);
+      pool.setMaximumPoolSize(threads);
+    }
+  }
+
+  private void runConcurrently(List<ScriptPlanner.Step> steps, ThreadPoolExecutor pool) {
+    Map<String, CompletableFuture<Void>> writers = new HashMap<>();
+    Map<String, List<CompletableFuture<Void>>> readers = new HashMap<>();
+    List<CompletableFuture<Void>> commands = new ArrayList<>();
+    List<MessageRecorder> recorders = new ArrayList<>();
+    List<CompletableFuture<Void>> releases = new ArrayList<>();
+    for (ScriptPlanner.Step step : steps) {
+      List<String> reads = new ArrayList<>();
+      List<String> writes = new ArrayList<>();
+      for (String name : step.getReads()) {
+        reads.add("image " + name);
+      }
+      for (String name : step.getWrites()) {
+        writes.add("image " + name);
+      }
+      if (step.getFile() != null) {
+        (step.isSink() ? writes : reads).add("file " + step.getFile());
+      }
+      List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+      for (String resource : reads) {
+        dependencies.add(writers.get(resource));
+      }
+      for (String resource : writes) {
+        dependencies.add(writers.get(resource));
+        dependencies.addAll(readers.getOrDefault(resource, List.of()));
+      }
+      dependencies.removeIf(dependency -> dependency == null);
+      MessageRecorder recorder = new MessageRecorder();
+      CompletableFuture<Void> future = CompletableFuture.allOf(
+              dependencies.toArray(new CompletableFuture<?>[0]))
+              .thenRunAsync(() -> command.accept(step, recorder), pool);
+      for (String resource : reads) {
+        readers.computeIfAbsent(resource, key -> new ArrayList<>()).add(future);
+      }
+      for (String resource : writes) {
+        writers.put(resource, future);
+        readers.remove(resource);
+      }
+      for (String name : step.getReleased()) {
+        List<CompletableFuture<Void>> users = new ArrayList<>(
+                readers.getOrDefault("image " + name, List.of()));
+        users.add(future);
+        CompletableFuture<Void> released = CompletableFuture.allOf(
+                users.toArray(new CompletableFuture<?>[0])).thenRun(() -> release.accept(name));
+        // a later command which writes the name must not have its image removed
+        writers.put("image " + name, released);
+        readers.remove("image " + name);
+        releases.add(released);
+      }
+      commands.add(future);
+      recorders.add(recorder);
+    }
+    for (int i = 0; i < commands.size(); i++) {
+      join(commands.get(i));
+      recorders.get(i).replay(view);
+    }
+    for (CompletableFuture<Void> future : releases) {
+      join(future);
+    }
+  }
+
+  /**
+   * Waits for a command, and throws the exception which stopped it as if it ran on this thread.
+   */
+  private static void join(CompletableFuture<Void> future) {
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Text view which records the messages of a command, to display them later in order.
+   */
+  private static class MessageRecorder implements ImageProcessingTextView {
+    private final List<Consumer<ImageProcessingTextView>> messages = new ArrayList<>();
+
+    void replay(ImageProcessingTextView view) {
+      for (Consumer<ImageProcessingTextView> message : messages) {
+        message.accept(view);
+      }
+    }
+
+    @Override
+    public void displayErrorMessage(String command) {
+      messages.add(view -> view.displayErrorMessage(command));
+    }
+
+    @Override
+    public void displayErrorWhileRunningScriptFile(String error, String command) {
+      messages.add(view -> view.displayErrorWhileRunningScriptFile(error, command));
+    }
+
+    @Override
+    public void displaySuccessMessage(String command) {
+      messages.add(view -> view.displaySuccessMessage(command));
+    }
+
+    @Override
+    public void displayStats(String stats) {
+      messages.add(view -> view.displayStats(stats));
+    }
+  }
+}
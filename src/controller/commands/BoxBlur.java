@@ -0,0 +1,38 @@
+package controller.commands;
+
+import java.util.List;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+
+/**
+ * This command class blurs an image with a box of any radius.
+ */
+public class BoxBlur implements ImageCommandController {
+  int radius;
+  String sourceImageName;
+  String destImageName;
+
+  /**
+   * Constructor to initialize the values passed from controller.
+   *
+   * @param radius          the radius of the box.
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   */
+  public BoxBlur(int radius, String sourceImageName, String destImageName) {
+    this.radius = radius;
+    this.sourceImageName = sourceImageName;
+    this.destImageName = destImageName;
+  }
+
+  @Override
+  public List<Image> execute(ImprovedImageProcessing m) {
+    Image blurImage = m.blur(radius, sourceImageName, destImageName);
+    if (blurImage == null) {
+      return null;
+    } else {
+      return List.of(new Image[]{blurImage});
+    }
+  }
+}
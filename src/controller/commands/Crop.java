@@ -0,0 +1,49 @@
+package controller.commands;
+
+import java.util.List;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+
+/**
+ * This command class crops a rectangle of the image to create a new image,
+ * referred to henceforth by the given destination name.
+ */
+public class Crop implements ImageCommandController {
+  int x;
+  int y;
+  int width;
+  int height;
+  String sourceImageName;
+  String destImageName;
+
+  /**
+   * Constructor to initialize the values passed from controller.
+   *
+   * @param x               the column of the top left corner of the rectangle.
+   * @param y               the row of the top left corner of the rectangle.
+   * @param width           the width of the rectangle.
+   * @param height          the height of the rectangle.
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   */
+  public Crop(int x, int y, int width, int height, String sourceImageName,
+              String destImageName) {
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.sourceImageName = sourceImageName;
+    this.destImageName = destImageName;
+  }
+
+  @Override
+  public List<Image> execute(ImprovedImageProcessing m) {
+    Image cropImage = m.crop(x, y, width, height, sourceImageName, destImageName);
+    if (cropImage == null) {
+      return null;
+    } else {
+      return List.of(new Image[]{cropImage});
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package controller.commands;
+
+import java.util.List;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+
+/**
+ * This command class applies a Gaussian blur with the given standard deviation to an image.
+ */
+public class GaussianBlur implements ImageCommandController {
+  double sigma;
+  String sourceImageName;
+  String destImageName;
+
+  /**
+   * Constructor to initialize the values passed from controller.
+   *
+   * @param sigma           the standard deviation of the Gaussian in pixels.
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   */
+  public GaussianBlur(double sigma, String sourceImageName, String destImageName) {
+    this.sigma = sigma;
+    this.sourceImageName = sourceImageName;
+    this.destImageName = destImageName;
+  }
+
+  @Override
+  public List<Image> execute(ImprovedImageProcessing m) {
+    Image blurImage = m.gaussianBlur(sigma, sourceImageName, destImageName);
+    if (blurImage == null) {
+      return null;
+    } else {
+      return List.of(new Image[]{blurImage});
+    }
+  }
+}
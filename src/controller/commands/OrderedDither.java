@@ -0,0 +1,39 @@
+package controller.commands;
+
+import java.util.List;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+
+/**
+ * This command class performs ordered dithering on an image with a Bayer or blue-noise threshold
+ * pattern.
+ */
+public class OrderedDither implements ImageCommandController {
+  String pattern;
+  String sourceImageName;
+  String destImageName;
+
+  /**
+   * Constructor to initialize the values passed from controller.
+   *
+   * @param pattern         the name of the threshold pattern.
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   */
+  public OrderedDither(String pattern, String sourceImageName, String destImageName) {
+    this.pattern = pattern;
+    this.sourceImageName = sourceImageName;
+    this.destImageName = destImageName;
+  }
+
+  @Override
+  public List<Image> execute(ImprovedImageProcessing m) {
+    Image ditherImage = m.orderedDither(pattern, sourceImageName, destImageName);
+    if (ditherImage == null) {
+      return null;
+    } else {
+      return List.of(new Image[]{ditherImage});
+    }
+  }
+}
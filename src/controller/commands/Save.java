@@ -2,6 +2,7 @@ package controller.commands;
 
 import java.util.List;
 
+import controller.AsyncImageWriter;
 import controller.ImageUtil;
 import model.Image;
 import model.ImprovedImageProcessing;
@@ -14,6 +15,8 @@ import model.ImprovedImageProcessing;
 public class Save implements ImageCommandController {
   String imagePath;
   String imageName;
+  boolean raw;
+  AsyncImageWriter writer;
 
   /**
    * Constructor to initialize the values passed from controller.
@@ -22,8 +25,36 @@ public class Save implements ImageCommandController {
    * @param imageName the string which contains source image name.
    */
   public Save(String imagePath, String imageName) {
+    this(imagePath, imageName, false);
+  }
+
+  /**
+   * Constructor to initialize the values passed from controller.
+   *
+   * @param imagePath the string which contains destination ppm image path.
+   * @param imageName the string which contains source image name.
+   * @param raw       true to save PPM images in the raw (P6) format instead of the plain (P3)
+   *                  format.
+   */
+  public Save(String imagePath, String imageName, boolean raw) {
+    this(imagePath, imageName, raw, null);
+  }
+
+  /**
+   * Constructor to initialize the values passed from controller, for a save which is written in
+   * the background by the given writer.
+   *
+   * @param imagePath the string which contains destination ppm image path.
+   * @param imageName the string which contains source image name.
+   * @param raw       true to save PPM images in the raw (P6) format instead of the plain (P3)
+   *                  format.
+   * @param writer    the writer which writes the image, or null to write it immediately.
+   */
+  public Save(String imagePath, String imageName, boolean raw, AsyncImageWriter writer) {
     this.imagePath = imagePath;
     this.imageName = imageName;
+    this.raw = raw;
+    this.writer = writer;
   }
 
   @Override
@@ -32,17 +63,21 @@ public class Save implements ImageCommandController {
     if (image == null) {
       return null;
     }
+    if (writer != null) {
+      return writer.submit(imagePath, image, raw) ? List.of(image) : null;
+    }
     String extension = null;
     int index = imagePath.lastIndexOf('.');
     if (index > 0) {
       extension = imagePath.substring(index + 1);
     }
+    boolean written;
     if (extension.equalsIgnoreCase("PPM")) {
-      ImageUtil.createPPM(imagePath, image);
+      written = ImageUtil.createPPM(imagePath, image, raw);
     } else {
-      ImageUtil.createImage(extension, imagePath, image);
+      written = ImageUtil.createImage(extension, imagePath, image);
     }
-    if (image == null) {
+    if (!written) {
       return null;
     } else {
       return List.of(new Image[]{image});
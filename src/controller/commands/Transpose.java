@@ -0,0 +1,36 @@
+package controller.commands;
+
+import java.util.List;
+
+import model.Image;
+import model.ImprovedImageProcessing;
+
+/**
+ * This command class transposes image to create a new image,
+ * referred to henceforth by the given destination name.
+ */
+public class Transpose implements ImageCommandController {
+  String sourceImageName;
+  String destImageName;
+
+  /**
+   * Constructor to initialize the values passed from controller.
+   *
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   */
+  public Transpose(String sourceImageName, String destImageName) {
+    this.sourceImageName = sourceImageName;
+    this.destImageName = destImageName;
+  }
+
+  @Override
+  public List<Image> execute(ImprovedImageProcessing m) {
+    Image transposeImage = m.transpose(sourceImageName, destImageName);
+    if (transposeImage == null) {
+      return null;
+    } else {
+      return List.of(new Image[]{transposeImage});
+    }
+  }
+}
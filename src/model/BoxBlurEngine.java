@@ -0,0 +1,245 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This class blurs images with box filters of any radius, each pixel becoming the average of the
+ * square of pixels around it. A box filter is applied as a horizontal pass over every row and a
+ * vertical pass over every column, each keeping a running sum of the pixels in its window which
+ * adds the pixel entering the window and subtracts the pixel leaving it, so a pass costs the
+ * same for every radius. Several boxes applied one after the other approximate a Gaussian blur.
+ *
+ * <p>Only the pixels inside the image are averaged, so the edges of the image do not darken as
+ * they do with the black border of ConvolutionEngine, which matters for large radii. Every pass
+ * rounds its averages to the nearest integer, dividing by a multiplication with a fixed-point
+ * reciprocal of the number of pixels averaged.
+ *
+ * <p>The rows are blurred in bands of rows in parallel, then the columns in blocks of adjacent
+ * columns, so that every running sum of a block reads consecutive pixels of the rows.
+ */
+final class BoxBlurEngine {
+  private static final int GAUSSIAN_PASSES = 3;
+  private static final int COLUMNS_PER_BLOCK = 64;
+  private static final int SHIFT = 44;
+
+  private BoxBlurEngine() {
+  }
+
+  /**
+   * Returns the radii of the three boxes whose successive blurs are closest to a Gaussian blur
+   * with the given standard deviation. The boxes have two sizes which differ by 2 pixels, chosen
+   * so that the variance of the three boxes is closest to the variance of the Gaussian.
+   *
+   * @param sigma the standard deviation of the Gaussian, in pixels.
+   * @return the radii of the boxes
+   * @throws IllegalArgumentException if sigma is negative, infinite or not a number
+   */
+  static int[] gaussianRadii(double sigma) {
+    if (!(sigma >= 0 && sigma < Double.POSITIVE_INFINITY)) {
+      throw new IllegalArgumentException("Sigma must be a finite non-negative number");
+    }
+    double variance = 12 * sigma * sigma;
+    long lower = (long) Math.floor(Math.sqrt(variance / GAUSSIAN_PASSES + 1));
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    long lowerCount = Math.round((variance - GAUSSIAN_PASSES * ((double) lower * lower
+            + 4.0 * lower + 3)) / (-4.0 * lower - 4));
+    int[] radii = new int[GAUSSIAN_PASSES];
+    for (int i = 0; i < GAUSSIAN_PASSES; i++) {
+      long radius = i < lowerCount ? (lower - 1) / 2 : (lower + 1) / 2;
+      radii[i] = (int) Math.min(radius, Integer.MAX_VALUE);
+    }
+    return radii;
+  }
+
+  /**
+   * Blurs the image with boxes of the given radii, one after the other.
+   *
+   * @param image    the image to be blurred.
+   * @param radii    the radii of the boxes, each box being 2 * radius + 1 pixels wide.
+   * @param executor the executor which blurs the bands of rows and the blocks of columns.
+   * @param destData the array which receives the packed pixels of the blurred image.
+   * @param scratch  an array of the same size which holds the pixels between passes.
+   * @return the blurred image
+   */
+  static PackedRGBImage blur(Image image, int[] radii, ParallelExecutor executor,
+                             int[] destData, int[] scratch) {
+    PackedRGBImage source = PackedRGBImage.of(image);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] sourceData = source.getData();
+    int[] clamped = clamp(radii, width, height);
+    long[] reciprocals = reciprocals(clamped, width, height);
+    // the columns are blurred back and forth between the two arrays, ending in destData
+    int[] rows = clamped.length % 2 == 0 ? destData : scratch;
+    executor.forEachRowBand(height, width, (rowStart, rowEnd) -> {
+      System.arraycopy(sourceData, rowStart * width, rows, rowStart * width,
+              (rowEnd - rowStart) * width);
+      blurRows(rows, width, rowStart, rowEnd, clamped, reciprocals);
+    });
+    int blocks = (width + COLUMNS_PER_BLOCK - 1) / COLUMNS_PER_BLOCK;
+    // a width of a whole block makes every band of the executor a single block
+    executor.forEachRowBand(blocks, COLUMNS_PER_BLOCK * height, (first, last) -> {
+      for (int block = first; block < last; block++) {
+        blurColumns(rows, rows == scratch ? destData : scratch, width, height,
+                block * COLUMNS_PER_BLOCK, Math.min(width, (block + 1) * COLUMNS_PER_BLOCK),
+                clamped, reciprocals);
+      }
+    });
+    return new PackedRGBImage(width, height, source.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * Limits the radii to the larger side of the image, beyond which a box averages whole rows or
+   * columns anyway.
+   */
+  static int[] clamp(int[] radii, int width, int height) {
+    int[] clamped = new int[radii.length];
+    for (int i = 0; i < radii.length; i++) {
+      if (radii[i] < 0) {
+        throw new IllegalArgumentException("The radius cannot be negative");
+      }
+      clamped[i] = Math.min(radii[i], Math.max(width, height));
+    }
+    return clamped;
+  }
+
+  /**
+   * Returns the fixed-point reciprocals of every number of pixels that the boxes may average,
+   * with which the rounded average of up to 2^18 pixels is exact.
+   */
+  static long[] reciprocals(int[] radii, int width, int height) {
+    int largest = 0;
+    for (int radius : radii) {
+      largest = Math.max(largest, radius);
+    }
+    int counts = (int) Math.min(2L * largest + 1, Math.max(width, height));
+    long[] reciprocals = new long[counts + 1];
+    for (int count = 1; count <= counts; count++) {
+      reciprocals[count] = ((1L << SHIFT) + count - 1) / count;
+    }
+    return reciprocals;
+  }
+
+  /**
+   * Blurs the rows rowStart (inclusive) to rowEnd (exclusive) of the packed pixels in place,
+   * with every box in turn.
+   *
+   * @param pixels      the packed pixels of the image.
+   * @param width       the width of the image.
+   * @param rowStart    the first row to be blurred.
+   * @param rowEnd      the row after the last row to be blurred.
+   * @param radii       the radii of the boxes, limited by clamp().
+   * @param reciprocals the reciprocals of the numbers of pixels averaged.
+   */
+  static void blurRows(int[] pixels, int width, int rowStart, int rowEnd, int[] radii,
+                       long[] reciprocals) {
+    int[][] channels = new int[3][width];
+    int[][] blurred = new int[3][width];
+    for (int y = rowStart; y < rowEnd; y++) {
+      int offset = y * width;
+      for (int x = 0; x < width; x++) {
+        int rgb = pixels[offset + x];
+        channels[0][x] = PackedRGB.red(rgb);
+        channels[1][x] = PackedRGB.green(rgb);
+        channels[2][x] = PackedRGB.blue(rgb);
+      }
+      for (int radius : radii) {
+        for (int c = 0; c < 3; c++) {
+          blurLine(channels[c], blurred[c], width, radius, reciprocals);
+        }
+        int[][] swap = channels;
+        channels = blurred;
+        blurred = swap;
+      }
+      for (int x = 0; x < width; x++) {
+        pixels[offset + x] = PackedRGB.pack(channels[0][x], channels[1][x], channels[2][x]);
+      }
+    }
+  }
+
+  private static void blurLine(int[] values, int[] dest, int length, int radius,
+                               long[] reciprocals) {
+    int sum = 0;
+    for (int i = 0, end = Math.min(radius, length - 1); i <= end; i++) {
+      sum += values[i];
+    }
+    for (int x = 0; x < length; x++) {
+      int count = Math.min(x + radius, length - 1) - Math.max(x - radius, 0) + 1;
+      dest[x] = average(sum, count, reciprocals);
+      if (x + radius + 1 < length) {
+        sum += values[x + radius + 1];
+      }
+      if (x - radius >= 0) {
+        sum -= values[x - radius];
+      }
+    }
+  }
+
+  /**
+   * Blurs the columns columnStart (inclusive) to columnEnd (exclusive) with every box in turn,
+   * moving the pixels of these columns back and forth between the two arrays, starting from the
+   * first array.
+   *
+   * @param pixels      the packed pixels of the image.
+   * @param scratch     an array of the same size as pixels.
+   * @param width       the width of the image.
+   * @param height      the height of the image.
+   * @param columnStart the first column to be blurred.
+   * @param columnEnd   the column after the last column to be blurred.
+   * @param radii       the radii of the boxes, limited by clamp().
+   * @param reciprocals the reciprocals of the numbers of pixels averaged.
+   * @return the array which holds the blurred columns, pixels for an even number of boxes and
+   *         scratch for an odd number
+   */
+  static int[] blurColumns(int[] pixels, int[] scratch, int width, int height, int columnStart,
+                           int columnEnd, int[] radii, long[] reciprocals) {
+    int columns = columnEnd - columnStart;
+    int[] sums = new int[3 * columns];
+    int[] from = pixels;
+    int[] to = scratch;
+    for (int radius : radii) {
+      Arrays.fill(sums, 0);
+      for (int y = 0, end = Math.min(radius, height - 1); y <= end; y++) {
+        accumulate(from, y * width + columnStart, columns, sums, 1);
+      }
+      for (int y = 0; y < height; y++) {
+        int count = Math.min(y + radius, height - 1) - Math.max(y - radius, 0) + 1;
+        int offset = y * width + columnStart;
+        for (int x = 0, s = 0; x < columns; x++, s += 3) {
+          to[offset + x] = PackedRGB.pack(average(sums[s], count, reciprocals),
+                  average(sums[s + 1], count, reciprocals),
+                  average(sums[s + 2], count, reciprocals));
+        }
+        if (y + radius + 1 < height) {
+          accumulate(from, (y + radius + 1) * width + columnStart, columns, sums, 1);
+        }
+        if (y - radius >= 0) {
+          accumulate(from, (y - radius) * width + columnStart, columns, sums, -1);
+        }
+      }
+      int[] swap = from;
+      from = to;
+      to = swap;
+    }
+    return from;
+  }
+
+  private static void accumulate(int[] pixels, int offset, int columns, int[] sums, int sign) {
+    for (int x = 0, s = 0; x < columns; x++, s += 3) {
+      int rgb = pixels[offset + x];
+      sums[s] += sign * PackedRGB.red(rgb);
+      sums[s + 1] += sign * PackedRGB.green(rgb);
+      sums[s + 2] += sign * PackedRGB.blue(rgb);
+    }
+  }
+
+  /**
+   * Returns the sum divided by the count, rounded to the nearest integer, for sums of at most
+   * 255 * count.
+   */
+  private static int average(int sum, int count, long[] reciprocals) {
+    return (int) ((sum + (count >> 1)) * reciprocals[count] >>> SHIFT);
+  }
+}
@@ -0,0 +1,419 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * This class stores images in memory up to a budget of bytes. When the images in memory exceed
+ * the budget, the least recently used images are written to files in a temporary directory and
+ * removed from memory. They are read back the next time they are requested.
+ *
+ * <p>The size of an image is estimated as 4 bytes per pixel of the array which holds its pixels,
+ * which is the size of its pixels in a PackedRGBImage. Images which share an array, such as a
+ * PackedImageView and the image it views or a LazyImage which has not been computed and its
+ * source, count it once, and are not written to disk while another stored image shares it, since
+ * removing one of them would not free the array. The image which was stored or requested last
+ * always stays in memory, even if it is larger than the budget. If an image cannot be written to
+ * its file, it stays in memory. A MappedRGBImage is already backed by a file, so it is neither
+ * counted nor written.
+ *
+ * <p>The files are written and read without holding the lock of the store, so other images can
+ * be stored and requested meanwhile. An image stays in memory and can be requested while it is
+ * written, and a request for an image which is being read waits for it.
+ */
+public class BudgetedImageStore implements ImageStore {
+  private static final int HEADER_SIZE = 12;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final long budget;
+  private final LinkedHashMap<String, Entry> resident;
+  private final Map<String, Path> spilled;
+  private final Map<String, Entry> writing;
+  private final Map<String, CompletableFuture<Image>> reading;
+  private final Map<Object, Integer> holders;
+  private long residentBytes;
+  private long writingBytes;
+  private Path directory;
+  private int spillCount;
+
+  /**
+   * Constructor to initialize an empty store with the given budget.
+   *
+   * @param budget the maximum number of bytes of the images kept in memory.
+   * @throws IllegalArgumentException if budget is negative
+   */
+  public BudgetedImageStore(long budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative");
+    }
+    this.budget = budget;
+    this.resident = new LinkedHashMap<>(16, 0.75f, true);
+    this.spilled = new HashMap<>();
+    this.writing = new HashMap<>();
+    this.reading = new HashMap<>();
+    this.holders = new IdentityHashMap<>();
+  }
+
+  /**
+   * Returns the maximum number of bytes of the images kept in memory.
+   *
+   * @return the budget of the store
+   */
+  public long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Returns the estimated number of bytes of the images which are currently in memory.
+   *
+   * @return the number of bytes in memory
+   */
+  public synchronized long getResidentBytes() {
+    return residentBytes;
+  }
+
+  /**
+   * Returns whether the image with the given name is currently written to disk.
+   *
+   * @param name the name of the image.
+   * @return true if the image is on disk, false otherwise
+   */
+  public synchronized boolean isSpilled(String name) {
+    return spilled.containsKey(name);
+  }
+
+  /**
+   * Returns the image with the given name, reading it back from disk if it was written there.
+   *
+   * @param name the name of the image.
+   * @return the image, or null if there is no image with the given name
+   * @throws IllegalStateException if the image cannot be read back from disk
+   */
+  @Override
+  public Image get(String name) {
+    CompletableFuture<Image> loading;
+    Path file = null;
+    synchronized (this) {
+      Entry entry = resident.get(name);
+      if (entry != null) {
+        return entry.image;
+      }
+      loading = reading.get(name);
+      if (loading == null) {
+        file = spilled.remove(name);
+        if (file == null) {
+          return null;
+        }
+        loading = new CompletableFuture<>();
+        reading.put(name, loading);
+      }
+    }
+    if (file == null) {
+      return await(loading);
+    }
+    Image image;
+    try {
+      image = read(file);
+    } catch (IOException e) {
+      IllegalStateException failure = new IllegalStateException("Unable to read image " + name
+              + " from disk", e);
+      synchronized (this) {
+        reading.remove(name, loading);
+      }
+      loading.completeExceptionally(failure);
+      throw failure;
+    } finally {
+      delete(file);
+    }
+    List<Entry> victims = List.of();
+    synchronized (this) {
+      // the image is not stored again if it was removed or replaced while it was read
+      if (reading.remove(name, loading)) {
+        add(new Entry(name, image));
+        victims = evict(name);
+      }
+    }
+    loading.complete(image);
+    spill(victims);
+    return image;
+  }
+
+  @Override
+  public void put(String name, Image image) {
+    Path file;
+    List<Entry> victims;
+    synchronized (this) {
+      file = detach(name);
+      add(new Entry(name, image));
+      victims = evict(name);
+    }
+    delete(file);
+    spill(victims);
+  }
+
+  @Override
+  public Image remove(String name) {
+    Entry entry;
+    Path file;
+    synchronized (this) {
+      entry = resident.get(name);
+      file = detach(name);
+    }
+    delete(file);
+    return entry == null ? null : entry.image;
+  }
+
+  /**
+   * Removes the image with the given name from memory and from the images being read, and
+   * returns its file if it was written to disk, to be deleted once the lock is released.
+   */
+  private Path detach(String name) {
+    Entry entry = resident.remove(name);
+    if (entry != null) {
+      release(entry);
+    }
+    reading.remove(name);
+    return spilled.remove(name);
+  }
+
+  private void add(Entry entry) {
+    Entry old = resident.put(entry.name, entry);
+    if (old != null) {
+      release(old);
+    }
+    if (entry.pixels != null && holders.merge(entry.pixels, 1, Integer::sum) == 1) {
+      residentBytes += entry.bytes;
+    }
+  }
+
+  private void release(Entry entry) {
+    if (writing.remove(entry.name, entry)) {
+      writingBytes -= entry.bytes;
+    }
+    if (entry.pixels != null && holders.merge(entry.pixels, -1, Integer::sum) == 0) {
+      holders.remove(entry.pixels);
+      residentBytes -= entry.bytes;
+    }
+  }
+
+  /**
+   * Chooses the least recently used images to be written to disk until the images which are not
+   * being written fit in the budget. The chosen images stay in memory until they are written.
+   */
+  private List<Entry> evict(String keep) {
+    List<Entry> victims = new ArrayList<>();
+    for (Entry entry : resident.values()) {
+      if (residentBytes - writingBytes <= budget) {
+        break;
+      }
+      if (entry.name.equals(keep) || entry.pixels == null || writing.containsKey(entry.name)
+              || holders.get(entry.pixels) > 1) {
+        continue;
+      }
+      writing.put(entry.name, entry);
+      writingBytes += entry.bytes;
+      victims.add(entry);
+    }
+    return victims;
+  }
+
+  /**
+   * Writes the chosen images to disk and removes them from memory, unless they were requested
+   * with a new image or removed meanwhile.
+   */
+  private void spill(List<Entry> victims) {
+    for (Entry entry : victims) {
+      Path file;
+      try {
+        file = write(entry.image);
+      } catch (IOException e) {
+        synchronized (this) {
+          if (writing.remove(entry.name, entry)) {
+            writingBytes -= entry.bytes;
+          }
+        }
+        continue;
+      }
+      synchronized (this) {
+        if (writing.get(entry.name) == entry) {
+          resident.remove(entry.name);
+          release(entry);
+          spilled.put(entry.name, file);
+          file = null;
+        }
+      }
+      delete(file);
+    }
+  }
+
+  /**
+   * Waits for an image which another thread reads from disk.
+   */
+  private static Image await(CompletableFuture<Image> loading) {
+    try {
+      return loading.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the array which holds the pixels of an image, or the image itself if it holds its
+   * pixels in another form, or null for a MappedRGBImage.
+   */
+  private static Object pixelsOf(Image image) {
+    if (image instanceof MappedRGBImage) {
+      return null;
+    }
+    if (image instanceof LazyImage) {
+      return pixelsOf(((LazyImage) image).getHeldImage());
+    }
+    if (image instanceof PackedRGBImage) {
+      return ((PackedRGBImage) image).getData();
+    }
+    if (image instanceof PackedImageView) {
+      return ((PackedImageView) image).getData();
+    }
+    return image;
+  }
+
+  /**
+   * An image stored in memory, with the array which holds its pixels and the estimated size of
+   * that array.
+   */
+  private static final class Entry {
+    private final String name;
+    private final Image image;
+    private final Object pixels;
+    private final long bytes;
+
+    Entry(String name, Image image) {
+      this.name = name;
+      this.image = image;
+      this.pixels = pixelsOf(image);
+      if (pixels instanceof int[]) {
+        this.bytes = 4L * ((int[]) pixels).length;
+      } else if (pixels != null) {
+        this.bytes = 4L * image.getWidth() * image.getHeight();
+      } else {
+        this.bytes = 0;
+      }
+    }
+  }
+
+  private synchronized Path newFile() throws IOException {
+    if (directory == null) {
+      directory = Files.createTempDirectory("ime-images");
+      Path created = directory;
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteDirectory(created)));
+    }
+    return directory.resolve("image" + spillCount++ + ".bin");
+  }
+
+  private Path write(Image image) throws IOException {
+    Path file = newFile();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.putInt(image.getWidth()).putInt(image.getHeight())
+              .putInt(image.getMaxValueOfColor());
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          if (buffer.remaining() < 3) {
+            flush(channel, buffer);
+          }
+          int rgb = image.getRGB(i, j);
+          buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+        }
+      }
+      flush(channel, buffer);
+    } catch (IOException e) {
+      delete(file);
+      throw e;
+    }
+    return file;
+  }
+
+  private static Image read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.limit(HEADER_SIZE);
+      fill(channel, buffer, HEADER_SIZE);
+      int width = buffer.getInt();
+      int height = buffer.getInt();
+      int maxValueOfColor = buffer.getInt();
+      int[] data = new int[width * height];
+      buffer.clear().flip();
+      for (int i = 0; i < data.length; i++) {
+        if (buffer.remaining() < 3) {
+          buffer.compact();
+          fill(channel, buffer, 3);
+        }
+        data[i] = PackedRGB.pack(buffer.get() & 0xFF, buffer.get() & 0xFF, buffer.get() & 0xFF);
+      }
+      return new PackedRGBImage(width, height, maxValueOfColor, data);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Reads from the channel until the buffer is full or the file ends, then flips the buffer so
+   * that at least the given number of bytes can be read from it.
+   */
+  private static void fill(FileChannel channel, ByteBuffer buffer, int minimum)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+    if (buffer.remaining() < minimum) {
+      throw new IOException("Unexpected end of file");
+    }
+  }
+
+  private static void delete(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // the file is deleted with its directory when the program exits
+    }
+  }
+
+  private static void deleteDirectory(Path directory) {
+    File[] files = directory.toFile().listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.toFile().delete();
+  }
+}
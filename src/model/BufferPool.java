@@ -0,0 +1,56 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the pixel arrays of images which were removed from a model, so that later
+ * operations which create images of the same size reuse them instead of allocating new arrays.
+ * At most a few arrays are kept, so the pool never holds more than a few images worth of memory.
+ */
+final class BufferPool {
+  private static final int MAX_BUFFERS = 4;
+
+  private final Map<Integer, ArrayDeque<int[]>> buffers = new HashMap<>();
+  private int count;
+
+  /**
+   * Returns an array of the given length, reused from the pool if there is one. The values of a
+   * reused array are not cleared, so every value must be written before it is read.
+   *
+   * @param length the length of the array.
+   * @return the array
+   */
+  synchronized int[] take(int length) {
+    ArrayDeque<int[]> free = buffers.get(length);
+    if (free == null || free.isEmpty()) {
+      return new int[length];
+    }
+    count--;
+    return free.pop();
+  }
+
+  /**
+   * Adds an array which is no longer read by any image to the pool. The array is dropped when
+   * the pool is full.
+   *
+   * @param buffer the array to be reused.
+   */
+  synchronized void give(int[] buffer) {
+    if (count == MAX_BUFFERS) {
+      return;
+    }
+    buffers.computeIfAbsent(buffer.length, length -> new ArrayDeque<>()).push(buffer);
+    count++;
+  }
+
+  /**
+   * Returns the number of arrays in the pool.
+   *
+   * @return the number of arrays which can be reused
+   */
+  synchronized int size() {
+    return count;
+  }
+}
@@ -0,0 +1,60 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * This class represents a point operation which can also be applied to a whole range of an array
+ * of packed pixels at once, so that mapPixels can use the vectorized loops of PixelKernels
+ * instead of calling the operation for every pixel. Both forms give the same colors.
+ */
+final class BulkPointOperation implements IntUnaryOperator {
+  private final IntUnaryOperator operation;
+  private final RangeOperation range;
+
+  /**
+   * The form of the operation which is applied to a range of pixels.
+   */
+  interface RangeOperation {
+    void apply(int[] source, int[] dest, int from, int to);
+  }
+
+  /**
+   * Constructor to initialize both forms of the operation.
+   *
+   * @param operation the operation on a single packed color.
+   * @param range     the operation on the pixels from (inclusive) to to (exclusive).
+   */
+  BulkPointOperation(IntUnaryOperator operation, RangeOperation range) {
+    this.operation = operation;
+    this.range = range;
+  }
+
+  /**
+   * Returns the given operation with its range form when the loops of PixelKernels are
+   * vectorized, or the operation alone otherwise, since the scalar loops are not faster than it.
+   *
+   * @param operation the operation on a single packed color.
+   * @param range     the operation on a range of pixels.
+   * @return the operation to be used
+   */
+  static IntUnaryOperator of(IntUnaryOperator operation, RangeOperation range) {
+    return PixelKernels.isVectorized() ? new BulkPointOperation(operation, range) : operation;
+  }
+
+  /**
+   * Applies the operation to the pixels from (inclusive) to to (exclusive).
+   *
+   * @param source the source pixels.
+   * @param dest   the destination pixels.
+   * @param from   the first pixel.
+   * @param to     the pixel after the last one.
+   */
+  void apply(int[] source, int[] dest, int from, int to) {
+    range.apply(source, dest, from, to);
+  }
+
+  @Override
+  public int applyAsInt(int rgb) {
+    return operation.applyAsInt(rgb);
+  }
+}
@@ -0,0 +1,157 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This class applies a Kernel to an image using integer fixed-point arithmetic on packed pixels.
+ *
+ * <p>Separable kernels are applied as a horizontal pass followed by a vertical pass over a small
+ * ring buffer of filtered rows, other kernels are applied directly. Pixels outside the image are
+ * treated as black; instead of copying the image into a padded array, the range of kernel taps is
+ * clamped to the rows and columns that lie inside the image. Results are rounded to the nearest
+ * integer and clamped to the range 0 to 255.
+ *
+ * <p>Both passes add whole rows of pixels, moved by the column of every kernel tap, to rows of
+ * red, green and blue sums, so that their inner loops can be vectorized by PixelKernels.
+ */
+public final class ConvolutionEngine {
+
+  private ConvolutionEngine() {
+  }
+
+  /**
+   * Applies the kernel to every pixel of the image.
+   *
+   * @param image  the image to be filtered.
+   * @param kernel the kernel to be applied.
+   * @return the filtered image
+   */
+  public static PackedRGBImage apply(Image image, Kernel kernel) {
+    PackedRGBImage source = PackedRGBImage.of(image);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] destData = new int[width * height];
+    apply(source.getData(), width, height, kernel, destData, 0, height);
+    return new PackedRGBImage(width, height, source.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * Applies the kernel to every pixel of the image, processing bands of rows in parallel on the
+   * given executor. Each band reads the rows above and below it that the kernel needs directly
+   * from the source, so the result is identical to the sequential one.
+   *
+   * @param image    the image to be filtered.
+   * @param kernel   the kernel to be applied.
+   * @param executor the executor which processes the bands of rows.
+   * @return the filtered image
+   */
+  public static PackedRGBImage apply(Image image, Kernel kernel, ParallelExecutor executor) {
+    return apply(image, kernel, executor, new int[image.getWidth() * image.getHeight()]);
+  }
+
+  /**
+   * Applies the kernel to every pixel of the image on the given executor, writing the filtered
+   * pixels to the given array instead of a new one.
+   *
+   * @param image    the image to be filtered.
+   * @param kernel   the kernel to be applied.
+   * @param executor the executor which processes the bands of rows.
+   * @param destData the array of the filtered image, whose values are all overwritten.
+   * @return the filtered image
+   */
+  static PackedRGBImage apply(Image image, Kernel kernel, ParallelExecutor executor,
+                              int[] destData) {
+    PackedRGBImage source = PackedRGBImage.of(image);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] sourceData = source.getData();
+    executor.forEachRowBand(height, width, (rowStart, rowEnd) ->
+            apply(sourceData, width, height, kernel, destData, rowStart, rowEnd));
+    return new PackedRGBImage(width, height, source.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * Applies the kernel to the rows rowStart (inclusive) to rowEnd (exclusive) of the source and
+   * writes them to the same rows of the destination. Rows of the source above and below the range
+   * are read as needed by the kernel.
+   *
+   * @param source   the packed pixels of the source image.
+   * @param width    the width of the image.
+   * @param height   the height of the image.
+   * @param kernel   the kernel to be applied.
+   * @param dest     the packed pixels of the destination image.
+   * @param rowStart the first row to be filtered.
+   * @param rowEnd   the row after the last row to be filtered.
+   */
+  static void apply(int[] source, int width, int height, Kernel kernel, int[] dest,
+                    int rowStart, int rowEnd) {
+    if (kernel.isSeparable()) {
+      applySeparable(source, width, height, kernel, dest, rowStart, rowEnd);
+    } else {
+      applyDirect(source, width, height, kernel, dest, rowStart, rowEnd);
+    }
+  }
+
+  private static void applyDirect(int[] source, int width, int height, Kernel kernel,
+                                  int[] dest, int rowStart, int rowEnd) {
+    PixelKernels kernels = PixelKernels.SELECTED;
+    int[] weights = kernel.getWeights();
+    int kernelWidth = kernel.getColumns();
+    int centerRow = kernel.getRows() / 2;
+    int centerColumn = kernelWidth / 2;
+    int[] sums = new int[3 * width];
+    for (int y = rowStart; y < rowEnd; y++) {
+      int top = Math.max(0, y - centerRow);
+      int bottom = Math.min(height - 1, y + centerRow);
+      Arrays.fill(sums, 0);
+      for (int sy = top; sy <= bottom; sy++) {
+        int weightIndex = (sy - y + centerRow) * kernelWidth;
+        for (int kx = 0; kx < kernelWidth; kx++) {
+          int weight = weights[weightIndex + kx];
+          if (weight != 0) {
+            kernels.accumulate(source, sy * width, width, kx - centerColumn, weight, sums, 0);
+          }
+        }
+      }
+      kernels.pack(sums, width, 1, kernel.getShift(), dest, y * width);
+    }
+  }
+
+  private static void applySeparable(int[] source, int width, int height, Kernel kernel,
+                                     int[] dest, int rowStart, int rowEnd) {
+    PixelKernels kernels = PixelKernels.SELECTED;
+    int[] columnFactors = kernel.getColumnFactors();
+    int[] rowFactors = kernel.getRowFactors();
+    int kernelHeight = columnFactors.length;
+    int centerRow = kernelHeight / 2;
+    int rowLength = 3 * width;
+    int[] filteredRows = new int[kernelHeight * rowLength];
+    int[] sums = new int[rowLength];
+    int nextRow = Math.max(0, rowStart - centerRow);
+    for (int y = rowStart; y < rowEnd; y++) {
+      int top = Math.max(0, y - centerRow);
+      int bottom = Math.min(height - 1, y + centerRow);
+      while (nextRow <= bottom) {
+        filterRow(kernels, source, width, rowFactors, nextRow, filteredRows,
+                (nextRow % kernelHeight) * rowLength);
+        nextRow++;
+      }
+      Arrays.fill(sums, 0);
+      for (int sy = top; sy <= bottom; sy++) {
+        kernels.add(filteredRows, (sy % kernelHeight) * rowLength,
+                columnFactors[sy - y + centerRow], sums, rowLength);
+      }
+      kernels.pack(sums, width, kernel.getScale(), kernel.getShift(), dest, y * width);
+    }
+  }
+
+  private static void filterRow(PixelKernels kernels, int[] source, int width, int[] rowFactors,
+                                int row, int[] filteredRows, int offset) {
+    int centerColumn = rowFactors.length / 2;
+    Arrays.fill(filteredRows, offset, offset + 3 * width, 0);
+    for (int kx = 0; kx < rowFactors.length; kx++) {
+      kernels.accumulate(source, row * width, width, kx - centerColumn, rowFactors[kx],
+              filteredRows, offset);
+    }
+  }
+}
@@ -0,0 +1,331 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class dithers images with Floyd-Steinberg error diffusion. The luma of every pixel is set
+ * to black or white, and the difference is added to the pixels to its right and below it, in
+ * 7/16, 3/16, 5/16 and 1/16 parts truncated to integers.
+ *
+ * <p>The errors are accumulated in a single int array. Rows are processed in parallel as a
+ * diagonal wavefront: a row only processes a column when the row above has finished the next two
+ * columns, which are the last ones to add error to it or to the pixels it adds error to. Every
+ * pixel therefore receives its errors in the same order as in a sequential pass, and the result
+ * is identical to it. A row which has to wait spins briefly and then yields its thread, so that
+ * the rows it waits for can progress when there are more threads than processors.
+ *
+ * <p>Ordered dithering compares the luma of every pixel with a threshold from a square tile
+ * repeated over the image, either a Bayer matrix or a blue-noise tile. Every pixel is independent
+ * of the others, so it is much faster than error diffusion and scales with the number of threads,
+ * at the cost of a visible pattern.
+ */
+public final class DitherEngine {
+
+  private static final int PROGRESS_STEP = 64;
+  private static final int SPIN_LIMIT = 100;
+  private static final int BLUE_NOISE_SIZE = 64;
+  private static final double BLUE_NOISE_SIGMA = 1.5;
+  private static final int BLACK = PackedRGB.pack(0, 0, 0);
+  private static final int WHITE = PackedRGB.pack(255, 255, 255);
+
+  private DitherEngine() {
+  }
+
+  /**
+   * Dithers an image on a single thread.
+   *
+   * @param image the source image.
+   * @return the dithered image
+   */
+  public static Image floydSteinberg(Image image) {
+    return floydSteinberg(image, new ParallelExecutor(1));
+  }
+
+  /**
+   * Dithers an image, processing its rows in parallel on the given executor.
+   *
+   * @param image    the source image.
+   * @param executor the executor on which the rows are processed.
+   * @return the dithered image
+   * @throws CancellationException if the monitor of the executor cancels the operation
+   */
+  public static Image floydSteinberg(Image image, ParallelExecutor executor) {
+    Image source = computed(image);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] values = new int[width * height];
+    executor.forEachRowBand(height, width, (rowStart, rowEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+        for (int j = 0; j < width; j++) {
+          values[i * width + j] = LookupTables.luma(source.getRGB(i, j));
+        }
+      }
+    });
+    int[] destData = new int[width * height];
+    AtomicInteger nextRow = new AtomicInteger();
+    AtomicIntegerArray progress = new AtomicIntegerArray(height);
+    OperationMonitor monitor = executor.getMonitor();
+    AtomicInteger rowsDone = new AtomicInteger();
+    executor.forEachThread(height, width, () -> {
+      // a row is only taken when the operation goes on, so that every row taken is finished and
+      // the workers waiting for it are not blocked
+      while (monitor == null || !monitor.isCancelled()) {
+        int row = nextRow.getAndIncrement();
+        if (row >= height) {
+          break;
+        }
+        ditherRow(values, destData, width, height, row, progress);
+        if (monitor != null) {
+          monitor.progress(rowsDone.incrementAndGet(), height);
+        }
+      }
+    });
+    if (rowsDone.get() < height && monitor != null) {
+      throw new CancellationException("Operation cancelled");
+    }
+    return new PackedRGBImage(width, height, source.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * Dithers an image with a repeated threshold tile, processing its rows in parallel on the given
+   * executor. The pattern is one of bayer-2, bayer-4, bayer-8 and bayer-16, for Bayer matrices of
+   * that size, or blue-noise, for a 64x64 blue-noise tile.
+   *
+   * @param image    the source image.
+   * @param pattern  the name of the threshold pattern.
+   * @param executor the executor on which the rows are processed.
+   * @return the dithered image, or null if the pattern is not valid
+   */
+  public static Image ordered(Image image, String pattern, ParallelExecutor executor) {
+    int[] thresholds = thresholds(pattern);
+    if (thresholds == null) {
+      return null;
+    }
+    int shift = Integer.numberOfTrailingZeros(thresholds.length) / 2;
+    int mask = (1 << shift) - 1;
+    Image source = computed(image);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] destData = new int[width * height];
+    executor.forEachRowBand(height, width, (rowStart, rowEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+        int tileRow = (i & mask) << shift;
+        int index = i * width;
+        for (int j = 0; j < width; j++, index++) {
+          destData[index] = LookupTables.luma(source.getRGB(i, j))
+                  >= thresholds[tileRow | (j & mask)] ? WHITE : BLACK;
+        }
+      }
+    });
+    return new PackedRGBImage(width, height, source.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * Computes a deferred image before its pixels are read by several threads.
+   */
+  private static Image computed(Image image) {
+    return image instanceof LazyImage ? ((LazyImage) image).materialize() : image;
+  }
+
+  /**
+   * Returns the thresholds of the tile of an ordered dithering pattern, in row-major order. A
+   * pixel is white when its luma is at least its threshold, so a tile with ranks 0 to n - 1
+   * turns rank r white from luma (r + 1/2) * 255 / n, rounded up.
+   */
+  static int[] thresholds(String pattern) {
+    int[] ranks;
+    switch (pattern) {
+      case "bayer-2":
+        ranks = bayer(1);
+        break;
+      case "bayer-4":
+        ranks = bayer(2);
+        break;
+      case "bayer-8":
+        ranks = bayer(3);
+        break;
+      case "bayer-16":
+        ranks = bayer(4);
+        break;
+      case "blue-noise":
+        ranks = BlueNoise.RANKS;
+        break;
+      default:
+        return null;
+    }
+    int[] thresholds = new int[ranks.length];
+    for (int k = 0; k < ranks.length; k++) {
+      thresholds[k] = ((2 * ranks[k] + 1) * 255 + 2 * ranks.length - 1) / (2 * ranks.length);
+    }
+    return thresholds;
+  }
+
+  /**
+   * Returns the ranks of the Bayer matrix of size 2^order. The lowest bits of the row and column
+   * give the highest bits of the rank, in the pattern 0 2 / 3 1, so consecutive ranks are as far
+   * apart as possible.
+   */
+  static int[] bayer(int order) {
+    int size = 1 << order;
+    int[] ranks = new int[size * size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        int rank = 0;
+        for (int bit = 0; bit < order; bit++) {
+          int x = (j >> bit) & 1;
+          int y = (i >> bit) & 1;
+          rank = (rank << 2) | ((x ^ y) << 1) | y;
+        }
+        ranks[i * size + j] = rank;
+      }
+    }
+    return ranks;
+  }
+
+  private static void ditherRow(int[] values, int[] destData, int width, int height, int row,
+                                AtomicIntegerArray progress) {
+    int available = row == 0 ? width : 0;
+    int index = row * width;
+    for (int j = 0; j < width; j++, index++) {
+      int required = Math.min(width, j + 3);
+      for (int spins = 0; available < required; spins++) {
+        available = progress.get(row - 1);
+        if (available < required) {
+          if (spins < SPIN_LIMIT) {
+            Thread.onSpinWait();
+          } else {
+            Thread.yield();
+          }
+        }
+      }
+      int oldColor = values[index];
+      int newColor = oldColor >= 128 ? 255 : 0;
+      int error = oldColor - newColor;
+      destData[index] = newColor == 255 ? WHITE : BLACK;
+      if (j + 1 < width) {
+        values[index + 1] += error * 7 / 16;
+      }
+      if (row + 1 < height) {
+        if (j > 0) {
+          values[index + width - 1] += error * 3 / 16;
+        }
+        values[index + width] += error * 5 / 16;
+        if (j + 1 < width) {
+          values[index + width + 1] += error / 16;
+        }
+      }
+      if ((j + 1) % PROGRESS_STEP == 0) {
+        progress.set(row, j + 1);
+      }
+    }
+    progress.set(row, width);
+  }
+
+  /**
+   * The ranks of the blue-noise tile, created on first use with the void-and-cluster method. The
+   * tile wraps around its edges, and every set of its lowest ranks is spread evenly over it.
+   */
+  private static final class BlueNoise {
+    private static final int[] RANKS = voidAndCluster(BLUE_NOISE_SIZE, BLUE_NOISE_SIGMA, 1);
+  }
+
+  /**
+   * Returns the ranks of a blue-noise tile of the given size, created with the void-and-cluster
+   * method from a random initial pattern. The energy of a position is the sum of a Gaussian of
+   * the given deviation around the chosen positions, so the tightest cluster and the largest void
+   * are the positions with the highest and lowest energy.
+   */
+  static int[] voidAndCluster(int size, double sigma, long seed) {
+    int area = size * size;
+    double[] kernel = new double[area];
+    for (int dy = 0; dy < size; dy++) {
+      for (int dx = 0; dx < size; dx++) {
+        int y = Math.min(dy, size - dy);
+        int x = Math.min(dx, size - dx);
+        kernel[dy * size + dx] = Math.exp(-(x * x + y * y) / (2 * sigma * sigma));
+      }
+    }
+    boolean[] initial = new boolean[area];
+    double[] energy = new double[area];
+    Random random = new Random(seed);
+    int ones = area / 10;
+    for (int count = 0; count < ones; ) {
+      int k = random.nextInt(area);
+      if (!initial[k]) {
+        initial[k] = true;
+        addEnergy(energy, kernel, size, k, 1);
+        count++;
+      }
+    }
+    while (true) {
+      int cluster = extreme(energy, initial, true, true);
+      initial[cluster] = false;
+      addEnergy(energy, kernel, size, cluster, -1);
+      int largestVoid = extreme(energy, initial, false, false);
+      initial[largestVoid] = true;
+      addEnergy(energy, kernel, size, largestVoid, 1);
+      if (largestVoid == cluster) {
+        break;
+      }
+    }
+    int[] ranks = new int[area];
+    boolean[] pattern = initial.clone();
+    double[] patternEnergy = energy.clone();
+    for (int rank = ones - 1; rank >= 0; rank--) {
+      int cluster = extreme(patternEnergy, pattern, true, true);
+      pattern[cluster] = false;
+      addEnergy(patternEnergy, kernel, size, cluster, -1);
+      ranks[cluster] = rank;
+    }
+    pattern = initial;
+    for (int rank = ones; rank < area / 2; rank++) {
+      int largestVoid = extreme(energy, pattern, false, false);
+      pattern[largestVoid] = true;
+      addEnergy(energy, kernel, size, largestVoid, 1);
+      ranks[largestVoid] = rank;
+    }
+    double[] zeroEnergy = new double[area];
+    for (int k = 0; k < area; k++) {
+      if (!pattern[k]) {
+        addEnergy(zeroEnergy, kernel, size, k, 1);
+      }
+    }
+    for (int rank = area / 2; rank < area; rank++) {
+      int cluster = extreme(zeroEnergy, pattern, false, true);
+      pattern[cluster] = true;
+      addEnergy(zeroEnergy, kernel, size, cluster, -1);
+      ranks[cluster] = rank;
+    }
+    return ranks;
+  }
+
+  /**
+   * Returns the position with the highest or lowest energy among the positions whose value in
+   * the pattern is the given one.
+   */
+  private static int extreme(double[] energy, boolean[] pattern, boolean value, boolean highest) {
+    int best = -1;
+    for (int k = 0; k < energy.length; k++) {
+      if (pattern[k] == value && (best < 0
+              || (highest ? energy[k] > energy[best] : energy[k] < energy[best]))) {
+        best = k;
+      }
+    }
+    return best;
+  }
+
+  private static void addEnergy(double[] energy, double[] kernel, int size, int position,
+                                int sign) {
+    int row = position / size;
+    int column = position % size;
+    for (int i = 0; i < size; i++) {
+      int dy = (i - row + size) % size;
+      for (int j = 0; j < size; j++) {
+        energy[i * size + j] += sign * kernel[dy * size + (j - column + size) % size];
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents the histograms of the red, green, blue, luma and intensity components of
+ * an image, with one count for each value from 0 to 255. Histograms are immutable. The counts are
+ * long values, so that they do not overflow for images larger than 2^31 pixels.
+ *
+ * <p>The five histograms are computed in a single pass over the pixels, in bands of rows on the
+ * executor of the model. Every thread counts the pixels of its bands into its own array, and the
+ * arrays of the threads are added together at the end, so the threads never share a counter.
+ */
+public final class Histogram {
+  private static final int VALUES = 256;
+  private static final int RED = 0;
+  private static final int GREEN = VALUES;
+  private static final int BLUE = 2 * VALUES;
+  private static final int LUMA = 3 * VALUES;
+  private static final int INTENSITY = 4 * VALUES;
+  private static final int COUNTS = 5 * VALUES;
+
+  private final long[] counts;
+
+  private Histogram(long[] counts) {
+    this.counts = counts;
+  }
+
+  /**
+   * Computes the histograms of an image.
+   *
+   * @param image    the image whose pixels are counted.
+   * @param executor the executor which counts the bands of rows of the image.
+   * @return the histograms of the image
+   */
+  static Histogram of(Image image, ParallelExecutor executor) {
+    Image source = image instanceof LazyImage ? ((LazyImage) image).materialize() : image;
+    int width = source.getWidth();
+    List<long[]> partials = new ArrayList<>();
+    ThreadLocal<long[]> partial = ThreadLocal.withInitial(() -> {
+      long[] threadCounts = new long[COUNTS];
+      synchronized (partials) {
+        partials.add(threadCounts);
+      }
+      return threadCounts;
+    });
+    executor.forEachRowBand(source.getHeight(), width, (rowStart, rowEnd) -> {
+      long[] threadCounts = partial.get();
+      if (source instanceof PackedRGBImage) {
+        count(((PackedRGBImage) source).getData(), rowStart * width, rowEnd * width,
+                threadCounts);
+      } else {
+        int[] row = new int[width];
+        for (int i = rowStart; i < rowEnd; i++) {
+          if (source instanceof MappedRGBImage) {
+            ((MappedRGBImage) source).readRow(i, 0, width, row, 0);
+          } else {
+            for (int j = 0; j < width; j++) {
+              row[j] = source.getRGB(i, j);
+            }
+          }
+          count(row, 0, width, threadCounts);
+        }
+      }
+    });
+    long[] total = new long[COUNTS];
+    synchronized (partials) {
+      for (long[] threadCounts : partials) {
+        for (int i = 0; i < COUNTS; i++) {
+          total[i] += threadCounts[i];
+        }
+      }
+    }
+    return new Histogram(total);
+  }
+
+  private static void count(int[] pixels, int from, int to, long[] counts) {
+    for (int i = from; i < to; i++) {
+      int rgb = pixels[i];
+      int red = PackedRGB.red(rgb);
+      int green = PackedRGB.green(rgb);
+      int blue = PackedRGB.blue(rgb);
+      counts[RED + red]++;
+      counts[GREEN + green]++;
+      counts[BLUE + blue]++;
+      counts[LUMA + LookupTables.luma(rgb)]++;
+      counts[INTENSITY + PackedRGB.intensity(red, green, blue)]++;
+    }
+  }
+
+  /**
+   * Returns the number of pixels with each value of the red component.
+   *
+   * @return the 256 counts, by value
+   */
+  public long[] getRed() {
+    return get(RED);
+  }
+
+  /**
+   * Returns the number of pixels with each value of the green component.
+   *
+   * @return the 256 counts, by value
+   */
+  public long[] getGreen() {
+    return get(GREEN);
+  }
+
+  /**
+   * Returns the number of pixels with each value of the blue component.
+   *
+   * @return the 256 counts, by value
+   */
+  public long[] getBlue() {
+    return get(BLUE);
+  }
+
+  /**
+   * Returns the number of pixels with each value of the luma component.
+   *
+   * @return the 256 counts, by value
+   */
+  public long[] getLuma() {
+    return get(LUMA);
+  }
+
+  /**
+   * Returns the number of pixels with each value of the intensity component.
+   *
+   * @return the 256 counts, by value
+   */
+  public long[] getIntensity() {
+    return get(INTENSITY);
+  }
+
+  private long[] get(int offset) {
+    long[] values = new long[VALUES];
+    System.arraycopy(counts, offset, values, 0, VALUES);
+    return values;
+  }
+}
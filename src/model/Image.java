@@ -13,6 +13,16 @@ public interface Image {
    */
   Pixel[][] getPixels();
 
+  /**
+   * Returns the color of the pixel at the given position packed as 0xRRGGBB, without creating
+   * any pixel objects.
+   *
+   * @param row    the row number of the pixel.
+   * @param column the column number of the pixel.
+   * @return the packed color of the pixel
+   */
+  int getRGB(int row, int column);
+
   /**
    * Returns the width of Image.
    *
@@ -31,6 +31,34 @@ public interface ImageProcessingModel {
 
   Image saveImage(String imageName);
 
+  /**
+   * This method removes an image from the model when it is no longer needed. The memory of its
+   * pixels is reused by later operations which create images of the same size, unless another
+   * image such as a flipped or deferred image still reads them.
+   *
+   * @param imageName the string which contains the image name.
+   */
+  void removeImage(String imageName);
+
+  /**
+   * This method returns the histograms of the red, green, blue, luma and intensity components of
+   * an image. The histograms of the images of the model are kept until the image is replaced or
+   * removed, so they are only computed once for every image.
+   *
+   * @param imageName the string which contains the image name.
+   * @return the histograms of the image, or null if there is no image with this name
+   */
+  Histogram histogram(String imageName);
+
+  /**
+   * This method returns the cache which keeps the results of the operations of the model, so
+   * that an operation which is run again with the same parameters on images with the same pixels
+   * returns its previous result. Its capacity can be changed, and it counts its hits and misses.
+   *
+   * @return the cache of results of the model
+   */
+  ResultCache getResultCache();
+
   /**
    * This method creates a greyscale image with the component of the image with the given name,
    * and refer to it henceforth in the program by the given destination name.
@@ -63,6 +91,30 @@ public interface ImageProcessingModel {
    */
   Image verticalFlip(String sourceImageName, String destImageName);
 
+  /**
+   * This method transposes an image to create a new image, whose rows are the columns of the
+   * source image, referred to henceforth by the given destination name.
+   *
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   * @return destination Image.
+   */
+  Image transpose(String sourceImageName, String destImageName);
+
+  /**
+   * This method crops a rectangle of an image to create a new image, referred to henceforth by
+   * the given destination name.
+   *
+   * @param x               the column of the top left corner of the rectangle.
+   * @param y               the row of the top left corner of the rectangle.
+   * @param width           the width of the rectangle.
+   * @param height          the height of the rectangle.
+   * @param sourceImageName the string which contains source image name.
+   * @param destImageName   the string which contains destination image name.
+   * @return destination Image, or null if the rectangle is empty or not inside the image.
+   */
+  Image crop(int x, int y, int width, int height, String sourceImageName, String destImageName);
+
   /**
    * This method brightens the image by the given increment.
    *
@@ -99,4 +151,32 @@ public interface ImageProcessingModel {
    */
   Image rgbCombine(String destImageName, String redImageName, String greenImageName,
                    String blueImageName);
+
+  /**
+   * This method sets the number of threads used to process an image. Images are split into bands
+   * of rows which are processed in parallel, and the results do not depend on the parallelism.
+   *
+   * @param parallelism the number of threads, 1 to process images on a single thread.
+   * @throws IllegalArgumentException if parallelism is less than 1 or more than 32767
+   */
+  void setParallelism(int parallelism);
+
+  /**
+   * This method sets the monitor which follows the progress of the operations of the model and
+   * can cancel them. A cancelled operation throws a java.util.concurrent.CancellationException
+   * and does not store its destination image.
+   *
+   * @param monitor the monitor, or null to remove it.
+   */
+  void setMonitor(OperationMonitor monitor);
+
+  /**
+   * This method sets whether point operations are deferred. In deferred mode, brighten, greyscale,
+   * rgb-split and color transformations return images which are only computed when their pixels
+   * are needed, and a chain of such operations is computed in a single pass over the source image.
+   * The results are the same in both modes.
+   *
+   * @param deferred true to defer point operations, false to compute every image immediately.
+   */
+  void setDeferred(boolean deferred);
 }
@@ -1,133 +1,198 @@
 package model;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 
 /**
  * This class implements all the operations/commands that can applied on image.
  */
 public class ImageProcessingModelImpl implements ImageProcessingModel {
-  protected final Map<String, Image> LIST_OF_IMAGES;
+  protected final ImageStore LIST_OF_IMAGES;
+  protected final ParallelExecutor executor;
+  protected final BufferPool buffers;
+  protected final ResultCache results;
+  private boolean deferred;
+  private final Map<String, CachedHistogram> histograms = new HashMap<>();
 
   /**
    * The Pixel class represents a single pixel in an image.
    * It stores the row and column number of the pixel, as well as the color component of the pixel.
    */
   public ImageProcessingModelImpl() {
-    LIST_OF_IMAGES = new HashMap<>();
+    this(new InMemoryImageStore());
+  }
+
+  /**
+   * Constructor to initialize the model with the given storage for its images. When the store
+   * keeps its images within a budget, the cache of results holds at most an eighth of the
+   * budget, since the results it holds stay in memory after the store writes them to disk.
+   *
+   * @param store the store which holds the images of the model.
+   */
+  public ImageProcessingModelImpl(ImageStore store) {
+    LIST_OF_IMAGES = store;
+    executor = new ParallelExecutor();
+    buffers = new BufferPool();
+    results = new ResultCache();
+    if (store instanceof BudgetedImageStore) {
+      results.setCapacity(Math.min(results.getCapacity(),
+              ((BudgetedImageStore) store).getBudget() / 8));
+    }
+  }
+
+  @Override
+  public void setParallelism(int parallelism) {
+    executor.setParallelism(parallelism);
+  }
+
+  @Override
+  public void setMonitor(OperationMonitor monitor) {
+    executor.setMonitor(monitor);
+  }
+
+  @Override
+  public void setDeferred(boolean deferred) {
+    this.deferred = deferred;
   }
 
   @Override
   public Image loadImage(Image image, String imageName) {
+    results.register(image, executor);
     LIST_OF_IMAGES.put(imageName, image);
     return image;
   }
 
   @Override
   public Image saveImage(String imageName) {
-    return LIST_OF_IMAGES.getOrDefault(imageName, null);
+    Image image = LIST_OF_IMAGES.get(imageName);
+    if (image instanceof PackedRGBImage) {
+      // the caller may keep the image, for example to write it in the background
+      ((PackedRGBImage) image).share();
+    }
+    return image;
+  }
+
+  @Override
+  public ResultCache getResultCache() {
+    return results;
+  }
+
+  @Override
+  public Histogram histogram(String imageName) {
+    Image image = LIST_OF_IMAGES.get(imageName);
+    if (image == null) {
+      return null;
+    }
+    synchronized (histograms) {
+      CachedHistogram cached = histograms.get(imageName);
+      if (cached != null && cached.image.get() == image) {
+        return cached.histogram;
+      }
+    }
+    Histogram histogram = Histogram.of(image, executor);
+    synchronized (histograms) {
+      histograms.put(imageName, new CachedHistogram(image, histogram));
+    }
+    return histogram;
+  }
+
+  @Override
+  public void removeImage(String imageName) {
+    synchronized (histograms) {
+      histograms.remove(imageName);
+    }
+    Image image = LIST_OF_IMAGES.remove(imageName);
+    if (image != null) {
+      results.discard(image);
+    }
+    if (image instanceof PackedRGBImage && !((PackedRGBImage) image).isShared()) {
+      buffers.give(((PackedRGBImage) image).getData());
+    }
   }
 
   @Override
   public Image greyscale(String component, String sourceImageName, String destImageName) {
-    Image sourceImage = LIST_OF_IMAGES.getOrDefault(sourceImageName, null);
+    Image sourceImage = LIST_OF_IMAGES.get(sourceImageName);
     if (sourceImage == null) {
       return null;
     }
-    Image resultImage;
-    switch (component) {
-      case "red-component":
-        resultImage = greyscaleColorHelper(sourceImage, Color::getRedComponent);
-        break;
-      case "green-component":
-        resultImage = greyscaleColorHelper(sourceImage, Color::getGreenComponent);
-        break;
-      case "blue-component":
-        resultImage = greyscaleColorHelper(sourceImage, Color::getBlueComponent);
-        break;
-      case "value-component":
-        resultImage = greyscalePixelHelper(sourceImage, Pixel::getValueComponent);
-        break;
-      case "intensity-component":
-        resultImage = greyscalePixelHelper(sourceImage, Pixel::getIntensityComponent);
-        break;
-      case "luma-component":
-        resultImage = greyscalePixelHelper(sourceImage, Pixel::getLumaComponent);
-        break;
-      default:
-        return null;
+    IntUnaryOperator operation = LookupTables.greyscale(component);
+    if (operation == null) {
+      return null;
     }
+    Image resultImage = memoize("greyscale " + component,
+        () -> mapPixels(sourceImage, operation), sourceImage);
     LIST_OF_IMAGES.put(destImageName, resultImage);
     return resultImage;
   }
 
   @Override
   public Image horizontalFlip(String sourceImageName, String destImageName) {
-    Image image = LIST_OF_IMAGES.getOrDefault(sourceImageName, null);
+    Image image = LIST_OF_IMAGES.get(sourceImageName);
     if (image == null) {
       return null;
     }
-    Pixel[][] listOfPixelsDestImage = new RGBPixel[image.getHeight()][image.getWidth()];
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j <= image.getWidth() / 2; j++) {
-        listOfPixelsDestImage[i][j] = new RGBPixel(i, j, 0, 0,
-                0);
-        listOfPixelsDestImage[i][j] = image.getPixels()[i][image.getWidth() - j - 1];
-        listOfPixelsDestImage[i][image.getWidth() - j - 1] = image.getPixels()[i][j];
-      }
-    }
-    Image destImage = new RGBImage(image.getWidth(), image.getHeight(), image.getMaxValueOfColor(),
-            listOfPixelsDestImage);
+    Image destImage = memoize("horizontal-flip", () -> image instanceof MappedRGBImage
+            ? MappedImageEngine.flipHorizontal(image, executor)
+            : PackedImageView.of(image).flipHorizontal(), image);
     LIST_OF_IMAGES.put(destImageName, destImage);
     return destImage;
   }
 
   @Override
   public Image verticalFlip(String sourceImageName, String destImageName) {
-    Image image = LIST_OF_IMAGES.getOrDefault(sourceImageName, null);
+    Image image = LIST_OF_IMAGES.get(sourceImageName);
     if (image == null) {
       return null;
     }
-    Pixel[][] listOfPixelsDestImage = new RGBPixel[image.getHeight()][image.getWidth()];
-    for (int i = 0; i <= image.getHeight() / 2; i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        listOfPixelsDestImage[i][j] = new RGBPixel(i, j, 0, 0,
-                0);
-        listOfPixelsDestImage[i][j] = image.getPixels()[image.getHeight() - i - 1][j];
-        listOfPixelsDestImage[image.getHeight() - i - 1][j] = image.getPixels()[i][j];
-      }
+    Image destImage = memoize("vertical-flip", () -> image instanceof MappedRGBImage
+            ? MappedImageEngine.flipVertical(image, executor)
+            : PackedImageView.of(image).flipVertical(), image);
+    LIST_OF_IMAGES.put(destImageName, destImage);
+    return destImage;
+  }
+
+  @Override
+  public Image transpose(String sourceImageName, String destImageName) {
+    Image image = LIST_OF_IMAGES.get(sourceImageName);
+    if (image == null) {
+      return null;
     }
-    Image destImage = new RGBImage(image.getWidth(), image.getHeight(), image.getMaxValueOfColor(),
-            listOfPixelsDestImage);
+    Image destImage = memoize("transpose", () -> image instanceof MappedRGBImage
+            ? MappedImageEngine.transpose(image, executor)
+            : PackedImageView.of(image).transpose(), image);
+    LIST_OF_IMAGES.put(destImageName, destImage);
+    return destImage;
+  }
+
+  @Override
+  public Image crop(int x, int y, int width, int height, String sourceImageName,
+                    String destImageName) {
+    Image image = LIST_OF_IMAGES.get(sourceImageName);
+    if (image == null || x < 0 || y < 0 || width < 1 || height < 1
+            || x + width > image.getWidth() || y + height > image.getHeight()) {
+      return null;
+    }
+    Image destImage = memoize("crop " + x + " " + y + " " + width + " " + height,
+        () -> image instanceof MappedRGBImage
+            ? MappedImageEngine.crop(image, y, x, height, width, executor)
+            : PackedImageView.of(image).crop(y, x, height, width), image);
     LIST_OF_IMAGES.put(destImageName, destImage);
     return destImage;
   }
 
   @Override
   public Image brighten(int increment, String sourceImageName, String destImageName) {
-    Image image = LIST_OF_IMAGES.getOrDefault(sourceImageName, null);
+    Image image = LIST_OF_IMAGES.get(sourceImageName);
     if (image == null) {
       return null;
     }
-    Pixel[][] listOfPixelsDestImage = new RGBPixel[image.getHeight()][image.getWidth()];
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        listOfPixelsDestImage[i][j] = new RGBPixel(i, j, 0, 0,
-                0);
-        listOfPixelsDestImage[i][j].getColorComponent().setRedComponent(Math.max(0, (Math.min(
-                image.getPixels()[i][j].getColorComponent().getRedComponent() + increment, 255))));
-        listOfPixelsDestImage[i][j].getColorComponent().setGreenComponent(Math.max(0, (Math.min(
-                image.getPixels()[i][j].getColorComponent().getGreenComponent() + increment,
-                255))));
-        listOfPixelsDestImage[i][j].getColorComponent().setBlueComponent(Math.max(0, (Math.min(
-                image.getPixels()[i][j].getColorComponent().getBlueComponent()
-                        + increment, 255))));
-      }
-    }
-    Image destImage = new RGBImage(image.getWidth(), image.getHeight(), image.getMaxValueOfColor(),
-            listOfPixelsDestImage);
+    Image destImage = memoize("brighten " + increment,
+        () -> mapPixels(image, LookupTables.brighten(increment)), image);
     LIST_OF_IMAGES.put(destImageName, destImage);
     return destImage;
   }
@@ -135,13 +200,17 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
   @Override
   public List<Image> rgbSplit(String sourceImageName, String redImageName, String greenImageName,
                               String blueImageName) {
-    Image image = LIST_OF_IMAGES.getOrDefault(sourceImageName, null);
+    Image image = LIST_OF_IMAGES.get(sourceImageName);
     if (image == null) {
       return null;
     }
-    Image redDestImage = greyscaleColorHelper(image, Color::getRedComponent);
-    Image greenDestImage = greyscaleColorHelper(image, Color::getGreenComponent);
-    Image blueDestImage = greyscaleColorHelper(image, Color::getBlueComponent);
+    // the same results as greyscale on the components, so they share their entries in the cache
+    Image redDestImage = memoize("greyscale red-component",
+        () -> mapPixels(image, LookupTables.greyscale("red-component")), image);
+    Image greenDestImage = memoize("greyscale green-component",
+        () -> mapPixels(image, LookupTables.greyscale("green-component")), image);
+    Image blueDestImage = memoize("greyscale blue-component",
+        () -> mapPixels(image, LookupTables.greyscale("blue-component")), image);
     LIST_OF_IMAGES.put(redImageName, redDestImage);
     LIST_OF_IMAGES.put(greenImageName, greenDestImage);
     LIST_OF_IMAGES.put(blueImageName, blueDestImage);
@@ -151,64 +220,116 @@ public class ImageProcessingModelImpl implements ImageProcessingModel {
   @Override
   public Image rgbCombine(String destImageName, String redImageName, String greenImageName,
                           String blueImageName) {
-    Image redImage = LIST_OF_IMAGES.getOrDefault(redImageName, null);
-    Image greenImage = LIST_OF_IMAGES.getOrDefault(greenImageName, null);
-    Image blueImage = LIST_OF_IMAGES.getOrDefault(blueImageName, null);
+    Image redImage = LIST_OF_IMAGES.get(redImageName);
+    Image greenImage = LIST_OF_IMAGES.get(greenImageName);
+    Image blueImage = LIST_OF_IMAGES.get(blueImageName);
     if (redImage == null || greenImage == null || blueImage == null) {
       return null;
     }
-    Pixel[][] listOfPixelsDestImage = new RGBPixel[redImage.getHeight()][redImage.getWidth()];
-    for (int i = 0; i < redImage.getHeight(); i++) {
-      for (int j = 0; j < redImage.getWidth(); j++) {
-        listOfPixelsDestImage[i][j] = new RGBPixel(i, j, 0, 0,
-                0);
-        listOfPixelsDestImage[i][j].getColorComponent().setRedComponent(redImage.getPixels()[i][j]
-                .getColorComponent().getRedComponent());
-        listOfPixelsDestImage[i][j].getColorComponent().setGreenComponent(greenImage
-                .getPixels()[i][j].getColorComponent().getGreenComponent());
-        listOfPixelsDestImage[i][j].getColorComponent().setBlueComponent(blueImage
-                .getPixels()[i][j].getColorComponent().getBlueComponent());
-      }
+    int width = redImage.getWidth();
+    int height = redImage.getHeight();
+    if (greenImage.getWidth() != width || greenImage.getHeight() != height
+            || blueImage.getWidth() != width || blueImage.getHeight() != height) {
+      return null;
     }
-    Image destImage = new RGBImage(redImage.getWidth(), redImage.getHeight(),
-            redImage.getMaxValueOfColor(), listOfPixelsDestImage);
+    Image destImage = memoize("rgb-combine", () -> combine(redImage, greenImage, blueImage),
+        redImage, greenImage, blueImage);
     LIST_OF_IMAGES.put(destImageName, destImage);
     return destImage;
   }
 
-  private Image greyscalePixelHelper(Image image, Function<Pixel, Integer> getComponent) {
-    Pixel[][] listOfPixelsDestImage = new RGBPixel[image.getHeight()][image.getWidth()];
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        listOfPixelsDestImage[i][j] = new RGBPixel(i, j, 0, 0,
-                0);
-        listOfPixelsDestImage[i][j].getColorComponent().setRedComponent(
-                getComponent.apply(image.getPixels()[i][j]));
-        listOfPixelsDestImage[i][j].getColorComponent().setGreenComponent(
-                getComponent.apply(image.getPixels()[i][j]));
-        listOfPixelsDestImage[i][j].getColorComponent().setBlueComponent(
-                getComponent.apply(image.getPixels()[i][j]));
-      }
+  private Image combine(Image redImage, Image greenImage, Image blueImage) {
+    int width = redImage.getWidth();
+    int height = redImage.getHeight();
+    if (redImage instanceof MappedRGBImage || greenImage instanceof MappedRGBImage
+            || blueImage instanceof MappedRGBImage) {
+      return MappedImageEngine.combine(redImage, greenImage, blueImage, executor);
+    }
+    int[] destData = buffers.take(width * height);
+    if (redImage instanceof PackedRGBImage && greenImage instanceof PackedRGBImage
+            && blueImage instanceof PackedRGBImage) {
+      int[] red = ((PackedRGBImage) redImage).getData();
+      int[] green = ((PackedRGBImage) greenImage).getData();
+      int[] blue = ((PackedRGBImage) blueImage).getData();
+      executor.forEachRowBand(height, width, (rowStart, rowEnd) -> PixelKernels.SELECTED
+              .combine(red, green, blue, destData, rowStart * width, rowEnd * width));
+    } else {
+      executor.forEachRowBand(height, width, (rowStart, rowEnd) -> {
+        for (int i = rowStart; i < rowEnd; i++) {
+          for (int j = 0; j < width; j++) {
+            destData[i * width + j] = PackedRGB.pack(PackedRGB.red(redImage.getRGB(i, j)),
+                    PackedRGB.green(greenImage.getRGB(i, j)),
+                    PackedRGB.blue(blueImage.getRGB(i, j)));
+          }
+        }
+      });
+    }
+    return new PackedRGBImage(width, height, redImage.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * Returns the result of an operation from the cache of results of the model, or computes it
+   * and keeps it in the cache. The operation string must contain every parameter which changes
+   * the result, so that the same string on the same source images always gives the same image.
+   *
+   * @param operation   the operation and its parameters.
+   * @param computation the computation of the result.
+   * @param sources     the source images of the operation.
+   * @return the result of the operation, or null if the computation returns null
+   */
+  protected Image memoize(String operation, Supplier<Image> computation, Image... sources) {
+    return results.get(operation, sources, executor, computation);
+  }
+
+  /**
+   * Creates a new image by applying the given operation to the packed color of every pixel of
+   * the image. The rows of the image are processed in parallel. In deferred mode the new image is
+   * a LazyImage which is computed only when it is needed, fused with the point operations which
+   * are applied to it before that. The operation is applied strip by strip to a MappedRGBImage,
+   * whose result is mapped as well, even in deferred mode.
+   *
+   * @param image     the source image.
+   * @param operation the operation which maps the packed color of a source pixel to the packed
+   *                  color of the destination pixel.
+   * @return the new image
+   */
+  protected Image mapPixels(Image image, IntUnaryOperator operation) {
+    if (image instanceof MappedRGBImage) {
+      return MappedImageEngine.map(image, operation, executor);
+    }
+    if (deferred) {
+      return LazyImage.map(image, operation, executor);
     }
-    return new RGBImage(image.getWidth(), image.getHeight(), image.getMaxValueOfColor(),
-            listOfPixelsDestImage);
-  }
-
-  private Image greyscaleColorHelper(Image image, Function<Color, Integer> getComponent) {
-    Pixel[][] listOfPixelsDestImage = new RGBPixel[image.getHeight()][image.getWidth()];
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        listOfPixelsDestImage[i][j] = new RGBPixel(i, j, 0, 0,
-                0);
-        listOfPixelsDestImage[i][j].getColorComponent().setRedComponent(
-                getComponent.apply(image.getPixels()[i][j].getColorComponent()));
-        listOfPixelsDestImage[i][j].getColorComponent().setGreenComponent(
-                getComponent.apply(image.getPixels()[i][j].getColorComponent()));
-        listOfPixelsDestImage[i][j].getColorComponent().setBlueComponent(
-                getComponent.apply(image.getPixels()[i][j].getColorComponent()));
+    int width = image.getWidth();
+    int[] destData = buffers.take(width * image.getHeight());
+    if (operation instanceof BulkPointOperation && image instanceof PackedRGBImage) {
+      BulkPointOperation bulk = (BulkPointOperation) operation;
+      int[] sourceData = ((PackedRGBImage) image).getData();
+      executor.forEachRowBand(image.getHeight(), width, (rowStart, rowEnd) ->
+              bulk.apply(sourceData, destData, rowStart * width, rowEnd * width));
+      return new PackedRGBImage(width, image.getHeight(), image.getMaxValueOfColor(), destData);
+    }
+    executor.forEachRowBand(image.getHeight(), width, (rowStart, rowEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+        for (int j = 0; j < width; j++) {
+          destData[i * width + j] = operation.applyAsInt(image.getRGB(i, j));
+        }
       }
+    });
+    return new PackedRGBImage(width, image.getHeight(), image.getMaxValueOfColor(), destData);
+  }
+
+  /**
+   * The histogram of the image which had a name when it was computed. The image is only weakly
+   * referenced, so that the cache does not keep images which were replaced.
+   */
+  private static final class CachedHistogram {
+    private final WeakReference<Image> image;
+    private final Histogram histogram;
+
+    CachedHistogram(Image image, Histogram histogram) {
+      this.image = new WeakReference<>(image);
+      this.histogram = histogram;
     }
-    return new RGBImage(image.getWidth(), image.getHeight(), image.getMaxValueOfColor(),
-            listOfPixelsDestImage);
   }
 }
@@ -0,0 +1,31 @@
+package model;
+
+/**
+ * This interface represents the storage of the images of a model, referred to by their names.
+ */
+public interface ImageStore {
+
+  /**
+   * Returns the image with the given name.
+   *
+   * @param name the name of the image.
+   * @return the image, or null if there is no image with the given name
+   */
+  Image get(String name);
+
+  /**
+   * Stores an image under the given name, replacing any image with the same name.
+   *
+   * @param name  the name of the image.
+   * @param image the image to be stored.
+   */
+  void put(String name, Image image);
+
+  /**
+   * Removes the image with the given name, if there is one.
+   *
+   * @param name the name of the image.
+   * @return the removed image if it was kept in memory, or null otherwise
+   */
+  Image remove(String name);
+}
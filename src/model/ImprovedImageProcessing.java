@@ -36,4 +36,38 @@ public interface ImprovedImageProcessing extends ImageProcessingModel {
    */
   Image dither(String sourceImageName, String destImageName);
 
+  /**
+   * This method performs ordered dithering on the image, comparing every pixel with a threshold
+   * from a repeated pattern. The pattern is one of bayer-2, bayer-4, bayer-8, bayer-16 and
+   * blue-noise.
+   *
+   * @param pattern         the name of the threshold pattern
+   * @param sourceImageName the string which contains source image name
+   * @param destImageName   the string which contains destination image name
+   * @return destination Image
+   */
+  Image orderedDither(String pattern, String sourceImageName, String destImageName);
+
+  /**
+   * This method blurs the image by replacing every pixel with the average of the square of
+   * pixels around it, 2 * radius + 1 pixels wide. Its cost does not depend on the radius.
+   *
+   * @param radius          the radius of the square, 0 to keep the image as it is
+   * @param sourceImageName the string which contains source image name
+   * @param destImageName   the string which contains destination image name
+   * @return destination Image, or null if the radius is negative
+   */
+  Image blur(int radius, String sourceImageName, String destImageName);
+
+  /**
+   * This method applies a Gaussian blur to the image, approximated by three successive box blurs
+   * whose sizes give the same variance. Its cost does not depend on sigma.
+   *
+   * @param sigma           the standard deviation of the Gaussian in pixels
+   * @param sourceImageName the string which contains source image name
+   * @param destImageName   the string which contains destination image name
+   * @return destination Image, or null if sigma is negative or infinite
+   */
+  Image gaussianBlur(double sigma, String sourceImageName, String destImageName);
+
 }
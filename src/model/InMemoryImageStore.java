@@ -0,0 +1,33 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class stores all the images in memory, without any limit.
+ */
+public class InMemoryImageStore implements ImageStore {
+  private final Map<String, Image> images;
+
+  /**
+   * Constructor to initialize an empty store.
+   */
+  public InMemoryImageStore() {
+    images = new HashMap<>();
+  }
+
+  @Override
+  public synchronized Image get(String name) {
+    return images.get(name);
+  }
+
+  @Override
+  public synchronized void put(String name, Image image) {
+    images.put(name, image);
+  }
+
+  @Override
+  public synchronized Image remove(String name) {
+    return images.remove(name);
+  }
+}
@@ -0,0 +1,174 @@
+package model;
+
+/**
+ * The Kernel class represents a filter kernel in integer fixed-point form. Every weight is stored
+ * as an integer numerator over a common power-of-two denominator, so a kernel with the weights
+ * 1/16, 1/8 and 1/4 is described by the numerators 1, 2 and 4 and a shift of 4.
+ *
+ * <p>When the kernel is separable, that is when it is the outer product of a column vector and a
+ * row vector, it also stores both factors so that it can be applied as two 1-D passes.
+ */
+public class Kernel {
+
+  private final int rows;
+  private final int columns;
+  private final int[] weights;
+  private final int shift;
+  private int[] columnFactors;
+  private int[] rowFactors;
+  private int scale;
+
+  /**
+   * Constructor to initialize the kernel with the given fixed-point weights.
+   *
+   * @param weights the numerators of the weights, with an odd number of rows and columns.
+   * @param shift   the weights are divided by 2 to the power of shift.
+   * @throws IllegalArgumentException if the kernel is empty, not rectangular, has an even size
+   *                                  or the shift is not between 0 and 30
+   */
+  public Kernel(int[][] weights, int shift) {
+    if (weights.length == 0 || weights.length % 2 == 0 || weights[0].length % 2 == 0) {
+      throw new IllegalArgumentException("Kernel must have an odd number of rows and columns");
+    }
+    if (shift < 0 || shift > 30) {
+      throw new IllegalArgumentException("Kernel shift must be between 0 and 30");
+    }
+    this.rows = weights.length;
+    this.columns = weights[0].length;
+    this.shift = shift;
+    this.weights = new int[rows * columns];
+    for (int i = 0; i < rows; i++) {
+      if (weights[i].length != columns) {
+        throw new IllegalArgumentException("Kernel must be rectangular");
+      }
+      System.arraycopy(weights[i], 0, this.weights, i * columns, columns);
+    }
+    factorize();
+  }
+
+  /**
+   * Returns the number of rows of the kernel.
+   *
+   * @return the number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the number of columns of the kernel.
+   *
+   * @return the number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the numerator of the weight at the given position.
+   *
+   * @param row    the row of the weight.
+   * @param column the column of the weight.
+   * @return the numerator of the weight
+   */
+  public int getWeight(int row, int column) {
+    return weights[row * columns + column];
+  }
+
+  /**
+   * Returns the power of two by which the weights are divided.
+   *
+   * @return the shift of the kernel
+   */
+  public int getShift() {
+    return shift;
+  }
+
+  /**
+   * Returns whether the kernel can be applied as two 1-D passes.
+   *
+   * @return true if the kernel is separable
+   */
+  public boolean isSeparable() {
+    return rowFactors != null;
+  }
+
+  int[] getWeights() {
+    return weights;
+  }
+
+  int[] getColumnFactors() {
+    return columnFactors;
+  }
+
+  int[] getRowFactors() {
+    return rowFactors;
+  }
+
+  int getScale() {
+    return scale;
+  }
+
+  /**
+   * Writes the kernel as scale * columnFactors x rowFactors, with both factors reduced by their
+   * greatest common divisor, when it has rank one.
+   */
+  private void factorize() {
+    int pivot = -1;
+    for (int k = 0; k < weights.length; k++) {
+      if (weights[k] != 0) {
+        pivot = k;
+        break;
+      }
+    }
+    if (pivot < 0) {
+      return;
+    }
+    int pivotRow = pivot / columns;
+    int pivotColumn = pivot % columns;
+    int[] column = new int[rows];
+    int[] row = new int[columns];
+    for (int i = 0; i < rows; i++) {
+      column[i] = weights[i * columns + pivotColumn];
+    }
+    for (int j = 0; j < columns; j++) {
+      row[j] = weights[pivotRow * columns + j];
+    }
+    reduce(column);
+    reduce(row);
+    int product = column[pivotRow] * row[pivotColumn];
+    if (weights[pivot] % product != 0) {
+      return;
+    }
+    int k = weights[pivot] / product;
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        if ((long) k * column[i] * row[j] != weights[i * columns + j]) {
+          return;
+        }
+      }
+    }
+    this.columnFactors = column;
+    this.rowFactors = row;
+    this.scale = k;
+  }
+
+  private static void reduce(int[] values) {
+    int gcd = 0;
+    for (int value : values) {
+      gcd = gcd(gcd, Math.abs(value));
+    }
+    for (int i = 0; i < values.length; i++) {
+      values[i] /= gcd;
+    }
+  }
+
+  private static int gcd(int a, int b) {
+    while (b != 0) {
+      int t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+}
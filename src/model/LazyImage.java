@@ -0,0 +1,140 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The LazyImage class represents an image which is the result of a per-pixel operation on another
+ * image and which is only computed when its pixels are needed.
+ *
+ * <p>When a point operation is applied to a LazyImage which has not been computed yet, the two
+ * operations are composed instead of computing the intermediate image. A chain of point
+ * operations such as brighten, greyscale and sepia is therefore computed in a single pass over
+ * the original image, when the result is saved or displayed. The dimensions of the image are
+ * known without computing it.
+ */
+public final class LazyImage implements Image {
+
+  private final int width;
+  private final int height;
+  private final int maxValueOfColor;
+  private final ParallelExecutor executor;
+  private Image source;
+  private IntUnaryOperator operation;
+  private volatile PackedRGBImage result;
+
+  private LazyImage(Image source, IntUnaryOperator operation, ParallelExecutor executor) {
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+    this.maxValueOfColor = source.getMaxValueOfColor();
+    this.source = source;
+    this.operation = operation;
+    this.executor = executor;
+    if (source instanceof PackedRGBImage) {
+      ((PackedRGBImage) source).share();
+    }
+  }
+
+  /**
+   * Creates an image which applies the operation to every pixel of the given image when it is
+   * needed. If the given image is a LazyImage which has not been computed yet, the operation is
+   * composed with its operation so that both are applied in the same pass.
+   *
+   * @param image     the source image.
+   * @param operation the operation which maps the packed color of a source pixel to the packed
+   *                  color of the destination pixel.
+   * @param executor  the executor which computes the image.
+   * @return the lazy image
+   */
+  static LazyImage map(Image image, IntUnaryOperator operation, ParallelExecutor executor) {
+    if (image instanceof LazyImage) {
+      LazyImage lazy = (LazyImage) image;
+      synchronized (lazy) {
+        if (lazy.result == null) {
+          return new LazyImage(lazy.source, lazy.operation.andThen(operation), executor);
+        }
+      }
+      return new LazyImage(lazy.result, operation, executor);
+    }
+    return new LazyImage(image, operation, executor);
+  }
+
+  /**
+   * Returns whether the pixels of this image have been computed.
+   *
+   * @return true if the image has been computed, false otherwise
+   */
+  public boolean isMaterialized() {
+    return result != null;
+  }
+
+  /**
+   * Computes the pixels of this image if they have not been computed yet. The source image is
+   * released afterwards.
+   *
+   * @return the computed image
+   */
+  public PackedRGBImage materialize() {
+    PackedRGBImage image = result;
+    if (image == null) {
+      synchronized (this) {
+        image = result;
+        if (image == null) {
+          Image sourceImage = source;
+          IntUnaryOperator op = operation;
+          int[] destData = new int[width * height];
+          executor.forEachRowBand(height, width, (rowStart, rowEnd) -> {
+            for (int i = rowStart; i < rowEnd; i++) {
+              for (int j = 0; j < width; j++) {
+                destData[i * width + j] = op.applyAsInt(sourceImage.getRGB(i, j));
+              }
+            }
+          });
+          image = new PackedRGBImage(width, height, maxValueOfColor, destData);
+          result = image;
+          source = null;
+          operation = null;
+        }
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Returns the image whose pixels this image keeps in memory, which is the computed image once
+   * it has been computed and the source image before.
+   *
+   * @return the computed image or the source image
+   */
+  Image getHeldImage() {
+    Image image = result;
+    if (image == null) {
+      image = source;
+    }
+    return image != null ? image : result;
+  }
+
+  @Override
+  public Pixel[][] getPixels() {
+    return materialize().getPixels();
+  }
+
+  @Override
+  public int getRGB(int row, int column) {
+    return materialize().getRGB(row, column);
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getMaxValueOfColor() {
+    return maxValueOfColor;
+  }
+}
@@ -0,0 +1,232 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * This utility class creates point operations which are computed with lookup tables. Every
+ * operation maps a packed 0xRRGGBB color to a packed color, so it can be applied to an image with
+ * mapPixels and composed with other point operations.
+ *
+ * <p>Operations which transform every channel independently, such as brighten, gamma or levels,
+ * use a 256-entry table per channel, so a pixel is computed with three array loads. Linear
+ * transformations such as luma and sepia use tables of the partial products of every matrix
+ * coefficient with the 256 possible component values, in 16-bit fixed point, so a channel is
+ * computed with three loads and two integer additions. When the fixed-point sum is too close to
+ * the next integer for its error to be ruled out, the channel is computed directly with doubles,
+ * so the results are always identical to the direct computation.
+ *
+ * <p>When the loops of PixelKernels are vectorized, brighten, matrix and the red, green and blue
+ * greyscale operations are applied to whole rows of packed pixels with the Vector API instead of
+ * the tables, with identical results.
+ *
+ * <p>New tone operations can be created with {@link #channels(IntUnaryOperator)} and
+ * {@link #matrix(double[][], boolean)}.
+ */
+public final class LookupTables {
+
+  private static final int SHIFT = 16;
+  private static final int ONE = 1 << SHIFT;
+  private static final int TOLERANCE = 8;
+  private static final int[] GREY = new int[256];
+  private static final int[] INTENSITY = new int[3 * 255 + 1];
+
+  static {
+    for (int i = 0; i < GREY.length; i++) {
+      GREY[i] = PackedRGB.pack(i, i, i);
+    }
+    for (int i = 0; i < INTENSITY.length; i++) {
+      INTENSITY[i] = GREY[i / 3];
+    }
+  }
+
+  private static final IntUnaryOperator LUMA = matrix(new double[][]{
+      {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}}, true);
+
+  private LookupTables() {
+  }
+
+  /**
+   * Returns an operation which applies the given function to every channel of a color. The
+   * results of the function are clamped between 0 and 255.
+   *
+   * @param function the function which maps a component value between 0 and 255 to a new value.
+   * @return the point operation
+   */
+  public static IntUnaryOperator channels(IntUnaryOperator function) {
+    return channels(function, function, function);
+  }
+
+  /**
+   * Returns an operation which applies a separate function to each channel of a color. The
+   * results of the functions are clamped between 0 and 255.
+   *
+   * @param red   the function which maps the red component.
+   * @param green the function which maps the green component.
+   * @param blue  the function which maps the blue component.
+   * @return the point operation
+   */
+  public static IntUnaryOperator channels(IntUnaryOperator red, IntUnaryOperator green,
+                                          IntUnaryOperator blue) {
+    int[] redTable = new int[256];
+    int[] greenTable = new int[256];
+    int[] blueTable = new int[256];
+    for (int i = 0; i < 256; i++) {
+      redTable[i] = PackedRGB.clamp(red.applyAsInt(i)) << 16;
+      greenTable[i] = PackedRGB.clamp(green.applyAsInt(i)) << 8;
+      blueTable[i] = PackedRGB.clamp(blue.applyAsInt(i));
+    }
+    return rgb -> redTable[(rgb >> 16) & 0xFF] | greenTable[(rgb >> 8) & 0xFF]
+            | blueTable[rgb & 0xFF];
+  }
+
+  /**
+   * Returns an operation which adds the given increment to every channel of a color.
+   *
+   * @param increment the value added to every component, negative to darken.
+   * @return the point operation
+   */
+  public static IntUnaryOperator brighten(int increment) {
+    return BulkPointOperation.of(channels(value -> value + increment), (source, dest, from, to) ->
+            PixelKernels.SELECTED.brighten(source, dest, from, to, increment));
+  }
+
+  /**
+   * Returns an operation which applies a gamma correction to every channel of a color.
+   *
+   * @param gamma the gamma of the correction, greater than 1 to brighten the mid-tones.
+   * @return the point operation
+   * @throws IllegalArgumentException if gamma is not positive
+   */
+  public static IntUnaryOperator gamma(double gamma) {
+    if (!(gamma > 0)) {
+      throw new IllegalArgumentException("Gamma must be positive");
+    }
+    return channels(value -> (int) Math.round(255 * Math.pow(value / 255.0, 1 / gamma)));
+  }
+
+  /**
+   * Returns an operation which stretches the components between the given black and white points
+   * to the full range of 0 to 255.
+   *
+   * @param black the component value which is mapped to 0.
+   * @param white the component value which is mapped to 255.
+   * @return the point operation
+   * @throws IllegalArgumentException if the points are not between 0 and 255 or black is not
+   *                                  less than white
+   */
+  public static IntUnaryOperator levels(int black, int white) {
+    if (black < 0 || white > 255 || black >= white) {
+      throw new IllegalArgumentException("Black point must be less than white point");
+    }
+    return channels(value -> (int) Math.round((value - black) * 255.0 / (white - black)));
+  }
+
+  /**
+   * Returns an operation which multiplies the components of a color by the given 3x3 matrix. The
+   * resulting components are rounded to the nearest integer or truncated, and then clamped
+   * between 0 and 255.
+   *
+   * @param matrix the matrix whose rows compute the red, green and blue components.
+   * @param round  true to round the components, false to truncate them.
+   * @return the point operation
+   * @throws IllegalArgumentException if the absolute values of the coefficients of a row add up
+   *                                  to 64 or more
+   */
+  public static IntUnaryOperator matrix(double[][] matrix, boolean round) {
+    double[][] rows = new double[3][];
+    int[] table = new int[9 * 256];
+    for (int row = 0; row < 3; row++) {
+      rows[row] = matrix[row].clone();
+      if (Math.abs(rows[row][0]) + Math.abs(rows[row][1]) + Math.abs(rows[row][2]) >= 64) {
+        throw new IllegalArgumentException("Matrix coefficients are too large");
+      }
+      for (int column = 0; column < 3; column++) {
+        for (int i = 0; i < 256; i++) {
+          table[((row * 3) + column) * 256 + i] = (int) Math.round(rows[row][column] * i * ONE)
+                  + (round && column == 0 ? ONE / 2 : 0);
+        }
+      }
+    }
+    IntUnaryOperator operation;
+    if (!sameRows(rows)) {
+      operation = rgb -> {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (component(table, 0, rows[0], r, g, b, round) << 16)
+                | (component(table, 3 * 256, rows[1], r, g, b, round) << 8)
+                | component(table, 6 * 256, rows[2], r, g, b, round);
+      };
+    } else {
+      operation = rgb -> GREY[component(table, 0, rows[0], (rgb >> 16) & 0xFF,
+              (rgb >> 8) & 0xFF, rgb & 0xFF, round)];
+    }
+    double[] coefficients = new double[9];
+    for (int row = 0; row < 3; row++) {
+      System.arraycopy(rows[row], 0, coefficients, row * 3, 3);
+    }
+    return BulkPointOperation.of(operation, (source, dest, from, to) ->
+            PixelKernels.SELECTED.matrix(coefficients, round, source, dest, from, to));
+  }
+
+  /**
+   * Returns an operation which converts a color to the greyscale color of one of its components.
+   *
+   * @param component the component, one of red-component, green-component, blue-component,
+   *                  value-component, intensity-component or luma-component.
+   * @return the point operation, or null if the component is not valid
+   */
+  public static IntUnaryOperator greyscale(String component) {
+    switch (component) {
+      case "red-component":
+        return channel(16);
+      case "green-component":
+        return channel(8);
+      case "blue-component":
+        return channel(0);
+      case "value-component":
+        return rgb -> GREY[Math.max((rgb >> 16) & 0xFF, Math.max((rgb >> 8) & 0xFF, rgb & 0xFF))];
+      case "intensity-component":
+        return rgb -> INTENSITY[((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)];
+      case "luma-component":
+        return LUMA;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the luma of the given color, rounded to the nearest integer.
+   *
+   * @param rgb the packed color.
+   * @return the luma of the color, between 0 and 255
+   */
+  static int luma(int rgb) {
+    return LUMA.applyAsInt(rgb) & 0xFF;
+  }
+
+  private static IntUnaryOperator channel(int shift) {
+    return BulkPointOperation.of(rgb -> GREY[(rgb >> shift) & 0xFF], (source, dest, from, to) ->
+            PixelKernels.SELECTED.channel(shift, source, dest, from, to));
+  }
+
+  private static boolean sameRows(double[][] matrix) {
+    for (int column = 0; column < 3; column++) {
+      if (matrix[0][column] != matrix[1][column] || matrix[0][column] != matrix[2][column]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int component(int[] table, int offset, double[] row, int r, int g, int b,
+                               boolean round) {
+    int sum = table[offset + r] + table[offset + 256 + g] + table[offset + 512 + b];
+    int fraction = sum & (ONE - 1);
+    if (fraction < TOLERANCE || fraction > ONE - TOLERANCE) {
+      double exact = (row[0] * r) + (row[1] * g) + (row[2] * b);
+      return PackedRGB.clamp(round ? (int) Math.round(exact) : (int) exact);
+    }
+    return PackedRGB.clamp(sum >> SHIFT);
+  }
+}
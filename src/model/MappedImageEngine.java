@@ -0,0 +1,302 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * This class applies the operations of the model to images which are too large for the heap,
+ * creating MappedRGBImage results. The images are processed in strips of whole rows, which are
+ * read from the source into small arrays of packed pixels, transformed with the same code as
+ * in-memory images and written to the result, so only a few strips per thread are on the heap
+ * at any time. Strips are processed in parallel on the executor.
+ *
+ * <p>Filtering reads, with every strip, the rows above and below it which the kernel needs, so
+ * the results are identical to filtering the whole image at once. Transposing reads a range of
+ * columns of every row of the source for each strip of the result, and box blurs read strips of
+ * whole columns of their blurred rows.
+ */
+final class MappedImageEngine {
+  private static final int STRIP_PIXELS = 1 << 20;
+  private static final int TRANSPOSE_PIXELS = 1 << 22;
+
+  private MappedImageEngine() {
+  }
+
+  /**
+   * Applies a point operation to every pixel of the image.
+   *
+   * @param image     the source image.
+   * @param operation the operation which maps the packed color of a source pixel to the packed
+   *                  color of the destination pixel.
+   * @param executor  the executor which processes the strips.
+   * @return the new image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage map(Image image, IntUnaryOperator operation, ParallelExecutor executor) {
+    int width = image.getWidth();
+    MappedRGBImage dest = create(width, image.getHeight(), image.getMaxValueOfColor());
+    forEachStrip(image.getHeight(), width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int[] pixels = new int[(rowEnd - rowStart) * width];
+      for (int y = rowStart; y < rowEnd; y++) {
+        readRow(image, y, 0, width, pixels, (y - rowStart) * width);
+      }
+      if (operation instanceof BulkPointOperation) {
+        ((BulkPointOperation) operation).apply(pixels, pixels, 0, pixels.length);
+      } else {
+        for (int i = 0; i < pixels.length; i++) {
+          pixels[i] = operation.applyAsInt(pixels[i]);
+        }
+      }
+      for (int y = rowStart; y < rowEnd; y++) {
+        dest.writeRow(y, pixels, (y - rowStart) * width);
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Flips the image horizontally.
+   *
+   * @param image    the source image.
+   * @param executor the executor which processes the strips.
+   * @return the new image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage flipHorizontal(Image image, ParallelExecutor executor) {
+    int width = image.getWidth();
+    MappedRGBImage dest = create(width, image.getHeight(), image.getMaxValueOfColor());
+    forEachStrip(image.getHeight(), width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int[] row = new int[width];
+      for (int y = rowStart; y < rowEnd; y++) {
+        readRow(image, y, 0, width, row, 0);
+        for (int i = 0, j = width - 1; i < j; i++, j--) {
+          int rgb = row[i];
+          row[i] = row[j];
+          row[j] = rgb;
+        }
+        dest.writeRow(y, row, 0);
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Flips the image vertically.
+   *
+   * @param image    the source image.
+   * @param executor the executor which processes the strips.
+   * @return the new image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage flipVertical(Image image, ParallelExecutor executor) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    MappedRGBImage dest = create(width, height, image.getMaxValueOfColor());
+    forEachStrip(height, width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int[] row = new int[width];
+      for (int y = rowStart; y < rowEnd; y++) {
+        readRow(image, height - 1 - y, 0, width, row, 0);
+        dest.writeRow(y, row, 0);
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Transposes the image, so that its rows become its columns.
+   *
+   * @param image    the source image.
+   * @param executor the executor which processes the strips.
+   * @return the new image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage transpose(Image image, ParallelExecutor executor) {
+    int width = image.getHeight();
+    int height = image.getWidth();
+    MappedRGBImage dest = create(width, height, image.getMaxValueOfColor());
+    forEachStrip(height, width, TRANSPOSE_PIXELS, executor, (rowStart, rowEnd) -> {
+      int columns = rowEnd - rowStart;
+      int[] pixels = new int[columns * width];
+      int[] row = new int[columns];
+      for (int x = 0; x < width; x++) {
+        readRow(image, x, rowStart, columns, row, 0);
+        for (int i = 0; i < columns; i++) {
+          pixels[i * width + x] = row[i];
+        }
+      }
+      for (int y = rowStart; y < rowEnd; y++) {
+        dest.writeRow(y, pixels, (y - rowStart) * width);
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Crops a rectangle of the image, which must lie inside the image.
+   *
+   * @param image    the source image.
+   * @param row      the top row of the rectangle.
+   * @param column   the left column of the rectangle.
+   * @param height   the height of the rectangle.
+   * @param width    the width of the rectangle.
+   * @param executor the executor which processes the strips.
+   * @return the new image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage crop(Image image, int row, int column, int height, int width,
+                             ParallelExecutor executor) {
+    MappedRGBImage dest = create(width, height, image.getMaxValueOfColor());
+    forEachStrip(height, width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int[] pixels = new int[width];
+      for (int y = rowStart; y < rowEnd; y++) {
+        readRow(image, row + y, column, width, pixels, 0);
+        dest.writeRow(y, pixels, 0);
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Applies the kernel to every pixel of the image, with the same results as ConvolutionEngine.
+   *
+   * @param image    the image to be filtered.
+   * @param kernel   the kernel to be applied.
+   * @param executor the executor which processes the strips.
+   * @return the filtered image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage convolve(Image image, Kernel kernel, ParallelExecutor executor) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int halo = kernel.getRows() / 2;
+    MappedRGBImage dest = create(width, height, image.getMaxValueOfColor());
+    forEachStrip(height, width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int top = Math.max(0, rowStart - halo);
+      int bottom = Math.min(height, rowEnd + halo);
+      int[] source = new int[(bottom - top) * width];
+      int[] filtered = new int[source.length];
+      for (int y = top; y < bottom; y++) {
+        readRow(image, y, 0, width, source, (y - top) * width);
+      }
+      ConvolutionEngine.apply(source, width, bottom - top, kernel, filtered, rowStart - top,
+              rowEnd - top);
+      for (int y = rowStart; y < rowEnd; y++) {
+        dest.writeRow(y, filtered, (y - top) * width);
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Blurs the image with boxes of the given radii, with the same results as BoxBlurEngine. The
+   * rows are blurred in strips into a temporary mapped image, whose columns are then blurred in
+   * strips of whole columns.
+   *
+   * @param image    the image to be blurred.
+   * @param radii    the radii of the boxes.
+   * @param executor the executor which processes the strips.
+   * @return the blurred image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage boxBlur(Image image, int[] radii, ParallelExecutor executor) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] clamped = BoxBlurEngine.clamp(radii, width, height);
+    long[] reciprocals = BoxBlurEngine.reciprocals(clamped, width, height);
+    MappedRGBImage rows = create(width, height, image.getMaxValueOfColor());
+    forEachStrip(height, width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int[] pixels = new int[(rowEnd - rowStart) * width];
+      for (int y = rowStart; y < rowEnd; y++) {
+        readRow(image, y, 0, width, pixels, (y - rowStart) * width);
+      }
+      BoxBlurEngine.blurRows(pixels, width, 0, rowEnd - rowStart, clamped, reciprocals);
+      for (int y = rowStart; y < rowEnd; y++) {
+        rows.writeRow(y, pixels, (y - rowStart) * width);
+      }
+    });
+    MappedRGBImage dest = create(width, height, image.getMaxValueOfColor());
+    int columnsPerStrip = Math.max(1, STRIP_PIXELS / height);
+    int strips = (width + columnsPerStrip - 1) / columnsPerStrip;
+    executor.forEachRowBand(strips, STRIP_PIXELS, (first, last) -> {
+      for (int strip = first; strip < last; strip++) {
+        int column = strip * columnsPerStrip;
+        int columns = Math.min(width, column + columnsPerStrip) - column;
+        int[] pixels = new int[columns * height];
+        for (int y = 0; y < height; y++) {
+          rows.readRow(y, column, columns, pixels, y * columns);
+        }
+        int[] blurred = BoxBlurEngine.blurColumns(pixels, new int[pixels.length], columns,
+                height, 0, columns, clamped, reciprocals);
+        for (int y = 0; y < height; y++) {
+          dest.writeRow(y, column, columns, blurred, y * columns);
+        }
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Combines the red component of an image with the green and blue components of two other
+   * images of the same size.
+   *
+   * @param red      the image of the red components.
+   * @param green    the image of the green components.
+   * @param blue     the image of the blue components.
+   * @param executor the executor which processes the strips.
+   * @return the combined image
+   * @throws UncheckedIOException if the file of the new image cannot be created
+   */
+  static MappedRGBImage combine(Image red, Image green, Image blue, ParallelExecutor executor) {
+    int width = red.getWidth();
+    MappedRGBImage dest = create(width, red.getHeight(), red.getMaxValueOfColor());
+    forEachStrip(red.getHeight(), width, STRIP_PIXELS, executor, (rowStart, rowEnd) -> {
+      int[] redRow = new int[width];
+      int[] greenRow = new int[width];
+      int[] blueRow = new int[width];
+      for (int y = rowStart; y < rowEnd; y++) {
+        readRow(red, y, 0, width, redRow, 0);
+        readRow(green, y, 0, width, greenRow, 0);
+        readRow(blue, y, 0, width, blueRow, 0);
+        PixelKernels.SELECTED.combine(redRow, greenRow, blueRow, redRow, 0, width);
+        dest.writeRow(y, redRow, 0);
+      }
+    });
+    return dest;
+  }
+
+  private static MappedRGBImage create(int width, int height, int maxValueOfColor) {
+    try {
+      return MappedRGBImage.create(width, height, maxValueOfColor);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to create a mapped image", e);
+    }
+  }
+
+  private static void readRow(Image image, int row, int column, int count, int[] dest,
+                              int destOffset) {
+    if (image instanceof MappedRGBImage) {
+      ((MappedRGBImage) image).readRow(row, column, count, dest, destOffset);
+    } else {
+      for (int i = 0; i < count; i++) {
+        dest[destOffset + i] = image.getRGB(row, column + i);
+      }
+    }
+  }
+
+  /**
+   * Applies the action to strips of the rows of an image which hold about the given number of
+   * pixels, one strip per band of the executor.
+   */
+  private static void forEachStrip(int height, int width, int pixels, ParallelExecutor executor,
+                                   RowBandAction action) {
+    int rowsPerStrip = Math.max(1, pixels / width);
+    int strips = (height + rowsPerStrip - 1) / rowsPerStrip;
+    // a width of a whole strip makes every band of the executor a single strip
+    executor.forEachRowBand(strips, pixels, (first, last) -> {
+      for (int strip = first; strip < last; strip++) {
+        action.apply(strip * rowsPerStrip, Math.min(height, (strip + 1) * rowsPerStrip));
+      }
+    });
+  }
+}
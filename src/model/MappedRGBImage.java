@@ -0,0 +1,199 @@
+package model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MappedRGBImage class represents an image whose pixels are stored in a memory-mapped file,
+ * 3 bytes per pixel in red, green, blue order and in row-major order, which is the layout of the
+ * pixels of a raw (P6) PPM file. Its pixels are not on the heap, so it can be larger than the
+ * memory of the program: the operating system reads the parts of the file which are used and
+ * writes back the parts which are no longer used.
+ *
+ * <p>The file is mapped in chunks of whole rows of up to 1 GB each, so images of any size can be
+ * mapped. An image loaded from a PPM file maps the pixels of the file itself, read-only, without
+ * copying them. The images created by operations are mapped from temporary files, which are
+ * deleted as soon as they are mapped, so their space is freed when the image is garbage
+ * collected. The array of pixels returned by getPixels() is a copy on the heap, so it is only
+ * available for images which fit in memory.
+ */
+public final class MappedRGBImage implements Image {
+  private static final long CHUNK_SIZE = 1L << 30;
+  private static final ThreadLocal<byte[]> ROW_BUFFER =
+          ThreadLocal.withInitial(() -> new byte[0]);
+
+  private final int width;
+  private final int height;
+  private final int maxValueOfColor;
+  private final int rowsPerChunk;
+  private final MappedByteBuffer[] chunks;
+
+  private MappedRGBImage(int width, int height, int maxValueOfColor, FileChannel channel,
+                         long offset, FileChannel.MapMode mode) throws IOException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Mapped images must have at least one pixel");
+    }
+    long rowSize = 3L * width;
+    if (rowSize > CHUNK_SIZE) {
+      throw new IllegalArgumentException("Rows of mapped images cannot exceed 1 GB");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxValueOfColor = maxValueOfColor;
+    this.rowsPerChunk = (int) Math.min(height, CHUNK_SIZE / rowSize);
+    this.chunks = new MappedByteBuffer[(height + rowsPerChunk - 1) / rowsPerChunk];
+    for (int i = 0; i < chunks.length; i++) {
+      int rows = Math.min(rowsPerChunk, height - i * rowsPerChunk);
+      chunks[i] = channel.map(mode, offset + i * rowsPerChunk * rowSize, rows * rowSize);
+    }
+  }
+
+  /**
+   * Maps the pixels of an image stored in a file read-only, without copying them. The pixels
+   * must be stored 3 bytes per pixel in row-major order, as in a raw (P6) PPM file with a maximum
+   * value below 256. The file must not be modified while the image is used.
+   *
+   * @param file            the path of the file.
+   * @param offset          the position of the first pixel in the file.
+   * @param width           the width of the image.
+   * @param height          the height of the image.
+   * @param maxValueOfColor the maximum value of the color components of the image.
+   * @return the mapped image
+   * @throws IOException if the file cannot be mapped or is too short for the image
+   */
+  public static MappedRGBImage map(String file, long offset, int width, int height,
+                                   int maxValueOfColor) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+      if (channel.size() < offset + 3L * width * height) {
+        throw new IOException("File is too short for an image of " + width + "x" + height);
+      }
+      return new MappedRGBImage(width, height, maxValueOfColor, channel, offset,
+              FileChannel.MapMode.READ_ONLY);
+    }
+  }
+
+  /**
+   * Creates a black image mapped from a new temporary file in the directory given by the
+   * java.io.tmpdir system property.
+   *
+   * @param width           the width of the image.
+   * @param height          the height of the image.
+   * @param maxValueOfColor the maximum value of the color components of the image.
+   * @return the new image
+   * @throws IOException if the temporary file cannot be created or mapped
+   */
+  static MappedRGBImage create(int width, int height, int maxValueOfColor) throws IOException {
+    Path file = Files.createTempFile("ime-mapped", ".rgb");
+    try {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        return new MappedRGBImage(width, height, maxValueOfColor, channel, 0,
+                FileChannel.MapMode.READ_WRITE);
+      }
+    } finally {
+      try {
+        Files.delete(file);
+      } catch (IOException e) {
+        // files which are mapped cannot be deleted on some systems
+        file.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Reads count pixels of a row, starting from the given column, into an array of packed colors.
+   *
+   * @param row        the row of the pixels.
+   * @param column     the column of the first pixel.
+   * @param count      the number of pixels.
+   * @param dest       the array of packed 0xRRGGBB colors.
+   * @param destOffset the position of the first pixel in the array.
+   */
+  void readRow(int row, int column, int count, int[] dest, int destOffset) {
+    byte[] bytes = rowBuffer(count);
+    chunks[row / rowsPerChunk].get(position(row, column), bytes, 0, 3 * count);
+    for (int i = 0, k = 0; i < count; i++, k += 3) {
+      dest[destOffset + i] = PackedRGB.pack(bytes[k] & 0xFF, bytes[k + 1] & 0xFF,
+              bytes[k + 2] & 0xFF);
+    }
+  }
+
+  /**
+   * Writes a whole row of pixels from an array of packed colors. Only images created by create()
+   * can be written.
+   *
+   * @param row          the row of the pixels.
+   * @param source       the array of packed 0xRRGGBB colors.
+   * @param sourceOffset the position of the first pixel of the row in the array.
+   */
+  void writeRow(int row, int[] source, int sourceOffset) {
+    writeRow(row, 0, width, source, sourceOffset);
+  }
+
+  /**
+   * Writes count pixels of a row, starting from the given column, from an array of packed
+   * colors. Only images created by create() can be written.
+   *
+   * @param row          the row of the pixels.
+   * @param column       the column of the first pixel.
+   * @param count        the number of pixels.
+   * @param source       the array of packed 0xRRGGBB colors.
+   * @param sourceOffset the position of the first pixel in the array.
+   */
+  void writeRow(int row, int column, int count, int[] source, int sourceOffset) {
+    byte[] bytes = rowBuffer(count);
+    for (int i = 0, k = 0; i < count; i++, k += 3) {
+      int rgb = source[sourceOffset + i];
+      bytes[k] = (byte) PackedRGB.red(rgb);
+      bytes[k + 1] = (byte) PackedRGB.green(rgb);
+      bytes[k + 2] = (byte) PackedRGB.blue(rgb);
+    }
+    chunks[row / rowsPerChunk].put(position(row, column), bytes, 0, 3 * count);
+  }
+
+  private int position(int row, int column) {
+    return (row % rowsPerChunk) * 3 * width + 3 * column;
+  }
+
+  private static byte[] rowBuffer(int pixels) {
+    byte[] bytes = ROW_BUFFER.get();
+    if (bytes.length < 3 * pixels) {
+      bytes = new byte[3 * pixels];
+      ROW_BUFFER.set(bytes);
+    }
+    return bytes;
+  }
+
+  @Override
+  public Pixel[][] getPixels() {
+    return PackedRGBImage.of(this).getPixels();
+  }
+
+  @Override
+  public int getRGB(int row, int column) {
+    MappedByteBuffer chunk = chunks[row / rowsPerChunk];
+    int index = position(row, column);
+    return PackedRGB.pack(chunk.get(index) & 0xFF, chunk.get(index + 1) & 0xFF,
+            chunk.get(index + 2) & 0xFF);
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getMaxValueOfColor() {
+    return maxValueOfColor;
+  }
+}
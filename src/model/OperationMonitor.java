@@ -0,0 +1,28 @@
+package model;
+
+/**
+ * This interface represents an observer of the operations of a model, which is told how many
+ * rows of the image being processed are done and can cancel the operation. The operations check
+ * for cancellation between bands of rows, so a cancelled operation stops after the bands which
+ * are being processed, and throws a java.util.concurrent.CancellationException instead of
+ * returning an image. The images of the model are not changed by a cancelled operation.
+ */
+public interface OperationMonitor {
+
+  /**
+   * Called after every band of rows of a pass over an image is processed, from the thread which
+   * processed it. Operations which need several passes report the rows of every pass, so the
+   * number of rows done starts again from 0.
+   *
+   * @param rowsDone the number of rows of the pass which are done.
+   * @param rows     the number of rows of the pass.
+   */
+  void progress(int rowsDone, int rows);
+
+  /**
+   * Returns whether the running operation should stop.
+   *
+   * @return true if the operation is cancelled
+   */
+  boolean isCancelled();
+}
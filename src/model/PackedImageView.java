@@ -0,0 +1,164 @@
+package model;
+
+/**
+ * The PackedImageView class represents an image whose pixels are read from the packed pixels of
+ * another image through an index mapping, without copying them. Flips, transposes and crops of a
+ * view are new views over the same pixels, so they take constant time and memory.
+ *
+ * <p>A pixel (row, column) of the view is stored at offset + row * rowStride + column *
+ * columnStride in the shared array, and negative strides represent flips. The shared array is
+ * never modified. A view keeps the whole array of its source in memory, even if it is a small
+ * crop of it.
+ */
+public final class PackedImageView implements Image {
+
+  private final int[] data;
+  private final int offset;
+  private final int rowStride;
+  private final int columnStride;
+  private final int width;
+  private final int height;
+  private final int maxValueOfColor;
+  private Pixel[][] listOfPixels;
+
+  private PackedImageView(int[] data, int offset, int rowStride, int columnStride, int width,
+                          int height, int maxValueOfColor) {
+    this.data = data;
+    this.offset = offset;
+    this.rowStride = rowStride;
+    this.columnStride = columnStride;
+    this.width = width;
+    this.height = height;
+    this.maxValueOfColor = maxValueOfColor;
+  }
+
+  /**
+   * Returns a view of all the pixels of the given image. The pixels of the image are only copied
+   * if it is not a PackedRGBImage or a view already.
+   *
+   * @param image the image to be viewed.
+   * @return the view of the image
+   */
+  public static PackedImageView of(Image image) {
+    if (image instanceof PackedImageView) {
+      return (PackedImageView) image;
+    }
+    PackedRGBImage packed = PackedRGBImage.of(image);
+    packed.share();
+    return new PackedImageView(packed.getData(), 0, packed.getWidth(), 1, packed.getWidth(),
+            packed.getHeight(), packed.getMaxValueOfColor());
+  }
+
+  /**
+   * Returns a view of this image flipped horizontally.
+   *
+   * @return the flipped view
+   */
+  public PackedImageView flipHorizontal() {
+    return new PackedImageView(data, offset + (width - 1) * columnStride, rowStride,
+            -columnStride, width, height, maxValueOfColor);
+  }
+
+  /**
+   * Returns a view of this image flipped vertically.
+   *
+   * @return the flipped view
+   */
+  public PackedImageView flipVertical() {
+    return new PackedImageView(data, offset + (height - 1) * rowStride, -rowStride, columnStride,
+            width, height, maxValueOfColor);
+  }
+
+  /**
+   * Returns a view of this image transposed, whose rows are the columns of this image.
+   *
+   * @return the transposed view
+   */
+  public PackedImageView transpose() {
+    return new PackedImageView(data, offset, columnStride, rowStride, height, width,
+            maxValueOfColor);
+  }
+
+  /**
+   * Returns a view of a rectangle of this image.
+   *
+   * @param row    the first row of the rectangle.
+   * @param column the first column of the rectangle.
+   * @param height the number of rows of the rectangle.
+   * @param width  the number of columns of the rectangle.
+   * @return the cropped view
+   * @throws IllegalArgumentException if the rectangle is empty or not inside the image
+   */
+  public PackedImageView crop(int row, int column, int height, int width) {
+    if (row < 0 || column < 0 || height < 1 || width < 1 || height > this.height - row
+            || width > this.width - column) {
+      throw new IllegalArgumentException("Crop rectangle is not inside the image");
+    }
+    return new PackedImageView(data, offset + row * rowStride + column * columnStride, rowStride,
+            columnStride, width, height, maxValueOfColor);
+  }
+
+  /**
+   * Copies the pixels of this view into a new PackedRGBImage, in row-major order. The array is
+   * shared instead when the view already covers it in row-major order.
+   *
+   * @return the image with the pixels of this view
+   */
+  public PackedRGBImage materialize() {
+    if (offset == 0 && columnStride == 1 && rowStride == width && data.length == width * height) {
+      PackedRGBImage image = new PackedRGBImage(width, height, maxValueOfColor, data);
+      image.share();
+      return image;
+    }
+    int[] destData = new int[width * height];
+    for (int i = 0; i < height; i++) {
+      int index = offset + i * rowStride;
+      if (columnStride == 1) {
+        System.arraycopy(data, index, destData, i * width, width);
+      } else {
+        for (int j = 0; j < width; j++) {
+          destData[i * width + j] = data[index];
+          index += columnStride;
+        }
+      }
+    }
+    return new PackedRGBImage(width, height, maxValueOfColor, destData);
+  }
+
+  /**
+   * Returns the shared array of packed pixels which this view reads.
+   *
+   * @return the shared array
+   */
+  int[] getData() {
+    return data;
+  }
+
+  @Override
+  public Pixel[][] getPixels() {
+    if (listOfPixels == null) {
+      listOfPixels = materialize().getPixels();
+    }
+    return listOfPixels;
+  }
+
+  @Override
+  public int getRGB(int row, int column) {
+    return data[offset + row * rowStride + column * columnStride];
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getMaxValueOfColor() {
+    return maxValueOfColor;
+  }
+}
@@ -0,0 +1,99 @@
+package model;
+
+/**
+ * This utility class contains helper methods to work with colors packed into a single integer in
+ * the 0xRRGGBB layout used by PackedRGBImage.
+ */
+public final class PackedRGB {
+
+  private PackedRGB() {
+  }
+
+  /**
+   * Packs the given color components into a single integer.
+   *
+   * @param red   the red component value of the color.
+   * @param green the green component value of the color.
+   * @param blue  the blue component value of the color.
+   * @return the packed 0xRRGGBB value of the color
+   */
+  public static int pack(int red, int green, int blue) {
+    return (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Returns the red component of a packed color.
+   *
+   * @param rgb the packed 0xRRGGBB value of the color.
+   * @return integer value of red component
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the green component of a packed color.
+   *
+   * @param rgb the packed 0xRRGGBB value of the color.
+   * @return integer value of green component
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the blue component of a packed color.
+   *
+   * @param rgb the packed 0xRRGGBB value of the color.
+   * @return integer value of blue component
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  /**
+   * Restricts the given value to the range of a color component, 0 to 255.
+   *
+   * @param value the value to be clamped.
+   * @return the clamped value
+   */
+  public static int clamp(int value) {
+    return Math.max(0, Math.min(value, 255));
+  }
+
+  /**
+   * Returns the value component of the given color components, which is their maximum.
+   *
+   * @param red   the red component value of the color.
+   * @param green the green component value of the color.
+   * @param blue  the blue component value of the color.
+   * @return the value component as an integer.
+   */
+  public static int value(int red, int green, int blue) {
+    return Math.max(red, Math.max(green, blue));
+  }
+
+  /**
+   * Returns the intensity component of the given color components, which is their average.
+   *
+   * @param red   the red component value of the color.
+   * @param green the green component value of the color.
+   * @param blue  the blue component value of the color.
+   * @return the intensity component as an integer.
+   */
+  public static int intensity(int red, int green, int blue) {
+    return (red + green + blue) / 3;
+  }
+
+  /**
+   * Returns the luma component of the given color components.
+   *
+   * @param red   the red component value of the color.
+   * @param green the green component value of the color.
+   * @param blue  the blue component value of the color.
+   * @return the luma component as an integer.
+   */
+  public static int luma(int red, int green, int blue) {
+    return (int) Math.round((0.2126 * red) + (0.7152 * green) + (0.0722 * blue));
+  }
+}
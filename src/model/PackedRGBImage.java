@@ -0,0 +1,139 @@
+package model;
+
+/**
+ * The PackedRGBImage class represents an RGB image whose pixels are stored in a single int array
+ * in row-major order, one packed 0xRRGGBB value per pixel.
+ *
+ * <p>Unlike RGBImage it does not create an object for every pixel. The array of pixels returned
+ * by getPixels() is only created on the first call and is a copy of the packed data, so changes
+ * made through it are not reflected in the image.
+ */
+public class PackedRGBImage implements Image {
+
+  private final int width;
+  private final int height;
+  private final int maxValueOfColor;
+  private final int[] data;
+  private Pixel[][] listOfPixels;
+  private volatile boolean shared;
+
+  /**
+   * Constructor to initialize the attributes of PackedRGBImage class with all pixels black.
+   *
+   * @param width           is width of image.
+   * @param height          is height of image.
+   * @param maxValueOfColor max color value in the all the pixels of class.
+   */
+  public PackedRGBImage(int width, int height, int maxValueOfColor) {
+    this(width, height, maxValueOfColor, new int[width * height]);
+  }
+
+  /**
+   * Constructor to initialize the attributes of PackedRGBImage class. The given array is used
+   * as is and must not be modified afterwards.
+   *
+   * @param width           is width of image.
+   * @param height          is height of image.
+   * @param maxValueOfColor max color value in the all the pixels of class.
+   * @param data            packed 0xRRGGBB values of the pixels in row-major order.
+   * @throws IllegalArgumentException if the length of data does not match width and height
+   */
+  public PackedRGBImage(int width, int height, int maxValueOfColor, int[] data) {
+    if (width < 0 || height < 0 || data.length != width * height) {
+      throw new IllegalArgumentException("Pixel data does not match image dimensions");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxValueOfColor = maxValueOfColor;
+    this.data = data;
+  }
+
+  /**
+   * Returns the given image as a PackedRGBImage, copying its pixels only when it is not one
+   * already.
+   *
+   * @param image the image to be converted.
+   * @return the packed image
+   */
+  public static PackedRGBImage of(Image image) {
+    if (image instanceof PackedRGBImage) {
+      return (PackedRGBImage) image;
+    }
+    if (image instanceof LazyImage) {
+      return ((LazyImage) image).materialize();
+    }
+    if (image instanceof PackedImageView) {
+      return ((PackedImageView) image).materialize();
+    }
+    int[] data = new int[image.getWidth() * image.getHeight()];
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        data[i * image.getWidth() + j] = image.getRGB(i, j);
+      }
+    }
+    return new PackedRGBImage(image.getWidth(), image.getHeight(), image.getMaxValueOfColor(),
+            data);
+  }
+
+  /**
+   * Returns the packed pixel values backing this image. The array must not be modified.
+   *
+   * @return the packed 0xRRGGBB values in row-major order
+   */
+  int[] getData() {
+    return data;
+  }
+
+  /**
+   * Records that the pixel values of this image are read by another image, such as a view or a
+   * deferred image, so that they are never reused for another image.
+   */
+  void share() {
+    shared = true;
+  }
+
+  /**
+   * Returns whether the pixel values of this image may be read by another image.
+   *
+   * @return true if the values are shared, false if only this image reads them
+   */
+  boolean isShared() {
+    return shared;
+  }
+
+  @Override
+  public Pixel[][] getPixels() {
+    if (listOfPixels == null) {
+      Pixel[][] pixels = new RGBPixel[height][width];
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          int rgb = data[i * width + j];
+          pixels[i][j] = new RGBPixel(i, j, PackedRGB.red(rgb), PackedRGB.green(rgb),
+                  PackedRGB.blue(rgb));
+        }
+      }
+      listOfPixels = pixels;
+    }
+    return listOfPixels;
+  }
+
+  @Override
+  public int getRGB(int row, int column) {
+    return data[row * width + column];
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getMaxValueOfColor() {
+    return maxValueOfColor;
+  }
+}
@@ -0,0 +1,204 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class runs row band actions over an image on a ForkJoinPool. The rows of the image are
+ * split in halves recursively until a band is small enough, and the bands are processed in
+ * parallel. Because every band writes only its own rows, the result is identical to processing
+ * the image sequentially.
+ *
+ * <p>An OperationMonitor can be set to follow the progress of the bands and to cancel the actions
+ * between two bands. While a monitor is set, images are split into bands even when they are
+ * processed on a single thread, so that they can be cancelled.
+ */
+public class ParallelExecutor {
+
+  private static final int PIXELS_PER_BAND = 1 << 14;
+  private static final int MAX_PARALLELISM = 0x7fff;
+
+  private ForkJoinPool pool;
+  private int parallelism;
+  private OperationMonitor monitor;
+
+  /**
+   * Constructor to initialize the executor with one thread per available processor.
+   */
+  public ParallelExecutor() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor to initialize the executor with the given number of threads.
+   *
+   * @param parallelism the number of threads used to process an image.
+   * @throws IllegalArgumentException if parallelism is less than 1 or more than 32767
+   */
+  public ParallelExecutor(int parallelism) {
+    setParallelism(parallelism);
+  }
+
+  /**
+   * Returns the number of threads used to process an image.
+   *
+   * @return the parallelism of the executor
+   */
+  public synchronized int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of threads used to process an image. A parallelism of 1 processes images on
+   * the calling thread.
+   *
+   * @param parallelism the number of threads used to process an image.
+   * @throws IllegalArgumentException if parallelism is less than 1 or more than 32767, in which
+   *                                  case the executor keeps its threads
+   */
+  public synchronized void setParallelism(int parallelism) {
+    if (parallelism < 1 || parallelism > MAX_PARALLELISM) {
+      throw new IllegalArgumentException("Parallelism must be between 1 and " + MAX_PARALLELISM);
+    }
+    // the new pool is created first, so that the executor stays usable if it cannot be created
+    ForkJoinPool newPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    if (pool != null) {
+      pool.shutdown();
+    }
+    this.parallelism = parallelism;
+    this.pool = newPool;
+  }
+
+  /**
+   * Sets the monitor which follows the progress of the actions and can cancel them, or removes
+   * it.
+   *
+   * @param monitor the monitor, or null for none.
+   */
+  public synchronized void setMonitor(OperationMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+  /**
+   * Returns the monitor of the actions.
+   *
+   * @return the monitor, or null if there is none
+   */
+  synchronized OperationMonitor getMonitor() {
+    return monitor;
+  }
+
+  /**
+   * Applies the action to all the rows of an image, in bands processed in parallel.
+   *
+   * @param height the number of rows of the image.
+   * @param width  the number of columns of the image.
+   * @param action the action to be applied to every band.
+   * @throws CancellationException if the monitor cancels the action
+   */
+  public void forEachRowBand(int height, int width, RowBandAction action) {
+    ForkJoinPool currentPool;
+    OperationMonitor currentMonitor;
+    synchronized (this) {
+      currentPool = pool;
+      currentMonitor = monitor;
+    }
+    int rowsPerBand = Math.max(1, PIXELS_PER_BAND / Math.max(1, width));
+    if (currentMonitor != null) {
+      action = monitored(action, height, currentMonitor);
+    }
+    if (currentPool == null || height <= rowsPerBand) {
+      if (currentMonitor == null) {
+        action.apply(0, height);
+      } else {
+        for (int row = 0; row < height; row += rowsPerBand) {
+          action.apply(row, Math.min(height, row + rowsPerBand));
+        }
+      }
+    } else {
+      currentPool.invoke(new RowBandTask(action, 0, height, rowsPerBand));
+    }
+  }
+
+  /**
+   * Returns an action which checks for cancellation before every band and reports the rows done
+   * after it.
+   */
+  private static RowBandAction monitored(RowBandAction action, int height,
+                                         OperationMonitor monitor) {
+    AtomicInteger done = new AtomicInteger();
+    return (rowStart, rowEnd) -> {
+      if (monitor.isCancelled()) {
+        throw new CancellationException("Operation cancelled");
+      }
+      action.apply(rowStart, rowEnd);
+      monitor.progress(done.addAndGet(rowEnd - rowStart), height);
+    };
+  }
+
+  /**
+   * Runs the worker once on every thread of the executor at the same time, for work which cannot
+   * be split into independent bands and which its workers share between themselves. The worker
+   * runs only once, on the calling thread, when the parallelism is 1 or the image is small.
+   * Workers must not wait for work which has not been taken by a running worker, because they
+   * may run one after the other. Workers which share rows should check the monitor of the
+   * executor between rows themselves.
+   *
+   * @param height the number of rows of the image.
+   * @param width  the number of columns of the image.
+   * @param worker the worker to be run on every thread.
+   */
+  public void forEachThread(int height, int width, Runnable worker) {
+    ForkJoinPool currentPool;
+    int threads;
+    synchronized (this) {
+      currentPool = pool;
+      threads = parallelism;
+    }
+    if (currentPool == null || (long) height * width <= PIXELS_PER_BAND) {
+      worker.run();
+    } else {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        tasks.add(currentPool.submit(worker));
+      }
+      for (ForkJoinTask<?> task : tasks) {
+        task.join();
+      }
+    }
+  }
+
+  /**
+   * Task which splits its rows in two halves until they fit in a single band.
+   */
+  private static class RowBandTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final RowBandAction action;
+    private final int rowStart;
+    private final int rowEnd;
+    private final int rowsPerBand;
+
+    RowBandTask(RowBandAction action, int rowStart, int rowEnd, int rowsPerBand) {
+      this.action = action;
+      this.rowStart = rowStart;
+      this.rowEnd = rowEnd;
+      this.rowsPerBand = rowsPerBand;
+    }
+
+    @Override
+    protected void compute() {
+      if (rowEnd - rowStart <= rowsPerBand) {
+        action.apply(rowStart, rowEnd);
+      } else {
+        int middle = (rowStart + rowEnd) >>> 1;
+        invokeAll(new RowBandTask(action, rowStart, middle, rowsPerBand),
+                new RowBandTask(action, middle, rowEnd, rowsPerBand));
+      }
+    }
+  }
+}
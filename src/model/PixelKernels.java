@@ -0,0 +1,143 @@
+package model;
+
+/**
+ * This interface represents the inner loops of the image operations, which work on ranges of
+ * arrays of packed 0xRRGGBB pixels. Convolution works on rows of sums stored as three planes:
+ * the red sums of a row, then its green sums, then its blue sums.
+ *
+ * <p>One implementation is selected when the class is loaded. When the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} and the vector implementation is on the class path,
+ * the loops process several pixels per instruction with the Vector API. Otherwise, or when the
+ * system property {@code ime.vector} is false, the scalar implementation is used. Both
+ * implementations give identical results.
+ */
+interface PixelKernels {
+
+  /**
+   * The implementation used by the image operations.
+   */
+  PixelKernels SELECTED = load();
+
+  /**
+   * Returns whether the selected implementation uses the Vector API.
+   *
+   * @return true if the loops are vectorized, false otherwise
+   */
+  static boolean isVectorized() {
+    return !(SELECTED instanceof ScalarPixelKernels);
+  }
+
+  /**
+   * Returns the vector implementation, or null if the Vector API is not available.
+   *
+   * @return the vector implementation, or null
+   */
+  static PixelKernels vector() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return null;
+    }
+    try {
+      return (PixelKernels) Class.forName("model.VectorPixelKernels").getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static PixelKernels load() {
+    PixelKernels kernels = null;
+    if (!"false".equalsIgnoreCase(System.getProperty("ime.vector"))) {
+      kernels = vector();
+    }
+    return kernels == null ? new ScalarPixelKernels() : kernels;
+  }
+
+  /**
+   * Adds the increment to every channel of the pixels from (inclusive) to to (exclusive), clamped
+   * between 0 and 255.
+   *
+   * @param source    the source pixels.
+   * @param dest      the destination pixels.
+   * @param from      the first pixel.
+   * @param to        the pixel after the last one.
+   * @param increment the value added to every channel.
+   */
+  void brighten(int[] source, int[] dest, int from, int to, int increment);
+
+  /**
+   * Multiplies the channels of the pixels from (inclusive) to to (exclusive) by a 3x3 matrix whose
+   * rows have absolute values adding up to less than 64. The results are rounded or truncated,
+   * and clamped between 0 and 255, exactly as the products and sums computed with doubles.
+   *
+   * @param matrix the 9 coefficients of the matrix in row-major order.
+   * @param round  true to round the results, false to truncate them.
+   * @param source the source pixels.
+   * @param dest   the destination pixels.
+   * @param from   the first pixel.
+   * @param to     the pixel after the last one.
+   */
+  void matrix(double[] matrix, boolean round, int[] source, int[] dest, int from, int to);
+
+  /**
+   * Sets every channel of the pixels from (inclusive) to to (exclusive) to one of their channels.
+   *
+   * @param shift  16 for the red channel, 8 for the green channel or 0 for the blue channel.
+   * @param source the source pixels.
+   * @param dest   the destination pixels.
+   * @param from   the first pixel.
+   * @param to     the pixel after the last one.
+   */
+  void channel(int shift, int[] source, int[] dest, int from, int to);
+
+  /**
+   * Combines the red channel of one array, the green channel of another and the blue channel of
+   * a third into the pixels from (inclusive) to to (exclusive).
+   *
+   * @param red   the pixels which give the red channel.
+   * @param green the pixels which give the green channel.
+   * @param blue  the pixels which give the blue channel.
+   * @param dest  the destination pixels.
+   * @param from  the first pixel.
+   * @param to    the pixel after the last one.
+   */
+  void combine(int[] red, int[] green, int[] blue, int[] dest, int from, int to);
+
+  /**
+   * Adds the channels of a row of pixels, moved by the given number of columns and multiplied by
+   * the weight, to a row of sums. Sums whose moved pixel is outside the row are not changed.
+   *
+   * @param source       the source pixels.
+   * @param sourceOffset the index of the first pixel of the row.
+   * @param width        the number of pixels of the row.
+   * @param offset       the column of the pixel added to the sums of column 0.
+   * @param weight       the weight of the pixels.
+   * @param sums         the sums, in three planes of width values.
+   * @param sumsOffset   the index of the first red sum.
+   */
+  void accumulate(int[] source, int sourceOffset, int width, int offset, int weight, int[] sums,
+                  int sumsOffset);
+
+  /**
+   * Adds a row of values multiplied by a factor to a row of sums.
+   *
+   * @param values       the values.
+   * @param valuesOffset the index of the first value.
+   * @param factor       the factor of the values.
+   * @param sums         the sums, starting at index 0.
+   * @param length       the number of values.
+   */
+  void add(int[] values, int valuesOffset, int factor, int[] sums, int length);
+
+  /**
+   * Packs a row of sums into pixels, multiplying them by the scale, dividing them by 2^shift
+   * rounded to the nearest integer and clamping them between 0 and 255.
+   *
+   * @param sums       the sums, in three planes of width values starting at index 0.
+   * @param width      the number of pixels.
+   * @param scale      the factor of the sums.
+   * @param shift      the power of two which divides the sums.
+   * @param dest       the destination pixels.
+   * @param destOffset the index of the first destination pixel.
+   */
+  void pack(int[] sums, int width, int scale, int shift, int[] dest, int destOffset);
+}
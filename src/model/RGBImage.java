@@ -36,6 +36,13 @@ public class RGBImage implements Image {
     return this.listOfPixels;
   }
 
+  @Override
+  public int getRGB(int row, int column) {
+    Color color = this.listOfPixels[row][column].getColorComponent();
+    return PackedRGB.pack(color.getRedComponent(), color.getGreenComponent(),
+            color.getBlueComponent());
+  }
+
   /**
    * Returns the width of Image.
    *
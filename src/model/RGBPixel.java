@@ -29,21 +29,19 @@ public class RGBPixel implements Pixel {
 
   @Override
   public int getValueComponent() {
-    return Math.max(this.colorComponent.getRedComponent(), Math.max(
-            this.colorComponent.getGreenComponent(),
-            this.colorComponent.getBlueComponent()));
+    return PackedRGB.value(this.colorComponent.getRedComponent(),
+            this.colorComponent.getGreenComponent(), this.colorComponent.getBlueComponent());
   }
 
   @Override
   public int getIntensityComponent() {
-    return (this.colorComponent.getRedComponent() + this.colorComponent.getGreenComponent()
-            + this.colorComponent.getBlueComponent()) / 3;
+    return PackedRGB.intensity(this.colorComponent.getRedComponent(),
+            this.colorComponent.getGreenComponent(), this.colorComponent.getBlueComponent());
   }
 
   @Override
   public int getLumaComponent() {
-    return (int) Math.round((0.2126 * this.colorComponent.getRedComponent())
-            + (0.7152 * this.colorComponent.getGreenComponent())
-            + (0.0722 * this.colorComponent.getBlueComponent()));
+    return PackedRGB.luma(this.colorComponent.getRedComponent(),
+            this.colorComponent.getGreenComponent(), this.colorComponent.getBlueComponent());
   }
 }
@@ -0,0 +1,124 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * This utility class converts images to and from the BufferedImage class of AWT, which is used to
+ * decode, encode and display them. The pixels are copied directly between the packed values of
+ * the image and the data buffer of the raster, whole rows at a time, without calling getRGB or
+ * setRGB for every pixel.
+ *
+ * <p>The int RGB and ARGB, the 3-byte BGR and 4-byte ABGR, and the indexed types are converted
+ * directly. Other types, such as grey images whose color space needs to be converted, are read
+ * with the bulk getRGB method of BufferedImage, which gives the same values.
+ */
+public final class RasterConverter {
+
+  private RasterConverter() {
+  }
+
+  /**
+   * Converts a BufferedImage to an image. The alpha of the pixels is ignored.
+   *
+   * @param image the image to be converted.
+   * @return the image with the colors of the pixels of the given image
+   */
+  public static PackedRGBImage fromBufferedImage(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] data = new int[width * height];
+    WritableRaster raster = image.getRaster();
+    boolean direct = raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0;
+    if (direct && (image.getType() == BufferedImage.TYPE_INT_RGB
+            || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+      readInts(raster, width, height, data);
+    } else if (direct && (image.getType() == BufferedImage.TYPE_3BYTE_BGR
+            || image.getType() == BufferedImage.TYPE_4BYTE_ABGR)) {
+      readBytes(raster, width, height, data);
+    } else if (image.getColorModel() instanceof IndexColorModel
+            && raster.getNumBands() == 1) {
+      readIndexed((IndexColorModel) image.getColorModel(), raster, width, height, data);
+    } else {
+      image.getRGB(0, 0, width, height, data, 0, width);
+      for (int i = 0; i < data.length; i++) {
+        data[i] &= 0xFFFFFF;
+      }
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  /**
+   * Converts an image to a BufferedImage of the TYPE_INT_RGB type. The returned image has its
+   * own copy of the pixels.
+   *
+   * @param image the image to be converted.
+   * @return the BufferedImage with the colors of the pixels of the given image
+   */
+  public static BufferedImage toBufferedImage(Image image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage converted = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] dest = ((DataBufferInt) converted.getRaster().getDataBuffer()).getData();
+    if (image instanceof PackedRGBImage) {
+      System.arraycopy(((PackedRGBImage) image).getData(), 0, dest, 0, width * height);
+    } else {
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          dest[y * width + x] = image.getRGB(y, x) & 0xFFFFFF;
+        }
+      }
+    }
+    return converted;
+  }
+
+  private static void readInts(WritableRaster raster, int width, int height, int[] data) {
+    SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+    DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+    int[] source = buffer.getData();
+    for (int y = 0; y < height; y++) {
+      int offset = buffer.getOffset() + model.getOffset(0, y);
+      for (int x = 0; x < width; x++) {
+        data[y * width + x] = source[offset + x] & 0xFFFFFF;
+      }
+    }
+  }
+
+  private static void readBytes(WritableRaster raster, int width, int height, int[] data) {
+    ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+    DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+    byte[] source = buffer.getData();
+    int pixelStride = model.getPixelStride();
+    int[] bands = model.getBandOffsets();
+    // the bands are in the red, green, blue (and alpha) order of the color model
+    int red = bands[0];
+    int green = bands[1];
+    int blue = bands[2];
+    for (int y = 0; y < height; y++) {
+      int offset = buffer.getOffset() + y * model.getScanlineStride();
+      for (int x = 0; x < width; x++, offset += pixelStride) {
+        data[y * width + x] = PackedRGB.pack(source[offset + red] & 0xFF,
+                source[offset + green] & 0xFF, source[offset + blue] & 0xFF);
+      }
+    }
+  }
+
+  private static void readIndexed(IndexColorModel colors, WritableRaster raster, int width,
+                                  int height, int[] data) {
+    int[] palette = new int[Math.max(colors.getMapSize(), 1 << colors.getPixelSize())];
+    colors.getRGBs(palette);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      raster.getSamples(0, y, width, 1, 0, row);
+      for (int x = 0; x < width; x++) {
+        data[y * width + x] = palette[row[x]] & 0xFFFFFF;
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This utility class reduces images to a smaller size, for example to show a preview of a large
+ * image which fits on the screen. Every pixel of the reduced image is the average of the block
+ * of pixels of the source image which it covers, so the reduced image does not alias, and the
+ * source image is read once, one row at a time, so that images mapped from disk are read in
+ * order.
+ */
+public final class Resampler {
+
+  private Resampler() {
+  }
+
+  /**
+   * Reduces an image so that it fits in the given size, keeping its aspect ratio. Images which
+   * already fit are returned as they are.
+   *
+   * @param image     the image to be reduced.
+   * @param maxWidth  the largest width of the reduced image.
+   * @param maxHeight the largest height of the reduced image.
+   * @return the reduced image, or the image itself if it fits
+   * @throws IllegalArgumentException if the size is not positive
+   */
+  public static Image fit(Image image, int maxWidth, int maxHeight) {
+    if (maxWidth < 1 || maxHeight < 1) {
+      throw new IllegalArgumentException("The size must be positive");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (width <= maxWidth && height <= maxHeight) {
+      return image;
+    }
+    double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+    int destWidth = Math.max(1, Math.min(maxWidth, (int) Math.round(width * scale)));
+    int destHeight = Math.max(1, Math.min(maxHeight, (int) Math.round(height * scale)));
+    return reduce(image, destWidth, destHeight);
+  }
+
+  /**
+   * Reduces an image to the given size, which is not larger than the image. The source pixels
+   * are assigned to the destination pixel they fall in, so every destination pixel averages a
+   * block of whole source pixels.
+   *
+   * @param image      the image to be reduced.
+   * @param destWidth  the width of the reduced image.
+   * @param destHeight the height of the reduced image.
+   * @return the reduced image
+   */
+  static PackedRGBImage reduce(Image image, int destWidth, int destHeight) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] columns = new int[width];
+    int[] columnCounts = new int[destWidth];
+    for (int x = 0; x < width; x++) {
+      columns[x] = (int) ((long) x * destWidth / width);
+      columnCounts[columns[x]]++;
+    }
+    long[] sums = new long[3 * destWidth];
+    int[] row = new int[width];
+    int[] destData = new int[destWidth * destHeight];
+    int destRow = 0;
+    int rowsInBlock = 0;
+    for (int y = 0; y < height; y++) {
+      readRow(image, y, row);
+      for (int x = 0; x < width; x++) {
+        int rgb = row[x];
+        int sum = 3 * columns[x];
+        sums[sum] += PackedRGB.red(rgb);
+        sums[sum + 1] += PackedRGB.green(rgb);
+        sums[sum + 2] += PackedRGB.blue(rgb);
+      }
+      rowsInBlock++;
+      if (y + 1 == height || (int) ((long) (y + 1) * destHeight / height) != destRow) {
+        for (int x = 0; x < destWidth; x++) {
+          long count = (long) columnCounts[x] * rowsInBlock;
+          destData[destRow * destWidth + x] = PackedRGB.pack(
+                  (int) ((sums[3 * x] + count / 2) / count),
+                  (int) ((sums[3 * x + 1] + count / 2) / count),
+                  (int) ((sums[3 * x + 2] + count / 2) / count));
+        }
+        Arrays.fill(sums, 0);
+        rowsInBlock = 0;
+        destRow++;
+      }
+    }
+    return new PackedRGBImage(destWidth, destHeight, image.getMaxValueOfColor(), destData);
+  }
+
+  private static void readRow(Image image, int y, int[] row) {
+    int width = row.length;
+    if (image instanceof PackedRGBImage) {
+      System.arraycopy(((PackedRGBImage) image).getData(), y * width, row, 0, width);
+    } else if (image instanceof MappedRGBImage) {
+      ((MappedRGBImage) image).readRow(y, 0, width, row, 0);
+    } else {
+      for (int x = 0; x < width; x++) {
+        row[x] = image.getRGB(y, x);
+      }
+    }
+  }
+}
@@ -0,0 +1,300 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * This class keeps the results of the operations of a model, so that an operation which is run
+ * again on the same images with the same parameters returns the image it returned before instead
+ * of computing it again. Images are immutable, so the same image can be stored under several
+ * names.
+ *
+ * <p>Results are found by the operation, with its parameters, and the fingerprints of its source
+ * images. The fingerprint of a loaded image is a 64-bit hash of its size and pixels, which is
+ * computed once when it is loaded, in parallel bands of rows. The fingerprint of a result is
+ * derived from the operation and the fingerprints of its sources, without reading its pixels,
+ * so finding a result in the cache costs the same whatever the size of the images. Two
+ * different images have the same fingerprint with a probability of about 2^-64.
+ *
+ * <p>The cache holds up to a number of bytes of pixels, 4 bytes per pixel, and evicts the results
+ * which were used least recently. A result which is removed from the model leaves the cache, so
+ * that its pixels can be reused, unless it was returned again by the cache, in which case other
+ * names may still hold it. Images mapped from disk are neither hashed nor cached.
+ */
+public final class ResultCache {
+  private static final long MIX = 0x9E3779B97F4A7C15L;
+
+  private final Map<Key, Image> results = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<Image, Long> fingerprints = new WeakHashMap<>();
+  private long capacity;
+  private long size;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Constructor to initialize an empty cache which holds up to an eighth of the maximum heap
+   * size of the JVM.
+   */
+  public ResultCache() {
+    this(Runtime.getRuntime().maxMemory() / 8);
+  }
+
+  /**
+   * Constructor to initialize an empty cache which holds up to the given number of bytes.
+   *
+   * @param capacity the number of bytes of the results kept, 0 to keep no result.
+   * @throws IllegalArgumentException if the capacity is negative
+   */
+  public ResultCache(long capacity) {
+    setCapacity(capacity);
+  }
+
+  /**
+   * Sets the number of bytes of the results kept, evicting the results which were used least
+   * recently if they do not fit anymore. A capacity of 0 disables the cache, so that images are
+   * no longer hashed when they are loaded.
+   *
+   * @param capacity the number of bytes, 0 to keep no result.
+   * @throws IllegalArgumentException if the capacity is negative
+   */
+  public synchronized void setCapacity(long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("The capacity cannot be negative");
+    }
+    this.capacity = capacity;
+    evict();
+  }
+
+  /**
+   * Returns the number of bytes of the results kept.
+   *
+   * @return the capacity in bytes
+   */
+  public synchronized long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the number of bytes of the results in the cache.
+   *
+   * @return the size in bytes
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of operations whose result was found in the cache.
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of operations whose result was computed.
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of results which were removed from the cache to make room for others.
+   *
+   * @return the number of evictions
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("result cache: %d hits, %d misses, %d evictions, %.1f of %.1f MB",
+            hits, misses, evictions, size / 1e6, capacity / 1e6);
+  }
+
+  /**
+   * Records the fingerprint of an image which was loaded, by hashing its pixels.
+   *
+   * @param image    the loaded image.
+   * @param executor the executor which hashes the bands of rows of the image.
+   */
+  void register(Image image, ParallelExecutor executor) {
+    if (getCapacity() > 0 && !(image instanceof MappedRGBImage)) {
+      fingerprint(image, executor);
+    }
+  }
+
+  /**
+   * Returns the result of an operation from the cache, or computes it and adds it to the cache.
+   * Operations on images mapped from disk are always computed, and null results are not kept.
+   *
+   * @param operation   the operation, with its parameters, which must give the same result for
+   *                    the same source images.
+   * @param sources     the source images of the operation.
+   * @param executor    the executor which hashes the source images which have no fingerprint.
+   * @param computation the computation of the result.
+   * @return the result of the operation
+   */
+  Image get(String operation, Image[] sources, ParallelExecutor executor,
+            Supplier<Image> computation) {
+    if (getCapacity() == 0) {
+      return computation.get();
+    }
+    long[] sourceFingerprints = new long[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      if (sources[i] instanceof MappedRGBImage) {
+        return computation.get();
+      }
+      sourceFingerprints[i] = fingerprint(sources[i], executor);
+    }
+    Key key = new Key(operation, sourceFingerprints);
+    synchronized (this) {
+      Image result = results.get(key);
+      if (result != null) {
+        hits++;
+        if (result instanceof PackedRGBImage) {
+          // the result is now held by several names, so its pixels must never be reused
+          ((PackedRGBImage) result).share();
+        }
+        return result;
+      }
+      misses++;
+    }
+    Image result = computation.get();
+    if (result == null || result instanceof MappedRGBImage) {
+      return result;
+    }
+    long bytes = 4L * result.getWidth() * result.getHeight();
+    synchronized (this) {
+      fingerprints.put(result, key.fingerprint());
+      if (bytes <= capacity && results.put(key, result) == null) {
+        size += bytes;
+        evict();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes an image from the cache, because it was removed from the model and its pixels may be
+   * reused for another image.
+   *
+   * @param image the removed image.
+   */
+  synchronized void discard(Image image) {
+    fingerprints.remove(image);
+    Iterator<Image> kept = results.values().iterator();
+    while (kept.hasNext()) {
+      if (kept.next() == image) {
+        size -= 4L * image.getWidth() * image.getHeight();
+        kept.remove();
+      }
+    }
+  }
+
+  private long fingerprint(Image image, ParallelExecutor executor) {
+    synchronized (this) {
+      Long fingerprint = fingerprints.get(image);
+      if (fingerprint != null) {
+        return fingerprint;
+      }
+    }
+    long fingerprint = hash(image, executor);
+    synchronized (this) {
+      fingerprints.put(image, fingerprint);
+    }
+    return fingerprint;
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Key, Image>> entries = results.entrySet().iterator();
+    while (size > capacity && entries.hasNext()) {
+      Image image = entries.next().getValue();
+      size -= 4L * image.getWidth() * image.getHeight();
+      entries.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Hashes the size and the pixels of an image. Every row is hashed on its own, in parallel, and
+   * the hashes of the rows are then combined in order, so the hash does not depend on the bands.
+   */
+  static long hash(Image image, ParallelExecutor executor) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    long[] rows = new long[height];
+    int[] data = image instanceof PackedRGBImage ? ((PackedRGBImage) image).getData() : null;
+    executor.forEachRowBand(height, width, (rowStart, rowEnd) -> {
+      for (int i = rowStart; i < rowEnd; i++) {
+        long hash = MIX * (i + 1);
+        for (int j = 0; j < width; j++) {
+          int rgb = data != null ? data[i * width + j] : image.getRGB(i, j);
+          hash = (Long.rotateLeft(hash, 5) ^ rgb) * MIX;
+        }
+        rows[i] = hash;
+      }
+    });
+    long hash = mix(((long) width << 32 | height) ^ (long) image.getMaxValueOfColor() * MIX);
+    for (long row : rows) {
+      hash = mix(hash * 31 + row);
+    }
+    return hash;
+  }
+
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+  /**
+   * The operation and the fingerprints of the source images of a result.
+   */
+  private static final class Key {
+    private final String operation;
+    private final long[] sources;
+
+    Key(String operation, long[] sources) {
+      this.operation = operation;
+      this.sources = sources;
+    }
+
+    /**
+     * Returns the fingerprint of the result, derived from the operation and its sources.
+     */
+    long fingerprint() {
+      long hash = MIX;
+      for (char c : operation.toCharArray()) {
+        hash = mix(hash * 31 + c);
+      }
+      for (long source : sources) {
+        hash = mix(hash * 31 + source);
+      }
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return operation.equals(key.operation) && Arrays.equals(sources, key.sources);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * operation.hashCode() + Arrays.hashCode(sources);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * This interface represents work that is done on a band of consecutive rows of an image. Actions
+ * must only write to the rows of their own band so that bands can be processed in parallel.
+ */
+public interface RowBandAction {
+
+  /**
+   * Processes the rows rowStart (inclusive) to rowEnd (exclusive).
+   *
+   * @param rowStart the first row of the band.
+   * @param rowEnd   the row after the last row of the band.
+   */
+  void apply(int rowStart, int rowEnd);
+}
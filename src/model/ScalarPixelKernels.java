@@ -0,0 +1,84 @@
+package model;
+
+/**
+ * This class implements the inner loops of the image operations one pixel at a time.
+ */
+final class ScalarPixelKernels implements PixelKernels {
+
+  @Override
+  public void brighten(int[] source, int[] dest, int from, int to, int increment) {
+    for (int i = from; i < to; i++) {
+      int rgb = source[i];
+      dest[i] = PackedRGB.pack(PackedRGB.clamp(PackedRGB.red(rgb) + increment),
+              PackedRGB.clamp(PackedRGB.green(rgb) + increment),
+              PackedRGB.clamp(PackedRGB.blue(rgb) + increment));
+    }
+  }
+
+  @Override
+  public void matrix(double[] matrix, boolean round, int[] source, int[] dest, int from, int to) {
+    for (int i = from; i < to; i++) {
+      int r = PackedRGB.red(source[i]);
+      int g = PackedRGB.green(source[i]);
+      int b = PackedRGB.blue(source[i]);
+      dest[i] = PackedRGB.pack(component(matrix, 0, round, r, g, b),
+              component(matrix, 3, round, r, g, b), component(matrix, 6, round, r, g, b));
+    }
+  }
+
+  private static int component(double[] matrix, int row, boolean round, int r, int g, int b) {
+    double exact = (matrix[row] * r) + (matrix[row + 1] * g) + (matrix[row + 2] * b);
+    return PackedRGB.clamp(round ? (int) Math.round(exact) : (int) exact);
+  }
+
+  @Override
+  public void channel(int shift, int[] source, int[] dest, int from, int to) {
+    for (int i = from; i < to; i++) {
+      dest[i] = ((source[i] >> shift) & 0xFF) * 0x010101;
+    }
+  }
+
+  @Override
+  public void combine(int[] red, int[] green, int[] blue, int[] dest, int from, int to) {
+    for (int i = from; i < to; i++) {
+      dest[i] = (red[i] & 0xFF0000) | (green[i] & 0xFF00) | (blue[i] & 0xFF);
+    }
+  }
+
+  @Override
+  public void accumulate(int[] source, int sourceOffset, int width, int offset, int weight,
+                         int[] sums, int sumsOffset) {
+    accumulate(source, sourceOffset, width, offset, weight, sums, sumsOffset,
+            Math.max(0, -offset), Math.min(width, width - offset));
+  }
+
+  /**
+   * Accumulates the sums of the columns start (inclusive) to end (exclusive) only.
+   */
+  void accumulate(int[] source, int sourceOffset, int width, int offset, int weight, int[] sums,
+                  int sumsOffset, int start, int end) {
+    for (int x = start; x < end; x++) {
+      int rgb = source[sourceOffset + x + offset];
+      sums[sumsOffset + x] += weight * ((rgb >> 16) & 0xFF);
+      sums[sumsOffset + width + x] += weight * ((rgb >> 8) & 0xFF);
+      sums[sumsOffset + 2 * width + x] += weight * (rgb & 0xFF);
+    }
+  }
+
+  @Override
+  public void add(int[] values, int valuesOffset, int factor, int[] sums, int length) {
+    for (int k = 0; k < length; k++) {
+      sums[k] += factor * values[valuesOffset + k];
+    }
+  }
+
+  @Override
+  public void pack(int[] sums, int width, int scale, int shift, int[] dest, int destOffset) {
+    int half = shift == 0 ? 0 : 1 << (shift - 1);
+    for (int x = 0; x < width; x++) {
+      dest[destOffset + x] = PackedRGB.pack(PackedRGB.clamp((scale * sums[x] + half) >> shift),
+              PackedRGB.clamp((scale * sums[width + x] + half) >> shift),
+              PackedRGB.clamp((scale * sums[2 * width + x] + half) >> shift));
+    }
+  }
+}
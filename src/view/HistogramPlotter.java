@@ -0,0 +1,99 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import model.Histogram;
+
+/**
+ * This class draws the histograms of an image as line plots. The lines and the axes are written
+ * directly into the pixels of the raster, and only the title and the legend are drawn with
+ * Java 2D, so that a plot takes well under a millisecond.
+ */
+final class HistogramPlotter {
+  private static final int BACKGROUND = 0xFFFFFF;
+  private static final int AXIS = 0x808080;
+  private static final int[] COLORS = {0xD02020, 0x20A020, 0x2040D0, 0x404040};
+  private static final String[] NAMES = {"Red", "Green", "Blue", "Luma"};
+  private static final int LEFT = 10;
+  private static final int TOP = 30;
+  private static final int RIGHT = 10;
+  private static final int BOTTOM = 40;
+
+  private HistogramPlotter() {
+  }
+
+  /**
+   * Draws the red, green, blue and luma histograms on a new image. The luma is weighted like the
+   * luma-component greyscale. The counts are scaled so that the largest count reaches the top of
+   * the plot.
+   *
+   * @param histogram the histograms to be drawn.
+   * @param width     the width of the image.
+   * @param height    the height of the image.
+   * @return the image of the plot
+   */
+  static BufferedImage plot(Histogram histogram, int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    Arrays.fill(pixels, BACKGROUND);
+    int right = width - RIGHT - 1;
+    int bottom = height - BOTTOM - 1;
+    drawLine(pixels, width, LEFT, bottom, right, bottom, AXIS);
+    drawLine(pixels, width, LEFT, TOP, LEFT, bottom, AXIS);
+    long[][] series = {histogram.getRed(), histogram.getGreen(), histogram.getBlue(),
+        histogram.getLuma()};
+    long max = 1;
+    for (long[] counts : series) {
+      for (long count : counts) {
+        max = Math.max(max, count);
+      }
+    }
+    for (int s = 0; s < series.length; s++) {
+      int previousX = 0;
+      int previousY = 0;
+      for (int value = 0; value < series[s].length; value++) {
+        int x = LEFT + (int) ((long) value * (right - LEFT) / (series[s].length - 1));
+        int y = bottom - (int) (series[s][value] * (bottom - TOP) / max);
+        if (value > 0) {
+          drawLine(pixels, width, previousX, previousY, x, y, COLORS[s]);
+        }
+        previousX = x;
+        previousY = y;
+      }
+    }
+    Graphics2D graphics = image.createGraphics();
+    graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
+    graphics.setColor(Color.BLACK);
+    graphics.drawString("Histogram", LEFT, TOP - 10);
+    graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 11));
+    int legendX = LEFT;
+    for (int s = 0; s < NAMES.length; s++) {
+      graphics.setColor(new Color(COLORS[s]));
+      graphics.drawString(NAMES[s], legendX, height - 12);
+      legendX += graphics.getFontMetrics().stringWidth(NAMES[s]) + 12;
+    }
+    graphics.dispose();
+    return image;
+  }
+
+  /**
+   * Draws a line between two points of the plot, one pixel per step along its longer axis.
+   */
+  private static void drawLine(int[] pixels, int width, int x0, int y0, int x1, int y1,
+                               int color) {
+    int steps = Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0));
+    for (int i = 0; i <= steps; i++) {
+      int x = steps == 0 ? x0 : x0 + (x1 - x0) * i / steps;
+      int y = steps == 0 ? y0 : y0 + (y1 - y0) * i / steps;
+      pixels[y * width + x] = color;
+    }
+  }
+}
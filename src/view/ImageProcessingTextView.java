@@ -29,4 +29,11 @@ public interface ImageProcessingTextView {
    * @param command the command executed successfully
    */
   void displaySuccessMessage(String command);
+
+  /**
+   * Displays the statistics of the commands run so far, for the stats command.
+   *
+   * @param stats the table of the statistics
+   */
+  void displayStats(String stats);
 }
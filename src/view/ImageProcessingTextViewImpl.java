@@ -36,4 +36,9 @@ public class ImageProcessingTextViewImpl implements ImageProcessingTextView {
   public void displaySuccessMessage(String command) {
     this.out.println("Successfully executed command: " + command);
   }
+
+  @Override
+  public void displayStats(String stats) {
+    this.out.print(stats);
+  }
 }
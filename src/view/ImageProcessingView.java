@@ -1,15 +1,17 @@
 package view;
 
+import java.awt.Dimension;
 import java.util.List;
 
 import controller.ImageMVCController;
+import model.Histogram;
 import model.Image;
 
 /**
  * This interface defines the methods that must be implemented by a class that serves as the user
  * interface for an image processing application. This interface provides methods to make the UI
  * visible, set button listeners, get parameters for a command, display the current image,
- * and display error dialogs.
+ * display the progress of commands, and display error dialogs.
  */
 public interface ImageProcessingView {
 
@@ -34,14 +36,50 @@ public interface ImageProcessingView {
   List<String> getParameters(String command);
 
   /**
-   * Displays the current image in the UI.
+   * Displays the current image in the UI. This method can be called from any thread: the image
+   * is prepared for display on the calling thread, and only shown on the event dispatch thread.
    *
    * @param m the list of images to display.
    */
   void displayCurrentImage(List<Image> m);
 
   /**
-   * Displays an error dialog in case of errors in the application.
+   * Displays the histograms of the current image. This method can be called from any thread: the
+   * plot is drawn on the calling thread, and only shown on the event dispatch thread.
+   *
+   * @param histogram the histograms of the current image.
+   */
+  void displayHistogram(Histogram histogram);
+
+  /**
+   * Returns the size of the area in which the current image is displayed, to which the preview
+   * of the image is reduced. This method can be called from any thread.
+   *
+   * @return the width and height of the display area
+   */
+  Dimension getDisplaySize();
+
+  /**
+   * Displays an error dialog in case of errors in the application. This method can be called
+   * from any thread.
    */
   void displayErrorDialog();
+
+  /**
+   * Displays whether commands are being processed in the background, with their progress and a
+   * way to cancel them. This method can be called from any thread, and the calls are displayed in
+   * the order they were made.
+   *
+   * @param processing true while commands are being processed, false when they are all done.
+   */
+  void displayProcessing(boolean processing);
+
+  /**
+   * Displays the progress of the command being processed. This method can be called from any
+   * thread.
+   *
+   * @param rowsDone the number of rows of the image which are done.
+   * @param rows     the number of rows of the image.
+   */
+  void displayProgress(int rowsDone, int rows);
 }
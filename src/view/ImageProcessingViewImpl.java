@@ -1,10 +1,5 @@
 package view;
 
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.category.DefaultCategoryDataset;
-
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
@@ -13,6 +8,7 @@ import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -25,13 +21,15 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 import controller.ImageMVCController;
-import model.Color;
+import model.Histogram;
 import model.Image;
-import model.Pixel;
+import model.RasterConverter;
 
 /**
  * The ImageProcessingViewImpl class implements the ImageProcessingView interface and provides a
@@ -41,6 +39,10 @@ import model.Pixel;
  * This class extends the JFrame class and uses various Swing components to create the GUI.
  */
 public class ImageProcessingViewImpl extends JFrame implements ImageProcessingView {
+  private static final Dimension DISPLAY_SIZE = new Dimension(450, 450);
+  private static final Dimension HISTOGRAM_SIZE = new Dimension(300, 450);
+  private static final String[] ORDERED_DITHER_PATTERNS = {"bayer-2", "bayer-4", "bayer-8",
+      "bayer-16", "blue-noise"};
   private final JButton loadButton;
   private final JButton saveButton;
   private final JButton horizontalFlipButton;
@@ -50,9 +52,14 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
   private final JButton sepiaButton;
   private final JButton greyscaleButton;
   private final JButton ditherButton;
+  private final JButton orderedDitherButton;
   private final JButton blurButton;
   private final JButton sharpenButton;
   private final JButton brightenButton;
+  private final JButton parallelismButton;
+  private final JButton cancelButton;
+  private final JProgressBar progressBar;
+  private final AtomicInteger displayedPercent = new AtomicInteger(-1);
   private final JLabel histogramLabel;
   private final JLabel imageLabel;
   private final JRadioButton redRadioButton;
@@ -101,6 +108,20 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
     saveButton.setActionCommand("save");
     loadSaveButtonPanel.add(saveButton);
 
+    parallelismButton = new JButton("Threads");
+    parallelismButton.setActionCommand("parallelism");
+    loadSaveButtonPanel.add(parallelismButton);
+
+    progressBar = new JProgressBar(0, 100);
+    progressBar.setStringPainted(true);
+    progressBar.setVisible(false);
+    loadSaveButtonPanel.add(progressBar);
+
+    cancelButton = new JButton("Cancel");
+    cancelButton.setActionCommand("cancel");
+    cancelButton.setEnabled(false);
+    loadSaveButtonPanel.add(cancelButton);
+
     JPanel imagePanel = new JPanel();
     imagePanel.setLayout(new FlowLayout());
     this.add(imagePanel, BorderLayout.CENTER);
@@ -109,14 +130,14 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
 
     imageLabel = new JLabel(new ImageIcon());
     JScrollPane imagePane = new JScrollPane(imageLabel);
-    imagePane.setPreferredSize(new Dimension(450, 450));
+    imagePane.setPreferredSize(new Dimension(DISPLAY_SIZE));
     imagePane.setBorder(BorderFactory.createEmptyBorder());
     imagePane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
     imagePane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
     imageScrollPanel.add(imagePane);
 
     histogramLabel = new JLabel(new ImageIcon());
-    histogramLabel.setPreferredSize(new Dimension(300, 450));
+    histogramLabel.setPreferredSize(new Dimension(HISTOGRAM_SIZE));
     imageScrollPanel.add(histogramLabel);
 
     imagePanel.add(imageScrollPanel, BorderLayout.CENTER);
@@ -157,6 +178,10 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
     ditherButton.setActionCommand("dither");
     imageProcessingButtonPanel.add(ditherButton);
 
+    orderedDitherButton = new JButton("Ordered Dither");
+    orderedDitherButton.setActionCommand("ordered-dither");
+    imageProcessingButtonPanel.add(orderedDitherButton);
+
     horizontalFlipButton = new JButton("Horizontal Flip");
     horizontalFlipButton.setActionCommand("horizontal-flip");
     imageProcessingButtonPanel.add(horizontalFlipButton);
@@ -203,6 +228,8 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
     ActionListener listener = evt -> controller.processImage(evt.getActionCommand());
     loadButton.addActionListener(listener);
     saveButton.addActionListener(listener);
+    parallelismButton.addActionListener(listener);
+    cancelButton.addActionListener(listener);
     horizontalFlipButton.addActionListener(listener);
     verticalFlipButton.addActionListener(listener);
     brightenButton.addActionListener(listener);
@@ -213,6 +240,7 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
     blurButton.addActionListener(listener);
     sharpenButton.addActionListener(listener);
     ditherButton.addActionListener(listener);
+    orderedDitherButton.addActionListener(listener);
     saveRedButton.addActionListener(listener);
     saveGreenButton.addActionListener(listener);
     saveBlueButton.addActionListener(listener);
@@ -251,6 +279,13 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
           return null;
         }
         return List.of(new String[]{"brighten", brightenValue, "image", "image"});
+      case "parallelism":
+        String parallelism = JOptionPane.showInputDialog("Please enter the number of threads "
+                + "used to process images");
+        if (parallelism == null) {
+          return null;
+        }
+        return List.of(new String[]{"parallelism", parallelism});
       case "horizontal-flip":
         return List.of(new String[]{"horizontal-flip", "image", "image"});
       case "vertical-flip":
@@ -265,6 +300,14 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
         return List.of(new String[]{"sepia", "image", "image"});
       case "dither":
         return List.of(new String[]{"dither", "image", "image"});
+      case "ordered-dither":
+        Object pattern = JOptionPane.showInputDialog(this, "Please select a threshold pattern",
+                "Ordered dither", JOptionPane.PLAIN_MESSAGE, null, ORDERED_DITHER_PATTERNS,
+                ORDERED_DITHER_PATTERNS[2]);
+        if (pattern == null) {
+          return null;
+        }
+        return List.of(new String[]{"ordered-dither", pattern.toString(), "image", "image"});
       case "blur":
         return List.of(new String[]{"blur", "image", "image"});
       case "sharpen":
@@ -306,40 +349,71 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
   public void displayCurrentImage(List<Image> m) {
     if (m.size() == 1) {
       BufferedImage image = getImageToDisplay(m.get(0));
-      BufferedImage histogramImage = displayHistogram(image);
-      imageLabel.setIcon(new ImageIcon(image));
-      histogramLabel.setIcon(new ImageIcon(histogramImage));
-      validate();
+      onEventDispatchThread(() -> {
+        imageLabel.setIcon(new ImageIcon(image));
+        validate();
+      });
     } else if (m.size() != 2) {
-      showRGBSplitSaveDialog();
+      onEventDispatchThread(this::showRGBSplitSaveDialog);
     }
 
   }
 
+  @Override
+  public void displayHistogram(Histogram histogram) {
+    BufferedImage histogramImage = HistogramPlotter.plot(histogram, HISTOGRAM_SIZE.width,
+            HISTOGRAM_SIZE.height);
+    onEventDispatchThread(() -> {
+      histogramLabel.setIcon(new ImageIcon(histogramImage));
+      validate();
+    });
+  }
+
+  @Override
+  public Dimension getDisplaySize() {
+    return new Dimension(DISPLAY_SIZE);
+  }
+
   @Override
   public void displayErrorDialog() {
-    JOptionPane.showMessageDialog(this, "Operation failed", "Error",
-            JOptionPane.ERROR_MESSAGE);
+    onEventDispatchThread(() -> JOptionPane.showMessageDialog(this, "Operation failed", "Error",
+            JOptionPane.ERROR_MESSAGE));
   }
 
-  private BufferedImage getImageToDisplay(Image m) {
-    BufferedImage image = new BufferedImage(m.getWidth(), m.getHeight(),
-            BufferedImage.TYPE_INT_RGB);
-    Pixel[][] listOfPixels = m.getPixels();
-    for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        model.Color rgb = new Color(listOfPixels[y][x].getColorComponent().getRedComponent(),
-                listOfPixels[y][x].getColorComponent().getGreenComponent(),
-                listOfPixels[y][x].getColorComponent().getBlueComponent());
-        try {
-          image.setRGB(x, y, rgb.getRGB());
-        } catch (NullPointerException e) {
-          System.out.println("y" + y + "x" + x);
-          return null;
-        }
-      }
+  @Override
+  public void displayProcessing(boolean processing) {
+    // always queued, so that the calls of different threads are shown in the order they were made
+    SwingUtilities.invokeLater(() -> {
+      displayedPercent.set(-1);
+      progressBar.setValue(0);
+      progressBar.setVisible(processing);
+      cancelButton.setEnabled(processing);
+      validate();
+    });
+  }
+
+  @Override
+  public void displayProgress(int rowsDone, int rows) {
+    int percent = rows == 0 ? 100 : (int) (100L * rowsDone / rows);
+    // only changes of the percentage are queued, as bands of rows can be done very often
+    if (displayedPercent.getAndSet(percent) != percent) {
+      SwingUtilities.invokeLater(() -> progressBar.setValue(percent));
+    }
+  }
+
+  /**
+   * Runs the action on the event dispatch thread, immediately if it is the calling thread.
+   */
+  private void onEventDispatchThread(Runnable action) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      action.run();
+    } else {
+      SwingUtilities.invokeLater(action);
     }
-    return image;
+  }
+
+  private BufferedImage getImageToDisplay(Image m) {
+    return RasterConverter.toBufferedImage(m);
   }
 
   private void showRGBSplitSaveDialog() {
@@ -402,34 +476,6 @@ public class ImageProcessingViewImpl extends JFrame implements ImageProcessingVi
     }
   }
 
-  private BufferedImage displayHistogram(BufferedImage image) {
-    int[] redHistogram = new int[256];
-    int[] greenHistogram = new int[256];
-    int[] blueHistogram = new int[256];
-    int[] intensityHistogram = new int[256];
-    for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        Color c = new Color(image.getRGB(x, y));
-        redHistogram[c.getRed()]++;
-        greenHistogram[c.getGreen()]++;
-        blueHistogram[c.getBlue()]++;
-        int intensity = (int) (0.299 * c.getRed() + 0.587 * c.getGreen() + 0.114 * c.getBlue());
-        intensityHistogram[intensity]++;
-      }
-    }
-    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-    for (int i = 0; i < 256; i++) {
-      dataset.addValue(redHistogram[i], "Red", Integer.toString(i));
-      dataset.addValue(greenHistogram[i], "Green", Integer.toString(i));
-      dataset.addValue(blueHistogram[i], "Blue", Integer.toString(i));
-      dataset.addValue(intensityHistogram[i], "Intensity", Integer.toString(i));
-    }
-    JFreeChart chart = ChartFactory.createLineChart("Histogram", "Value",
-            "Frequency", dataset, PlotOrientation.VERTICAL, true,
-            true, false);
-    return chart.createBufferedImage(450, 450);
-  }
-
   private String showOptionsForGreyScale() {
     JPanel radioPanel = new JPanel();
     radioPanel.setLayout(new BoxLayout(radioPanel, BoxLayout.Y_AXIS));
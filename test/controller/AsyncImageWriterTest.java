@@ -0,0 +1,66 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import model.Image;
+import model.PackedRGB;
+import model.PackedRGBImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for AsyncImageWriter class.
+ */
+public class AsyncImageWriterTest {
+
+  private static Image image(int rgb) {
+    return new PackedRGBImage(2, 1, 255, new int[]{rgb, 0});
+  }
+
+  private static Path createDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("writer");
+    directory.toFile().deleteOnExit();
+    return directory;
+  }
+
+  @Test
+  public void testImagesAreWrittenInOrderOfSubmission() throws IOException {
+    Path directory = createDirectory();
+    String ppm = directory.resolve("image.ppm").toString();
+    String png = directory.resolve("image.png").toString();
+    new File(ppm).deleteOnExit();
+    new File(png).deleteOnExit();
+    AsyncImageWriter writer = new AsyncImageWriter(2);
+    for (int i = 1; i <= 20; i++) {
+      assertTrue(writer.submit(ppm, image(PackedRGB.pack(i, i, i)), i % 2 == 0));
+    }
+    assertTrue(writer.submit(png, image(PackedRGB.pack(1, 2, 3)), false));
+    writer.await(ppm);
+    assertEquals(PackedRGB.pack(20, 20, 20), PPMCodec.read(ppm).getRGB(0, 0));
+    assertTrue(writer.close().isEmpty());
+    assertEquals(PackedRGB.pack(1, 2, 3), ImageUtil.readImage(png).getRGB(0, 0));
+    try (var files = Files.list(directory)) {
+      assertEquals(2, files.count());
+    }
+  }
+
+  @Test
+  public void testFailuresAreReportedWhenClosed() throws IOException {
+    Path directory = createDirectory();
+    AsyncImageWriter writer = new AsyncImageWriter(1);
+    assertFalse(writer.submit(directory.resolve("image.xyz").toString(), image(0), false));
+    String missing = directory.resolve("missing").resolve("image.ppm").toString();
+    assertTrue(writer.submit(missing, image(0), false));
+    Map<String, String> failures = writer.close();
+    assertEquals(1, failures.size());
+    assertTrue(failures.containsKey(missing));
+  }
+}
@@ -0,0 +1,80 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.Image;
+import model.PackedRGB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for BatchProcessingController class.
+ */
+public class BatchProcessingControllerTest {
+
+  private Path createDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("batch");
+    directory.toFile().deleteOnExit();
+    return directory;
+  }
+
+  private Path write(Path directory, String name, String contents) throws IOException {
+    Path file = directory.resolve(name);
+    Files.write(file, contents.getBytes(StandardCharsets.US_ASCII));
+    file.toFile().deleteOnExit();
+    return file;
+  }
+
+  @Test
+  public void testTemplateIsAppliedToMatchingFiles() throws IOException {
+    Path input = createDirectory();
+    Path output = createDirectory();
+    write(input, "first.ppm", "P3 2 1 255\n10 20 30 40 50 60\n");
+    write(input, "second.ppm", "P3 1 1 255\n200 100 0\n");
+    write(input, "broken.ppm", "P3 1 1 255\n");
+    write(input, "notes.txt", "not an image");
+    Path template = write(createDirectory(), "template.txt",
+            "load {input} image\nbrighten 10 image bright\nsave {output}/{name}-bright.{ext} "
+                    + "bright\n");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new BatchProcessingController(template.toString(), input.toString(), "*.ppm",
+            output.toString(), 2, new PrintStream(bytes)).execute();
+    String report = bytes.toString();
+    for (String name : new String[]{"first", "second"}) {
+      output.resolve(name + "-bright.ppm").toFile().deleteOnExit();
+    }
+    Image first = ImageUtil.readPPM(output.resolve("first-bright.ppm").toString());
+    assertEquals(PackedRGB.pack(50, 60, 70), first.getRGB(0, 1));
+    Image second = ImageUtil.readPPM(output.resolve("second-bright.ppm").toString());
+    assertEquals(PackedRGB.pack(210, 110, 10), second.getRGB(0, 0));
+    assertFalse(new File(output.toFile(), "notes-bright.txt").exists());
+    assertTrue(report.contains("FAILED"));
+    assertTrue(report.contains("Invalid Command Entered load " + input.resolve("broken.ppm")));
+    assertTrue(report.contains("Processed 3 files in "));
+    assertTrue(report.contains(" ms: 2 succeeded, 1 failed"));
+  }
+
+  @Test
+  public void testMissingTemplateIsReported() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Path directory = createDirectory();
+    new BatchProcessingController(directory.resolve("missing.txt").toString(),
+            directory.toString(), "*", directory.toString(), 1, new PrintStream(bytes)).execute();
+    assertTrue(bytes.toString().startsWith("Unable to start batch: "));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidWorkers() {
+    new BatchProcessingController("template.txt", "in", "*", "out", 0, System.out);
+  }
+}
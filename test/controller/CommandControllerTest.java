@@ -11,11 +11,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Set;
 
+import model.Histogram;
 import model.Image;
 import model.ImprovedImageProcessing;
+import model.OperationMonitor;
 import model.Pixel;
 import model.RGBImage;
+import model.ResultCache;
 import view.ImageProcessingTextView;
 import view.ImageProcessingTextViewImpl;
 
@@ -63,6 +67,11 @@ public class CommandControllerTest {
       return image;
     }
 
+    @Override
+    public void removeImage(String imageName) {
+      sb.append("Removed " + imageName);
+    }
+
     @Override
     public Image greyscale(String component, String sourceImageName, String destImageName) {
       sb.append("Received inputs " + component + ", " + sourceImageName + " and " + destImageName);
@@ -81,6 +90,20 @@ public class CommandControllerTest {
       return image;
     }
 
+    @Override
+    public Image transpose(String sourceImageName, String destImageName) {
+      sb.append("Received inputs " + sourceImageName + " and " + destImageName);
+      return image;
+    }
+
+    @Override
+    public Image crop(int x, int y, int width, int height, String sourceImageName,
+                      String destImageName) {
+      sb.append("Received inputs " + x + ", " + y + ", " + width + ", " + height + ", "
+              + sourceImageName + " and " + destImageName);
+      return image;
+    }
+
     @Override
     public Image brighten(int increment, String sourceImageName, String destImageName) {
       sb.append("Received inputs " + increment + ", " + sourceImageName + " and " + destImageName);
@@ -121,6 +144,53 @@ public class CommandControllerTest {
       sb.append("Received inputs " + sourceImageName + " and " + destImageName);
       return image;
     }
+
+    @Override
+    public Image orderedDither(String pattern, String sourceImageName, String destImageName) {
+      sb.append("Received inputs " + pattern + ", " + sourceImageName + " and " + destImageName);
+      return image;
+    }
+
+    @Override
+    public Image blur(int radius, String sourceImageName, String destImageName) {
+      sb.append("Received inputs " + radius + ", " + sourceImageName + " and " + destImageName);
+      return image;
+    }
+
+    @Override
+    public Image gaussianBlur(double sigma, String sourceImageName, String destImageName) {
+      sb.append("Received inputs " + sigma + ", " + sourceImageName + " and " + destImageName);
+      return image;
+    }
+
+    @Override
+    public void setParallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism must be at least 1");
+      }
+      sb.append("Received inputs " + parallelism);
+    }
+
+    @Override
+    public void setDeferred(boolean deferred) {
+      sb.append("Received inputs " + deferred);
+    }
+
+    @Override
+    public void setMonitor(OperationMonitor monitor) {
+      sb.append("Received inputs " + monitor);
+    }
+
+    @Override
+    public Histogram histogram(String imageName) {
+      sb.append("Received inputs " + imageName);
+      return null;
+    }
+
+    @Override
+    public ResultCache getResultCache() {
+      return null;
+    }
   }
 
 
@@ -155,6 +225,17 @@ public class CommandControllerTest {
     assertEquals("Received inputs " + b, mockLog.toString());
   }
 
+  @Test
+  public void testSaveToMissingDirectoryIsReported() {
+    InputStream in = new ByteArrayInputStream("save res/missing/image.ppm image".getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    new ImageProcessingControllerImpl(model, in, view).execute();
+    assertEquals("Received inputs image", mockLog.toString());
+    assertEquals("Invalid Command Entered save res/missing/image.ppm image\n", out.toString());
+  }
+
   @Test
   public void testHorizontalFlipCommand() {
     InputStream in = null;
@@ -564,6 +645,73 @@ public class CommandControllerTest {
     assertEquals("Received inputs " + a + " and " + b, mockLog.toString());
   }
 
+  @Test
+  public void testOrderedDitherCommand() {
+    InputStream in = new ByteArrayInputStream("ordered-dither bayer-8 image image-dither"
+            .getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("Received inputs bayer-8, image and image-dither", mockLog.toString());
+  }
+
+  @Test
+  public void testBlurWithRadiusAndGaussianBlurCommands() {
+    InputStream in = new ByteArrayInputStream(("blur 25 image image-box\n"
+            + "gaussian-blur 12.5 image image-gaussian\n"
+            + "gaussian-blur wide image image-gaussian").getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("Received inputs 25, image and image-box"
+            + "Received inputs 12.5, image and image-gaussian", mockLog.toString());
+  }
+
+  @Test
+  public void testPlannedScriptSkipsUnusedImages() {
+    InputStream in = new ByteArrayInputStream(("brighten 10 image bright\n"
+            + "blur image unused\n"
+            + "horizontal-flip bright flipped\n").getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view,
+            Set.of("flipped"), 1);
+    controller.execute();
+    assertEquals("Received inputs 10, image and bright" + "Removed image"
+            + "Received inputs bright and flipped" + "Removed bright", mockLog.toString());
+  }
+
+  @Test
+  public void testPlannedScriptWithOneThreadRunsOnCallingThread() {
+    InputStream in = new ByteArrayInputStream(("brighten 10 image a\n"
+            + "brighten 20 image b\n").getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    Thread caller = Thread.currentThread();
+    ImprovedImageProcessing model = new MockModel(mockLog) {
+      @Override
+      public Image brighten(int increment, String sourceImageName, String destImageName) {
+        assertEquals(caller, Thread.currentThread());
+        return super.brighten(increment, sourceImageName, destImageName);
+      }
+    };
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    new ImageProcessingControllerImpl(model, in, view, Set.of("a", "b"), 1).execute();
+    assertEquals("Received inputs 10, image and a" + "Received inputs 20, image and b"
+            + "Removed image",
+            mockLog.toString());
+    try {
+      new ImageProcessingControllerImpl(model, in, view, Set.of(), 0);
+      fail("Zero threads should be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testBlurCommand() {
     InputStream in = null;
@@ -626,4 +774,78 @@ public class CommandControllerTest {
     controller.execute();
     assertEquals("Received inputs luma-component, " + a + " and " + b, mockLog.toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testParallelismCommand() {
+    InputStream in = null;
+    String input = "parallelism 4";
+    in = new ByteArrayInputStream(input.getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("Received inputs 4", mockLog.toString());
+    assertEquals("Successfully executed command: " + input, out.toString().stripTrailing());
+  }
+
+  @Test
+  public void testInvalidParallelismCommand() {
+    InputStream in = null;
+    String input = "parallelism 0\nparallelism many";
+    in = new ByteArrayInputStream(input.getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("", mockLog.toString());
+    assertEquals("Invalid Command Entered parallelism 0\n"
+            + "Invalid Command Entered parallelism many", out.toString().stripTrailing());
+  }
+
+  @Test
+  public void testDeferredCommand() {
+    InputStream in = null;
+    String input = "deferred on\ndeferred off\ndeferred maybe";
+    in = new ByteArrayInputStream(input.getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("Received inputs trueReceived inputs false", mockLog.toString());
+    assertEquals("Successfully executed command: deferred on\n"
+            + "Successfully executed command: deferred off\n"
+            + "Invalid Command Entered deferred maybe", out.toString().stripTrailing());
+  }
+
+  @Test
+  public void testTransposeCommand() {
+    InputStream in = null;
+    String input = "transpose image image-transpose";
+    in = new ByteArrayInputStream(input.getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("Received inputs image and image-transpose", mockLog.toString());
+  }
+
+  @Test
+  public void testCropCommand() {
+    InputStream in = null;
+    String input = "crop 10 20 30 40 image image-crop\ncrop 10 20 thirty 40 image image-crop";
+    in = new ByteArrayInputStream(input.getBytes());
+    StringBuilder mockLog = new StringBuilder();
+    ImprovedImageProcessing model = new MockModel(mockLog);
+    ImageProcessingTextView view = new ImageProcessingTextViewImpl(new PrintStream(out));
+    ImageProcessingController controller = new ImageProcessingControllerImpl(model, in, view);
+    controller.execute();
+    assertEquals("Received inputs 10, 20, 30, 40, image and image-crop", mockLog.toString());
+    assertEquals("Successfully executed command: crop 10 20 30 40 image image-crop\n"
+            + "Invalid Command Entered crop 10 20 thirty 40 image image-crop",
+            out.toString().stripTrailing());
+  }
+}
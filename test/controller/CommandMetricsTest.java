@@ -0,0 +1,100 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import model.Image;
+import model.ImprovedImageProcessingImpl;
+import model.PackedRGBImage;
+import view.ImageProcessingTextViewImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class contains tests for CommandMetrics class.
+ */
+public class CommandMetricsTest {
+
+  @Test
+  public void testStatisticsByCommand() {
+    CommandMetrics metrics = new CommandMetrics();
+    Image image = new PackedRGBImage(40, 30, 255);
+    metrics.measure("blur a b", () -> List.of(image));
+    metrics.measure("blur b c", () -> null);
+    metrics.measure("rgb-split a r g b", () -> List.of(image, image, image));
+    String[] lines = metrics.format().split("\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[0].startsWith("command"));
+    assertTrue(lines[1].matches("blur +2 +1 .*"));
+    assertTrue(lines[2].matches("rgb-split +1 +0 .*"));
+  }
+
+  @Test
+  public void testFailedCommandIsRecordedAndThrown() {
+    CommandMetrics metrics = new CommandMetrics();
+    try {
+      metrics.measure("sepia a b", () -> {
+        throw new IllegalStateException("failed");
+      });
+      fail("The exception should be thrown");
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertTrue(metrics.format().split("\n")[1].matches("sepia +1 +1 .*"));
+  }
+
+  @Test
+  public void testLogs() throws IOException {
+    CommandMetrics metrics = new CommandMetrics();
+    metrics.setRecording(true);
+    metrics.measure("brighten 10 a \"b\"", () -> List.of(new PackedRGBImage(4, 3, 255)));
+    metrics.measure("load x.ppm x", () -> null);
+    File csv = File.createTempFile("metrics", ".csv");
+    File json = File.createTempFile("metrics", ".json");
+    csv.deleteOnExit();
+    json.deleteOnExit();
+    metrics.writeLog(csv.getPath());
+    metrics.writeLog(json.getPath());
+    List<String> rows = Files.readAllLines(csv.toPath());
+    assertEquals(3, rows.size());
+    assertTrue(rows.get(0).startsWith("command,line,wall_ms,cpu_ms,allocated_bytes"));
+    assertTrue(rows.get(1).matches("brighten,\"brighten 10 a \"\"b\"\"\",[0-9.]+,[0-9.]+,"
+            + "-?[0-9]+,4,3,12,[0-9.]+,true"));
+    assertTrue(rows.get(2).matches("load,\"load x.ppm x\",.*,0,0,0,[0-9.]+,false"));
+    String contents = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+    assertTrue(contents.startsWith("[\n{\"command\":\"brighten\","
+            + "\"line\":\"brighten 10 a \\\"b\\\"\",\"wallMillis\":"));
+    assertTrue(contents.contains("\"width\":4,\"height\":3,\"pixels\":12,"));
+    assertTrue(contents.endsWith("\"succeeded\":false}\n]\n"));
+  }
+
+  @Test
+  public void testStatsCommandAndMBeans() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ImageProcessingControllerImpl(new ImprovedImageProcessingImpl(),
+            new ByteArrayInputStream("load res/testFile.ppm t\ntranspose t u\nstats\n"
+                    .getBytes(StandardCharsets.UTF_8)),
+            new ImageProcessingTextViewImpl(new PrintStream(out))).execute();
+    String output = out.toString();
+    assertTrue(output.contains("\ncommand "));
+    assertTrue(output.contains("\ntranspose "));
+    assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(
+            new ObjectName("imageprocessing:type=CommandStats,name=\"transpose\"")));
+    long count = (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+            new ObjectName("imageprocessing:type=CommandStats,name=\"transpose\""), "Count");
+    assertTrue(count >= 1);
+  }
+}
@@ -0,0 +1,145 @@
+package controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import model.Image;
+import model.PackedRGB;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for ImageProcessingServer class.
+ */
+public class ImageProcessingServerTest {
+  private static final byte[] PPM = "P3 2 1 255\n10 20 30 40 50 60\n"
+          .getBytes(StandardCharsets.US_ASCII);
+
+  private ImageProcessingServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new ImageProcessingServer(0, 1 << 20, new PrintStream(new ByteArrayOutputStream()));
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  private HttpURLConnection post(String query, byte[] body) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+            + server.getPort() + "/process?" + query).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    return connection;
+  }
+
+  private static String script(String script) {
+    return "script=" + URLEncoder.encode(script, StandardCharsets.UTF_8);
+  }
+
+  private static String readAll(InputStream in) throws IOException {
+    try (in) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void testScriptIsRunOnUploadedImage() throws IOException {
+    HttpURLConnection connection = post(script("brighten 10 input bright\n"
+            + "horizontal-flip bright output") + "&format=ppm", PPM);
+    assertEquals(200, connection.getResponseCode());
+    Image image;
+    try (InputStream in = connection.getInputStream()) {
+      image = PPMCodec.read(in);
+    }
+    assertEquals(PackedRGB.pack(50, 60, 70), image.getRGB(0, 0));
+    assertEquals(PackedRGB.pack(20, 30, 40), image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testPngUploadAndOutputName() throws IOException {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageUtil.writeImage("png", png, PPMCodec.read(new ByteArrayInputStream(PPM)));
+    HttpURLConnection connection = post(script("greyscale red-component input red;")
+            + "&output=red", png.toByteArray());
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("image/png", connection.getContentType());
+    Image image = ImageUtil.readImage(connection.getInputStream());
+    assertEquals(PackedRGB.pack(40, 40, 40), image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testInvalidRequestsAreRejected() throws IOException {
+    HttpURLConnection connection = post(script("load secret.ppm input"), PPM);
+    assertEquals(400, connection.getResponseCode());
+    assertTrue(readAll(connection.getErrorStream()).startsWith("Command not allowed"));
+    connection = post(script("brighten x input output"), PPM);
+    assertEquals(400, connection.getResponseCode());
+    assertEquals("Invalid Command Entered brighten x input output\n",
+            readAll(connection.getErrorStream()));
+    connection = post(script("blur input output"), "not an image".getBytes(
+            StandardCharsets.US_ASCII));
+    assertEquals(415, connection.getResponseCode());
+    connection = post(script("blur input output"), "P6 1000 1000 255\n".getBytes(
+            StandardCharsets.US_ASCII));
+    assertEquals(413, connection.getResponseCode());
+  }
+
+  @Test
+  public void testBodyNeedsLengthWithinBudget() throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+            + server.getPort() + "/process?" + script("blur input output")).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setChunkedStreamingMode(16);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(PPM);
+    }
+    assertEquals(411, connection.getResponseCode());
+    // the body is rejected from its length, before it is sent
+    try (Socket socket = new Socket("localhost", server.getPort())) {
+      socket.getOutputStream().write(("POST /process?" + script("blur input output")
+              + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + (2 << 20) + "\r\n\r\n")
+              .getBytes(StandardCharsets.US_ASCII));
+      String response = new String(socket.getInputStream().readNBytes(12),
+              StandardCharsets.US_ASCII);
+      assertEquals("HTTP/1.1 413", response);
+    }
+  }
+
+  @Test
+  public void testStatsCountRequests() throws IOException {
+    post(script("blur input output"), PPM).getResponseCode();
+    post(script("run script.txt"), PPM).getResponseCode();
+    String stats = "";
+    // the latency of a request is recorded once its response is sent
+    for (int attempt = 0; attempt < 50 && !stats.contains("\"inFlight\":0"); attempt++) {
+      HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:"
+              + server.getPort() + "/stats").openConnection();
+      assertEquals(200, connection.getResponseCode());
+      stats = readAll(connection.getInputStream());
+    }
+    assertTrue(stats, stats.startsWith("{\"requests\":2,\"failures\":1,\"inFlight\":0,"));
+    assertTrue(stats, stats.contains("\"p99Millis\":"));
+  }
+}
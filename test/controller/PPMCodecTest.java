@@ -0,0 +1,155 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import model.Image;
+import model.MappedRGBImage;
+import model.PackedRGB;
+import model.PackedRGBImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for PPMCodec class.
+ */
+public class PPMCodecTest {
+
+  private File createFile(byte[] contents) throws IOException {
+    File file = File.createTempFile("codec", ".ppm");
+    file.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(contents);
+    }
+    return file;
+  }
+
+  private void assertSameImage(Image expected, Image actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getMaxValueOfColor(), actual.getMaxValueOfColor());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testReadPlainWithComments() throws IOException {
+    File file = createFile(("P3\n# first\n2 # width\n1\n\n255\n1 2 3 # pixel\n4 5 6\n")
+            .getBytes(StandardCharsets.US_ASCII));
+    Image image = PPMCodec.read(file.getPath());
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(PackedRGB.pack(1, 2, 3), image.getRGB(0, 0));
+    assertEquals(PackedRGB.pack(4, 5, 6), image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testRawRoundTrip() throws IOException {
+    Image original = ImageUtil.readPPM("res/dog.ppm");
+    File file = File.createTempFile("codec", ".ppm");
+    file.deleteOnExit();
+    PPMCodec.write(file.getPath(), original, true);
+    assertEquals(original.getWidth() * original.getHeight() * 3,
+            file.length() - "P6\n# Created by GIMP version 2.10.20 PNM plug-in\n200 201\n255\n"
+                    .length());
+    assertSameImage(original, PPMCodec.read(file.getPath()));
+  }
+
+  @Test
+  public void testMapRaw() throws IOException {
+    Image original = ImageUtil.readPPM("res/dog.ppm");
+    File file = File.createTempFile("codec", ".ppm");
+    file.deleteOnExit();
+    PPMCodec.write(file.getPath(), original, true);
+    Image mapped = PPMCodec.map(file.getPath());
+    assertTrue(mapped instanceof MappedRGBImage);
+    assertSameImage(original, mapped);
+  }
+
+  @Test
+  public void testMappedImageSavedOverItsOwnFile() throws IOException {
+    Image original = ImageUtil.readPPM("res/dog.ppm");
+    File file = File.createTempFile("codec", ".ppm");
+    file.deleteOnExit();
+    PPMCodec.write(file.getPath(), original, true);
+    Image mapped = PPMCodec.map(file.getPath());
+    PPMCodec.write(file.getPath(), mapped, true);
+    assertSameImage(original, mapped);
+    assertSameImage(original, PPMCodec.read(file.getPath()));
+    assertEquals(0, file.getParentFile().list((dir, name) -> name.startsWith("."
+            + file.getName())).length);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMapPlain() throws IOException {
+    PPMCodec.map("res/dog.ppm");
+  }
+
+  @Test
+  public void testPlainOutputMatchesOriginalFormat() throws IOException {
+    Image original = ImageUtil.readPPM("res/dog.ppm");
+    File file = File.createTempFile("codec", ".ppm");
+    file.deleteOnExit();
+    PPMCodec.write(file.getPath(), original, false);
+    String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+    assertTrue(contents.startsWith(
+            "P3\n# Created by GIMP version 2.10.20 PNM plug-in\n200 201\n255\n178\n"));
+    assertSameImage(original, PPMCodec.read(file.getPath()));
+  }
+
+  @Test
+  public void testReadSixteenBitRaw() throws IOException {
+    byte[] header = "P6 1 1 65535\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] contents = new byte[header.length + 6];
+    System.arraycopy(header, 0, contents, 0, header.length);
+    byte[] samples = {(byte) 0xFF, (byte) 0xFF, (byte) 0x80, 0x00, 0x00, 0x00};
+    System.arraycopy(samples, 0, contents, header.length, samples.length);
+    Image image = PPMCodec.read(createFile(contents).getPath());
+    assertEquals(255, image.getMaxValueOfColor());
+    assertEquals(PackedRGB.pack(255, 128, 0), image.getRGB(0, 0));
+  }
+
+  @Test
+  public void testLargeMaximumValueIsWrittenAsEightBits() throws IOException {
+    Image original = new PackedRGBImage(2, 1, 65535, new int[]{PackedRGB.pack(255, 128, 0),
+        PackedRGB.pack(1, 2, 3)});
+    for (boolean raw : new boolean[]{false, true}) {
+      File file = File.createTempFile("codec", ".ppm");
+      file.deleteOnExit();
+      PPMCodec.write(file.getPath(), original, raw);
+      String contents = new String(Files.readAllBytes(file.toPath()),
+              StandardCharsets.ISO_8859_1);
+      assertTrue(contents.contains("\n2 1\n255\n"));
+      Image image = PPMCodec.read(file.getPath());
+      assertEquals(255, image.getMaxValueOfColor());
+      assertEquals(original.getRGB(0, 0), image.getRGB(0, 0));
+      assertEquals(original.getRGB(0, 1), image.getRGB(0, 1));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadInvalidMagic() throws IOException {
+    PPMCodec.read(createFile("P5 1 1 255\n0".getBytes(StandardCharsets.US_ASCII)).getPath());
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadTruncatedRaw() throws IOException {
+    PPMCodec.read(createFile("P6 2 1 255\nabc".getBytes(StandardCharsets.US_ASCII)).getPath());
+  }
+
+  @Test
+  public void testReadComponentAboveMaximumReturnsNull() throws IOException {
+    File file = createFile("P3 1 1 15\n1 2 16\n".getBytes(StandardCharsets.US_ASCII));
+    assertNull(ImageUtil.readPPM(file.getPath()));
+  }
+}
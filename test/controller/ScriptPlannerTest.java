@@ -0,0 +1,60 @@
+package controller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class contains tests for ScriptPlanner class.
+ */
+public class ScriptPlannerTest {
+
+  private static List<String> describe(List<ScriptPlanner.Step> steps) {
+    List<String> lines = new ArrayList<>();
+    for (ScriptPlanner.Step step : steps) {
+      lines.add(step.getLine() + " " + step.getReleased());
+    }
+    return lines;
+  }
+
+  @Test
+  public void testUnusedCommandsAreDroppedAndImagesReleased() {
+    List<ScriptPlanner.Step> steps = ScriptPlanner.plan(List.of(
+            "load dog.ppm dog",
+            "parallelism 2",
+            "brighten 10 dog bright",
+            "blur dog unused",
+            "rgb-split bright red green blue",
+            "save red.ppm red",
+            "sepia green  sepia",
+            "invalid command",
+            "save sepia.png sepia",
+            "load other.ppm other"), Set.of());
+    assertEquals(List.of(
+            "load dog.ppm dog []",
+            "parallelism 2 []",
+            "brighten 10 dog bright [dog]",
+            "rgb-split bright red green blue [bright, blue]",
+            "save red.ppm red [red]",
+            "sepia green  sepia [green]",
+            "invalid command []",
+            "save sepia.png sepia [sepia]"), describe(steps));
+  }
+
+  @Test
+  public void testKeptImagesAreNeitherDroppedNorReleased() {
+    List<ScriptPlanner.Step> steps = ScriptPlanner.plan(List.of(
+            "brighten 10 input input",
+            "crop 0 0 2 2 input corner",
+            "greyscale luma-component corner output",
+            "transpose input unused"), Set.of("output"));
+    assertEquals(List.of(
+            "brighten 10 input input []",
+            "crop 0 0 2 2 input corner [input]",
+            "greyscale luma-component corner output [corner]"), describe(steps));
+  }
+}
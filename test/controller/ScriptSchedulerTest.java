@@ -0,0 +1,144 @@
+package controller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import view.ImageProcessingTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for ScriptScheduler class.
+ */
+public class ScriptSchedulerTest {
+
+  /**
+   * Text view which records the messages it displays.
+   */
+  private static class Log implements ImageProcessingTextView {
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void displayErrorMessage(String command) {
+      messages.add("error " + command);
+    }
+
+    @Override
+    public void displayErrorWhileRunningScriptFile(String error, String command) {
+      messages.add("script error " + command);
+    }
+
+    @Override
+    public void displaySuccessMessage(String command) {
+      messages.add("success " + command);
+    }
+
+    @Override
+    public void displayStats(String stats) {
+      messages.add("stats");
+    }
+  }
+
+  @Test
+  public void testIndependentBranchesRunConcurrentlyAndReportInOrder() {
+    List<ScriptPlanner.Step> steps = ScriptPlanner.plan(List.of(
+            "load dog.ppm dog",
+            "blur dog blurred",
+            "sepia dog toned",
+            "save toned.png toned",
+            "save blurred.png blurred",
+            "bad command"), Set.of());
+    Log log = new Log();
+    List<String> finished = Collections.synchronizedList(new ArrayList<>());
+    Set<String> released = ConcurrentHashMap.newKeySet();
+    CountDownLatch sepiaFinished = new CountDownLatch(1);
+    new ScriptScheduler(log, (step, view) -> {
+      try {
+        // blur waits for sepia, which only the concurrent schedule allows
+        if (step.getTokens()[0].equals("blur")) {
+          assertTrue(sepiaFinished.await(5, TimeUnit.SECONDS));
+        }
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      if (step.getTokens()[0].equals("bad")) {
+        view.displayErrorMessage(step.getLine());
+      } else {
+        view.displaySuccessMessage(step.getLine());
+      }
+      finished.add(step.getLine());
+      if (step.getTokens()[0].equals("sepia")) {
+        sepiaFinished.countDown();
+      }
+    }, released::add).run(steps, 3);
+    assertEquals(List.of("success load dog.ppm dog", "success blur dog blurred",
+            "success sepia dog toned", "success save toned.png toned",
+            "success save blurred.png blurred", "error bad command"), log.messages);
+    assertTrue(finished.indexOf("sepia dog toned") < finished.indexOf("blur dog blurred"));
+    assertTrue(finished.indexOf("blur dog blurred") < finished.indexOf("save blurred.png blurred"));
+    assertEquals(Set.of("dog", "blurred", "toned"), released);
+  }
+
+  @Test
+  public void testParallelismCommandIsBarrier() {
+    List<ScriptPlanner.Step> steps = ScriptPlanner.plan(List.of(
+            "load a.ppm a",
+            "save b.ppm a",
+            "parallelism 1",
+            "load b.ppm b",
+            "brighten 10 b c",
+            "save c.ppm c"), Set.of());
+    Log log = new Log();
+    List<String> threads = Collections.synchronizedList(new ArrayList<>());
+    new ScriptScheduler(log, (step, view) -> {
+      threads.add(step.getLine() + " " + (Thread.currentThread().getName().startsWith("pool")));
+      view.displaySuccessMessage(step.getLine());
+    }, name -> { }).run(steps, 2);
+    assertEquals(List.of("load a.ppm a true", "save b.ppm a true", "parallelism 1 false",
+            "load b.ppm b false", "brighten 10 b c false", "save c.ppm c false"), threads);
+    assertEquals(6, log.messages.size());
+  }
+
+  @Test
+  public void testReusedNameWaitsForRelease() {
+    List<ScriptPlanner.Step> steps = ScriptPlanner.plan(List.of(
+            "load in.ppm a",
+            "blur a b",
+            "save x.ppm b",
+            "brighten 10 a b",
+            "save y.ppm b"), Set.of());
+    Log log = new Log();
+    Set<String> images = ConcurrentHashMap.newKeySet();
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    new ScriptScheduler(log, (step, view) -> {
+      String[] tokens = step.getTokens();
+      if (tokens[0].equals("save") && !images.contains(tokens[2])) {
+        view.displayErrorMessage(step.getLine());
+        return;
+      }
+      images.add(tokens[tokens.length - 1]);
+      events.add(step.getLine());
+      view.displaySuccessMessage(step.getLine());
+    }, name -> {
+      try {
+        // a slow release would remove the image written after it
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      images.remove(name);
+      events.add("released " + name);
+    }).run(steps, 4);
+    assertEquals(List.of("success load in.ppm a", "success blur a b", "success save x.ppm b",
+            "success brighten 10 a b", "success save y.ppm b"), log.messages);
+    assertTrue(events.indexOf("released b") < events.indexOf("brighten 10 a b"));
+  }
+}
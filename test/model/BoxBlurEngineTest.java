@@ -0,0 +1,146 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for BoxBlurEngine class and the box and Gaussian blurs of the model.
+ */
+public class BoxBlurEngineTest {
+
+  private PackedRGBImage createImage(int width, int height) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919 ^ i >> 5) & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  /**
+   * Averages the pixels of every window of every row, then of every column, summing the whole
+   * window of each pixel.
+   */
+  private int[] blurDirectly(Image image, int[] radii) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] channels = new int[3][width * height];
+    for (int i = 0; i < width * height; i++) {
+      int rgb = image.getRGB(i / width, i % width);
+      channels[0][i] = PackedRGB.red(rgb);
+      channels[1][i] = PackedRGB.green(rgb);
+      channels[2][i] = PackedRGB.blue(rgb);
+    }
+    for (int[] channel : channels) {
+      for (int radius : radii) {
+        int[] rows = channel.clone();
+        for (int i = 0; i < width * height; i++) {
+          int x = i % width;
+          int sum = 0;
+          int count = 0;
+          for (int k = Math.max(0, x - radius); k <= Math.min(width - 1, x + radius); k++) {
+            sum += rows[i - x + k];
+            count++;
+          }
+          channel[i] = (2 * sum + count) / (2 * count);
+        }
+      }
+      for (int radius : radii) {
+        int[] columns = channel.clone();
+        for (int i = 0; i < width * height; i++) {
+          int y = i / width;
+          int sum = 0;
+          int count = 0;
+          for (int k = Math.max(0, y - radius); k <= Math.min(height - 1, y + radius); k++) {
+            sum += columns[(k - y) * width + i];
+            count++;
+          }
+          channel[i] = (2 * sum + count) / (2 * count);
+        }
+      }
+    }
+    int[] expected = new int[width * height];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = PackedRGB.pack(channels[0][i], channels[1][i], channels[2][i]);
+    }
+    return expected;
+  }
+
+  private int[] blur(Image image, int[] radii, int parallelism) {
+    int size = image.getWidth() * image.getHeight();
+    return BoxBlurEngine.blur(image, radii, new ParallelExecutor(parallelism), new int[size],
+            new int[size]).getData();
+  }
+
+  @Test
+  public void testBlurMatchesDirectAverages() {
+    Image image = createImage(131, 97);
+    int[][] cases = {{0}, {1}, {7}, {60}, {1000}, {2, 3}, {1, 4, 4}};
+    for (int[] radii : cases) {
+      int[] expected = blurDirectly(image, radii);
+      for (int parallelism = 1; parallelism <= 4; parallelism += 3) {
+        assertArrayEquals(Arrays.toString(radii), expected, blur(image, radii, parallelism));
+      }
+    }
+  }
+
+  @Test
+  public void testUniformImageKeepsItsColorAtTheEdges() {
+    int[] data = new int[80 * 50];
+    Arrays.fill(data, PackedRGB.pack(200, 120, 40));
+    int[] blurred = blur(new PackedRGBImage(80, 50, 255, data), new int[]{30, 30, 30}, 2);
+    assertArrayEquals(data, blurred);
+  }
+
+  @Test
+  public void testGaussianRadiiApproximateVariance() {
+    assertArrayEquals(new int[]{0, 0, 0}, BoxBlurEngine.gaussianRadii(0));
+    assertArrayEquals(new int[]{1, 1, 2}, BoxBlurEngine.gaussianRadii(2));
+    for (double sigma = 1; sigma < 200; sigma *= 1.7) {
+      double variance = 0;
+      int[] radii = BoxBlurEngine.gaussianRadii(sigma);
+      for (int radius : radii) {
+        assertTrue(radii[0] <= radius && radius <= radii[0] + 1);
+        variance += ((2.0 * radius + 1) * (2 * radius + 1) - 1) / 12;
+      }
+      assertEquals(sigma * sigma, variance, (radii[0] + 1) / 3.0 + 1e-9);
+    }
+  }
+
+  @Test
+  public void testMappedImageIsBlurredLikeImageInMemory() throws IOException {
+    PackedRGBImage image = createImage(211, 173);
+    MappedRGBImage mapped = MappedRGBImage.create(211, 173, 255);
+    for (int y = 0; y < 173; y++) {
+      mapped.writeRow(y, image.getData(), y * 211);
+    }
+    int[] radii = BoxBlurEngine.gaussianRadii(9);
+    MappedRGBImage blurred = MappedImageEngine.boxBlur(mapped, radii, new ParallelExecutor(3));
+    assertArrayEquals(blur(image, radii, 1), PackedRGBImage.of(blurred).getData());
+  }
+
+  @Test
+  public void testModelBlurs() {
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    model.loadImage(createImage(60, 40), "image");
+    assertNull(model.blur(-1, "image", "box"));
+    assertNull(model.gaussianBlur(-2, "image", "gaussian"));
+    assertNull(model.gaussianBlur(Double.NaN, "image", "gaussian"));
+    assertNull(model.blur(3, "missing", "box"));
+    Image box = model.blur(5, "image", "box");
+    assertArrayEquals(blurDirectly(createImage(60, 40), new int[]{5}),
+            PackedRGBImage.of(box).getData());
+    Image gaussian = model.gaussianBlur(2, "image", "gaussian");
+    assertArrayEquals(blurDirectly(createImage(60, 40), new int[]{1, 1, 2}),
+            PackedRGBImage.of(gaussian).getData());
+    assertSame(gaussian, model.saveImage("gaussian"));
+    assertSame(gaussian, model.gaussianBlur(1.9, "image", "similar"));
+  }
+}
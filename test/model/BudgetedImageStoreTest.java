@@ -0,0 +1,126 @@
+package model;
+
+import org.junit.Test;
+
+import controller.ImageUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for BudgetedImageStore class.
+ */
+public class BudgetedImageStoreTest {
+
+  private Image createImage(int width, int height, int seed) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 2654435 + seed) & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  private void assertSameImage(Image expected, Image actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getMaxValueOfColor(), actual.getMaxValueOfColor());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedImageIsSpilledAndReloaded() {
+    BudgetedImageStore store = new BudgetedImageStore(2 * 4 * 100 * 100);
+    Image first = createImage(100, 100, 1);
+    Image second = createImage(100, 100, 2);
+    Image third = createImage(100, 100, 3);
+    store.put("first", first);
+    store.put("second", second);
+    store.get("first");
+    store.put("third", third);
+    assertTrue(store.isSpilled("second"));
+    assertFalse(store.isSpilled("first"));
+    assertEquals(2 * 4 * 100 * 100, store.getResidentBytes());
+    assertSameImage(second, store.get("second"));
+    assertFalse(store.isSpilled("second"));
+    assertTrue(store.isSpilled("first"));
+    assertSameImage(first, store.get("first"));
+    assertSameImage(third, store.get("third"));
+  }
+
+  @Test
+  public void testImageLargerThanBudgetStaysInMemory() {
+    BudgetedImageStore store = new BudgetedImageStore(0);
+    Image image = createImage(300, 301, 4);
+    store.put("image", image);
+    assertFalse(store.isSpilled("image"));
+    store.put("other", createImage(2, 2, 5));
+    assertTrue(store.isSpilled("image"));
+    assertSameImage(image, store.get("image"));
+  }
+
+  @Test
+  public void testRemoveAndReplace() {
+    BudgetedImageStore store = new BudgetedImageStore(0);
+    store.put("image", createImage(10, 10, 6));
+    store.put("other", createImage(10, 10, 7));
+    store.remove("image");
+    assertNull(store.get("image"));
+    Image replacement = createImage(5, 5, 8);
+    store.put("other", replacement);
+    assertEquals(4 * 5 * 5, store.getResidentBytes());
+    assertSameImage(replacement, store.get("other"));
+  }
+
+  @Test
+  public void testSharedPixelsAreCountedOnceAndSpilledByLastHolder() {
+    BudgetedImageStore store = new BudgetedImageStore(4 * 100 * 100);
+    Image image = createImage(100, 100, 9);
+    PackedImageView flipped = PackedImageView.of(image).flipHorizontal();
+    LazyImage brighter = LazyImage.map(image, rgb -> rgb ^ 0x010101, new ParallelExecutor(1));
+    store.put("image", image);
+    store.put("flipped", flipped);
+    store.put("brighter", brighter);
+    assertEquals(4 * 100 * 100, store.getResidentBytes());
+    store.put("other", createImage(10, 10, 10));
+    assertFalse(store.isSpilled("image"));
+    assertFalse(store.isSpilled("flipped"));
+    assertFalse(brighter.isMaterialized());
+    store.remove("image");
+    store.remove("brighter");
+    store.put("last", createImage(10, 10, 11));
+    assertTrue(store.isSpilled("flipped"));
+    assertEquals(2 * 4 * 10 * 10, store.getResidentBytes());
+    assertSameImage(flipped, store.get("flipped"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new BudgetedImageStore(-1);
+  }
+
+  @Test
+  public void testModelWithSmallBudgetMatchesUnbounded() {
+    ImprovedImageProcessing unbounded = new ImprovedImageProcessingImpl();
+    ImprovedImageProcessing budgeted = new ImprovedImageProcessingImpl(
+            new BudgetedImageStore(1));
+    for (ImprovedImageProcessing model : new ImprovedImageProcessing[]{unbounded, budgeted}) {
+      model.loadImage(ImageUtil.readPPM("res/dog.ppm"), "dog");
+      model.filtering("blur", "dog", "blur");
+      model.brighten(40, "blur", "bright");
+      model.horizontalFlip("dog", "flip");
+      model.rgbSplit("bright", "r", "g", "b");
+      model.rgbCombine("combined", "r", "flip", "b");
+      model.dither("dog", "dither");
+    }
+    for (String name : new String[]{"blur", "bright", "flip", "combined", "dither"}) {
+      assertSameImage(unbounded.saveImage(name), budgeted.saveImage(name));
+    }
+    assertNull(budgeted.saveImage("greyscaleImage"));
+  }
+}
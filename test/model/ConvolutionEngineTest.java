@@ -0,0 +1,75 @@
+package model;
+
+import org.junit.Test;
+
+import controller.ImageUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for Kernel and ConvolutionEngine classes.
+ */
+public class ConvolutionEngineTest {
+
+  @Test
+  public void testSeparableKernelIsDetected() {
+    Kernel blur = new Kernel(new int[][]{{1, 2, 1}, {2, 4, 2}, {1, 2, 1}}, 4);
+    assertTrue(blur.isSeparable());
+    Kernel box = new Kernel(new int[][]{{3, 3, 3}, {3, 3, 3}, {3, 3, 3}}, 5);
+    assertTrue(box.isSeparable());
+  }
+
+  @Test
+  public void testNonSeparableKernelIsDetected() {
+    Kernel sharpen = new Kernel(new int[][]{
+        {-1, -1, -1, -1, -1},
+        {-1, 2, 2, 2, -1},
+        {-1, 2, 8, 2, -1},
+        {-1, 2, 2, 2, -1},
+        {-1, -1, -1, -1, -1}}, 3);
+    assertFalse(sharpen.isSeparable());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEvenKernelIsRejected() {
+    new Kernel(new int[][]{{1, 1}, {1, 1}}, 2);
+  }
+
+  @Test
+  public void testSeparableMatchesDirectConvolution() {
+    Image image = ImageUtil.readPPM("res/dog.ppm");
+    int[][] weights = new int[][]{
+        {1, 4, 6, 4, 1},
+        {2, 8, 12, 8, 2},
+        {1, 4, 6, 4, 1}};
+    Kernel kernel = new Kernel(weights, 6);
+    assertTrue(kernel.isSeparable());
+    Image filtered = ConvolutionEngine.apply(image, kernel);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(directConvolution(image, weights, 6, i, j), filtered.getRGB(i, j));
+      }
+    }
+  }
+
+  private int directConvolution(Image image, int[][] weights, int shift, int row, int column) {
+    int[] sums = new int[3];
+    for (int i = 0; i < weights.length; i++) {
+      for (int j = 0; j < weights[0].length; j++) {
+        int y = row + i - weights.length / 2;
+        int x = column + j - weights[0].length / 2;
+        if (y >= 0 && y < image.getHeight() && x >= 0 && x < image.getWidth()) {
+          int rgb = image.getRGB(y, x);
+          sums[0] += weights[i][j] * PackedRGB.red(rgb);
+          sums[1] += weights[i][j] * PackedRGB.green(rgb);
+          sums[2] += weights[i][j] * PackedRGB.blue(rgb);
+        }
+      }
+    }
+    int half = 1 << (shift - 1);
+    return PackedRGB.pack(PackedRGB.clamp((sums[0] + half) >> shift),
+            PackedRGB.clamp((sums[1] + half) >> shift), PackedRGB.clamp((sums[2] + half) >> shift));
+  }
+}
@@ -0,0 +1,186 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for DitherEngine class.
+ */
+public class DitherEngineTest {
+
+  private int[] sequentialDither(Image image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] values = new int[width * height];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int rgb = image.getRGB(i, j);
+        values[i * width + j] = PackedRGB.luma(PackedRGB.red(rgb), PackedRGB.green(rgb),
+                PackedRGB.blue(rgb));
+      }
+    }
+    int[] result = new int[width * height];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int index = i * width + j;
+        int newColor = values[index] >= 128 ? 255 : 0;
+        int error = values[index] - newColor;
+        result[index] = newColor;
+        if (j + 1 < width) {
+          values[index + 1] += error * 7 / 16;
+        }
+        if (i + 1 < height && j > 0) {
+          values[index + width - 1] += error * 3 / 16;
+        }
+        if (i + 1 < height) {
+          values[index + width] += error * 5 / 16;
+        }
+        if (i + 1 < height && j + 1 < width) {
+          values[index + width + 1] += error / 16;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Image createImage(int width, int height) {
+    Random random = new Random(7);
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextInt() & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  private void assertDither(int[] expected, Image actual) {
+    for (int i = 0; i < actual.getHeight(); i++) {
+      for (int j = 0; j < actual.getWidth(); j++) {
+        int value = expected[i * actual.getWidth() + j];
+        assertEquals(PackedRGB.pack(value, value, value), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testSingleThreadMatchesSequentialDither() {
+    Image image = createImage(37, 23);
+    assertDither(sequentialDither(image), DitherEngine.floydSteinberg(image));
+  }
+
+  @Test
+  public void testWavefrontMatchesSequentialDither() {
+    Image image = createImage(517, 389);
+    int[] expected = sequentialDither(image);
+    for (int parallelism = 2; parallelism <= 8; parallelism *= 2) {
+      assertDither(expected,
+              DitherEngine.floydSteinberg(image, new ParallelExecutor(parallelism)));
+    }
+  }
+
+  @Test
+  public void testMidGreyIsHalfWhite() {
+    int[] data = new int[64 * 64];
+    Arrays.fill(data, PackedRGB.pack(128, 128, 128));
+    Image image = DitherEngine.floydSteinberg(new PackedRGBImage(64, 64, 255, data));
+    int white = 0;
+    for (int i = 0; i < 64; i++) {
+      for (int j = 0; j < 64; j++) {
+        white += PackedRGB.red(image.getRGB(i, j)) / 255;
+      }
+    }
+    assertEquals(0.5, white / (64.0 * 64.0), 0.02);
+  }
+
+  private int countWhite(String pattern, int grey) {
+    int[] data = new int[64 * 64];
+    Arrays.fill(data, PackedRGB.pack(grey, grey, grey));
+    Image image = DitherEngine.ordered(new PackedRGBImage(64, 64, 255, data), pattern,
+            new ParallelExecutor(1));
+    int white = 0;
+    for (int i = 0; i < 64; i++) {
+      for (int j = 0; j < 64; j++) {
+        int rgb = image.getRGB(i, j);
+        assertTrue(rgb == PackedRGB.pack(0, 0, 0) || rgb == PackedRGB.pack(255, 255, 255));
+        white += PackedRGB.red(rgb) / 255;
+      }
+    }
+    return white;
+  }
+
+  private void assertPermutation(int[] ranks) {
+    int[] sorted = ranks.clone();
+    Arrays.sort(sorted);
+    for (int k = 0; k < sorted.length; k++) {
+      assertEquals(k, sorted[k]);
+    }
+  }
+
+  @Test
+  public void testBayerMatrices() {
+    assertArrayEquals(new int[]{0, 2, 3, 1}, DitherEngine.bayer(1));
+    assertArrayEquals(new int[]{
+        0, 8, 2, 10,
+        12, 4, 14, 6,
+        3, 11, 1, 9,
+        15, 7, 13, 5}, DitherEngine.bayer(2));
+    for (int order = 3; order <= 4; order++) {
+      assertPermutation(DitherEngine.bayer(order));
+    }
+  }
+
+  @Test
+  public void testBlueNoiseTileSpreadsLowRanks() {
+    int[] ranks = DitherEngine.voidAndCluster(64, 1.5, 1);
+    assertPermutation(ranks);
+    int minimum = Integer.MAX_VALUE;
+    for (int a = 0; a < ranks.length; a++) {
+      for (int b = a + 1; b < ranks.length; b++) {
+        if (ranks[a] < 64 && ranks[b] < 64) {
+          int dy = Math.abs(a / 64 - b / 64);
+          int dx = Math.abs(a % 64 - b % 64);
+          dy = Math.min(dy, 64 - dy);
+          dx = Math.min(dx, 64 - dx);
+          minimum = Math.min(minimum, dy * dy + dx * dx);
+        }
+      }
+    }
+    assertTrue(minimum >= 16);
+  }
+
+  @Test
+  public void testOrderedDitherPreservesGreyLevel() {
+    String[] patterns = {"bayer-2", "bayer-4", "bayer-8", "bayer-16", "blue-noise"};
+    int[] tileSizes = {2, 4, 8, 16, 64};
+    for (int k = 0; k < patterns.length; k++) {
+      double tiles = 64.0 * 64.0 / (tileSizes[k] * tileSizes[k]);
+      for (int grey = 0; grey <= 255; grey += 15) {
+        assertEquals(patterns[k] + " " + grey, grey * 64 * 64 / 255.0,
+                countWhite(patterns[k], grey), tiles / 2 + 0.001);
+      }
+    }
+  }
+
+  @Test
+  public void testOrderedDitherIsIndependentOfParallelism() {
+    Image image = createImage(517, 389);
+    Image expected = DitherEngine.ordered(image, "blue-noise", new ParallelExecutor(1));
+    Image actual = DitherEngine.ordered(image, "blue-noise", new ParallelExecutor(4));
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testOrderedDitherInvalidPattern() {
+    assertNull(DitherEngine.ordered(createImage(4, 4), "bayer-3", new ParallelExecutor(1)));
+  }
+}
@@ -0,0 +1,83 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class contains tests for Histogram class and the histograms of the model.
+ */
+public class HistogramTest {
+
+  private PackedRGBImage createImage(int width, int height) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919 ^ i >> 4) & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  private long[][] countSequentially(Image image) {
+    long[][] counts = new long[5][256];
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        int rgb = image.getRGB(i, j);
+        int red = PackedRGB.red(rgb);
+        int green = PackedRGB.green(rgb);
+        int blue = PackedRGB.blue(rgb);
+        counts[0][red]++;
+        counts[1][green]++;
+        counts[2][blue]++;
+        counts[3][PackedRGB.luma(red, green, blue)]++;
+        counts[4][PackedRGB.intensity(red, green, blue)]++;
+      }
+    }
+    return counts;
+  }
+
+  private void assertHistogram(long[][] expected, Histogram actual) {
+    assertArrayEquals(expected[0], actual.getRed());
+    assertArrayEquals(expected[1], actual.getGreen());
+    assertArrayEquals(expected[2], actual.getBlue());
+    assertArrayEquals(expected[3], actual.getLuma());
+    assertArrayEquals(expected[4], actual.getIntensity());
+  }
+
+  @Test
+  public void testCountsAreIndependentOfParallelism() {
+    Image image = createImage(517, 389);
+    long[][] expected = countSequentially(image);
+    for (int parallelism = 1; parallelism <= 8; parallelism *= 2) {
+      assertHistogram(expected, Histogram.of(image, new ParallelExecutor(parallelism)));
+    }
+  }
+
+  @Test
+  public void testCountsOfViewsAndDeferredImages() {
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    model.setDeferred(true);
+    model.loadImage(createImage(300, 200), "image");
+    Image flipped = model.horizontalFlip("image", "flipped");
+    Image bright = model.brighten(30, "image", "bright");
+    assertHistogram(countSequentially(flipped), model.histogram("flipped"));
+    assertHistogram(countSequentially(bright), model.histogram("bright"));
+  }
+
+  @Test
+  public void testHistogramIsKeptUntilImageIsReplaced() {
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    assertNull(model.histogram("image"));
+    model.loadImage(createImage(40, 30), "image");
+    Histogram histogram = model.histogram("image");
+    assertSame(histogram, model.histogram("image"));
+    model.colorTransformation("sepia", "image", "image");
+    Histogram replaced = model.histogram("image");
+    assertNotSame(histogram, replaced);
+    assertHistogram(countSequentially(model.saveImage("image")), replaced);
+    model.removeImage("image");
+    assertNull(model.histogram("image"));
+  }
+}
@@ -3,11 +3,16 @@ package model;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.function.Function;
+
 import controller.commands.ImageCommandController;
 import controller.commands.Load;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * This class contains tests for ImprovedImageProcessing model class.
@@ -26,14 +31,14 @@ public class ImprovedImageProcessingImplTest {
     Image original = controller.execute(model).get(0);
     Image blurredImage = model.filtering("blur", "test",
             "blurredImage");
-    assertEquals(21, blurredImage.getPixels()[0][0].getColorComponent().getRedComponent());
-    assertEquals(32, blurredImage.getPixels()[0][1].getColorComponent()
+    assertEquals(23, blurredImage.getPixels()[0][0].getColorComponent().getRedComponent());
+    assertEquals(34, blurredImage.getPixels()[0][1].getColorComponent()
             .getGreenComponent());
-    assertEquals(72, blurredImage.getPixels()[1][0].getColorComponent().getBlueComponent());
-    assertEquals(66, blurredImage.getPixels()[1][1].getColorComponent().getRedComponent());
-    assertEquals(72, blurredImage.getPixels()[2][0].getColorComponent()
+    assertEquals(75, blurredImage.getPixels()[1][0].getColorComponent().getBlueComponent());
+    assertEquals(68, blurredImage.getPixels()[1][1].getColorComponent().getRedComponent());
+    assertEquals(73, blurredImage.getPixels()[2][0].getColorComponent()
             .getGreenComponent());
-    assertEquals(83, blurredImage.getPixels()[2][1].getColorComponent().getBlueComponent());
+    assertEquals(84, blurredImage.getPixels()[2][1].getColorComponent().getBlueComponent());
   }
 
   @Test
@@ -42,13 +47,13 @@ public class ImprovedImageProcessingImplTest {
     Image original = controller.execute(model).get(0);
     Image sharpenImage = model.filtering("sharpen", "test",
             "sharpenImage");
-    assertEquals(25, sharpenImage.getPixels()[0][0].getColorComponent().getRedComponent());
-    assertEquals(62, sharpenImage.getPixels()[0][1].getColorComponent()
+    assertEquals(26, sharpenImage.getPixels()[0][0].getColorComponent().getRedComponent());
+    assertEquals(64, sharpenImage.getPixels()[0][1].getColorComponent()
             .getGreenComponent());
-    assertEquals(224, sharpenImage.getPixels()[1][0].getColorComponent()
+    assertEquals(225, sharpenImage.getPixels()[1][0].getColorComponent()
             .getBlueComponent());
-    assertEquals(201, sharpenImage.getPixels()[1][1].getColorComponent().getRedComponent());
-    assertEquals(219, sharpenImage.getPixels()[2][0].getColorComponent()
+    assertEquals(203, sharpenImage.getPixels()[1][1].getColorComponent().getRedComponent());
+    assertEquals(221, sharpenImage.getPixels()[2][0].getColorComponent()
             .getGreenComponent());
     assertEquals(255, sharpenImage.getPixels()[2][1].getColorComponent()
             .getBlueComponent());
@@ -96,10 +101,28 @@ public class ImprovedImageProcessingImplTest {
     assertEquals(0, ditherImage.getPixels()[0][0].getColorComponent().getRedComponent());
     assertEquals(0, ditherImage.getPixels()[0][1].getColorComponent().getGreenComponent());
     assertEquals(0, ditherImage.getPixels()[1][0].getColorComponent().getBlueComponent());
-    assertEquals(0, ditherImage.getPixels()[1][1].getColorComponent().getRedComponent());
+    assertEquals(255, ditherImage.getPixels()[1][1].getColorComponent().getRedComponent());
     assertEquals(255, ditherImage.getPixels()[2][0].getColorComponent()
             .getGreenComponent());
-    assertEquals(255, ditherImage.getPixels()[2][1].getColorComponent().getBlueComponent());
+    assertEquals(0, ditherImage.getPixels()[2][1].getColorComponent().getBlueComponent());
+  }
+
+  @Test
+  public void testOrderedDitherImage() {
+    ImageCommandController controller = new Load("res/testFile.ppm", "test");
+    Image original = controller.execute(model).get(0);
+    Image ditherImage = model.orderedDither("bayer-2", "test", "orderedDitherImage");
+    for (int i = 0; i < original.getHeight(); i++) {
+      for (int j = 0; j < original.getWidth(); j++) {
+        int luma = PackedRGB.luma(PackedRGB.red(original.getRGB(i, j)),
+                PackedRGB.green(original.getRGB(i, j)), PackedRGB.blue(original.getRGB(i, j)));
+        int threshold = new int[]{32, 160, 224, 96}[(i % 2) * 2 + j % 2];
+        int value = luma >= threshold ? 255 : 0;
+        assertEquals(PackedRGB.pack(value, value, value), ditherImage.getRGB(i, j));
+      }
+    }
+    assertNull(model.orderedDither("bayer-5", "test", "orderedDitherImage"));
+    assertNull(model.orderedDither("bayer-2", "NullImage", "orderedDitherImage"));
   }
 
   @Test
@@ -128,6 +151,96 @@ public class ImprovedImageProcessingImplTest {
             "DitheredImage");
     assertNull(ditheredImage);
   }
-}
 
+  @Test
+  public void testParallelOperationsMatchSequential() {
+    ImprovedImageProcessing sequential = new ImprovedImageProcessingImpl();
+    sequential.setParallelism(1);
+    model.setParallelism(4);
+    new Load("res/dog.ppm", "dog").execute(sequential);
+    new Load("res/dog.ppm", "dog").execute(model);
+    List<Function<ImprovedImageProcessing, Image>> operations = List.of(
+        m -> m.filtering("blur", "dog", "result"),
+        m -> m.filtering("sharpen", "dog", "result"),
+        m -> m.colorTransformation("sepia", "dog", "result"),
+        m -> m.brighten(30, "dog", "result"),
+        m -> m.greyscale("luma-component", "dog", "result"),
+        m -> m.horizontalFlip("dog", "result"),
+        m -> m.verticalFlip("dog", "result"),
+        m -> m.rgbCombine("result", "dog", "dog", "dog"));
+    for (Function<ImprovedImageProcessing, Image> operation : operations) {
+      Image expected = operation.apply(sequential);
+      Image actual = operation.apply(model);
+      for (int i = 0; i < expected.getHeight(); i++) {
+        for (int j = 0; j < expected.getWidth(); j++) {
+          assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    model.setParallelism(0);
+  }
+
+  @Test
+  public void testDeferredChainMatchesEager() {
+    ImprovedImageProcessing eager = new ImprovedImageProcessingImpl();
+    model.setDeferred(true);
+    new Load("res/dog.ppm", "dog").execute(eager);
+    new Load("res/dog.ppm", "dog").execute(model);
+    List<Function<ImprovedImageProcessing, Image>> steps = List.of(
+        m -> m.brighten(50, "dog", "a"),
+        m -> m.greyscale("luma-component", "a", "b"),
+        m -> m.colorTransformation("sepia", "b", "c"),
+        m -> m.rgbSplit("c", "r", "g", "bl").get(1),
+        m -> m.brighten(-20, "g", "d"));
+    Image expected = null;
+    Image actual = null;
+    for (Function<ImprovedImageProcessing, Image> step : steps) {
+      expected = step.apply(eager);
+      actual = step.apply(model);
+    }
+    assertTrue(actual instanceof LazyImage);
+    assertFalse(((LazyImage) model.saveImage("b")).isMaterialized());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        assertEquals(expected.getRGB(i, j), actual.getRGB(i, j));
+      }
+    }
+    assertTrue(((LazyImage) actual).isMaterialized());
+    assertFalse(((LazyImage) model.saveImage("c")).isMaterialized());
+    Image blurred = model.filtering("blur", "c", "e");
+    assertEquals(eager.filtering("blur", "c", "e").getRGB(10, 10), blurred.getRGB(10, 10));
+  }
+
+  @Test
+  public void testRemovedImageBufferIsReused() {
+    new Load("res/dog.ppm", "dog").execute(model);
+    PackedRGBImage bright = (PackedRGBImage) model.brighten(10, "dog", "bright");
+    int expected = model.brighten(-10, "bright", "dark").getRGB(3, 4);
+    model.removeImage("bright");
+    assertNull(model.saveImage("bright"));
+    PackedRGBImage blurred = (PackedRGBImage) model.filtering("blur", "dark", "blurred");
+    assertTrue(blurred.getData() == bright.getData());
+    assertEquals(expected, model.saveImage("dark").getRGB(3, 4));
+  }
 
+  @Test
+  public void testRemovedImageReadByViewIsNotReused() {
+    new Load("res/dog.ppm", "dog").execute(model);
+    Image bright = model.brighten(10, "dog", "bright");
+    int expected = bright.getRGB(0, 0);
+    Image flipped = model.horizontalFlip("bright", "flipped");
+    model.setDeferred(true);
+    Image lazy = model.brighten(5, "bright", "lazy");
+    model.removeImage("bright");
+    model.setDeferred(false);
+    model.brighten(-30, "dog", "dark");
+    model.filtering("sharpen", "dog", "sharp");
+    assertEquals(expected, flipped.getRGB(0, flipped.getWidth() - 1));
+    assertEquals(PackedRGB.pack(PackedRGB.red(expected) + 5, PackedRGB.green(expected) + 5,
+            PackedRGB.blue(expected) + 5), lazy.getRGB(0, 0));
+  }
+}
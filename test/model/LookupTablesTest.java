@@ -0,0 +1,82 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This class contains tests for LookupTables class.
+ */
+public class LookupTablesTest {
+
+  private int transform(double[][] m, int rgb) {
+    int r = PackedRGB.red(rgb);
+    int g = PackedRGB.green(rgb);
+    int b = PackedRGB.blue(rgb);
+    return PackedRGB.pack(
+            PackedRGB.clamp((int) ((m[0][0] * r) + (m[0][1] * g) + (m[0][2] * b))),
+            PackedRGB.clamp((int) ((m[1][0] * r) + (m[1][1] * g) + (m[1][2] * b))),
+            PackedRGB.clamp((int) ((m[2][0] * r) + (m[2][1] * g) + (m[2][2] * b))));
+  }
+
+  @Test
+  public void testLumaAndSepiaMatchDirectComputationForAllColors() {
+    double[][] sepia = {{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+    IntUnaryOperator sepiaTable = LookupTables.matrix(sepia, false);
+    IntUnaryOperator luma = LookupTables.greyscale("luma-component");
+    for (int rgb = 0; rgb <= 0xFFFFFF; rgb++) {
+      int expectedLuma = PackedRGB.luma(PackedRGB.red(rgb), PackedRGB.green(rgb),
+              PackedRGB.blue(rgb));
+      assertEquals(PackedRGB.pack(expectedLuma, expectedLuma, expectedLuma),
+              luma.applyAsInt(rgb));
+      assertEquals(transform(sepia, rgb), sepiaTable.applyAsInt(rgb));
+    }
+  }
+
+  @Test
+  public void testGreyscaleComponents() {
+    int rgb = PackedRGB.pack(10, 200, 31);
+    assertEquals(PackedRGB.pack(10, 10, 10),
+            LookupTables.greyscale("red-component").applyAsInt(rgb));
+    assertEquals(PackedRGB.pack(200, 200, 200),
+            LookupTables.greyscale("green-component").applyAsInt(rgb));
+    assertEquals(PackedRGB.pack(31, 31, 31),
+            LookupTables.greyscale("blue-component").applyAsInt(rgb));
+    assertEquals(PackedRGB.pack(200, 200, 200),
+            LookupTables.greyscale("value-component").applyAsInt(rgb));
+    assertEquals(PackedRGB.pack(80, 80, 80),
+            LookupTables.greyscale("intensity-component").applyAsInt(rgb));
+    assertNull(LookupTables.greyscale("alpha-component"));
+  }
+
+  @Test
+  public void testBrightenClamps() {
+    assertEquals(PackedRGB.pack(255, 60, 50),
+            LookupTables.brighten(50).applyAsInt(PackedRGB.pack(230, 10, 0)));
+    assertEquals(PackedRGB.pack(180, 0, 0),
+            LookupTables.brighten(-50).applyAsInt(PackedRGB.pack(230, 10, 40)));
+  }
+
+  @Test
+  public void testGammaAndLevels() {
+    IntUnaryOperator gamma = LookupTables.gamma(2.0);
+    assertEquals(PackedRGB.pack(0, 128, 255),
+            gamma.applyAsInt(PackedRGB.pack(0, 64, 255)));
+    IntUnaryOperator levels = LookupTables.levels(50, 150);
+    assertEquals(PackedRGB.pack(0, 128, 255),
+            levels.applyAsInt(PackedRGB.pack(20, 100, 200)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLevels() {
+    LookupTables.levels(100, 100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidGamma() {
+    LookupTables.gamma(0);
+  }
+}
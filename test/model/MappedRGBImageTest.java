@@ -0,0 +1,119 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for MappedRGBImage class and the model operations on it, which must
+ * give the same images as the operations on images in memory.
+ */
+public class MappedRGBImageTest {
+  private static final String HEADER = "P6\n# mapped\n";
+
+  private File file;
+  private PackedRGBImage packed;
+  private MappedRGBImage mapped;
+
+  @Before
+  public void setup() throws IOException {
+    // more than one strip of rows, so that filters read rows of the neighbouring strips
+    int width = 1100;
+    int height = 1000;
+    int[] data = new int[width * height];
+    byte[] header = (HEADER + width + " " + height + "\n255\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    byte[] bytes = new byte[header.length + 3 * data.length];
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919 ^ (i / width) << 3) & 0xFFFFFF;
+      bytes[header.length + 3 * i] = (byte) PackedRGB.red(data[i]);
+      bytes[header.length + 3 * i + 1] = (byte) PackedRGB.green(data[i]);
+      bytes[header.length + 3 * i + 2] = (byte) PackedRGB.blue(data[i]);
+    }
+    file = File.createTempFile("mapped", ".ppm");
+    Files.write(file.toPath(), bytes);
+    packed = new PackedRGBImage(width, height, 255, data);
+    mapped = MappedRGBImage.map(file.getPath(), header.length, width, height, 255);
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  private void assertSameImage(Image expected, Image actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getMaxValueOfColor(), actual.getMaxValueOfColor());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        if (expected.getRGB(i, j) != actual.getRGB(i, j)) {
+          assertEquals("pixel " + i + "," + j, expected.getRGB(i, j), actual.getRGB(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMapReadsPixelsOfFile() {
+    assertSameImage(packed, mapped);
+    int[] row = new int[3];
+    mapped.readRow(999, 1097, 3, row, 0);
+    assertEquals(packed.getRGB(999, 1099), row[2]);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMapFileTooShort() throws IOException {
+    MappedRGBImage.map(file.getPath(), 0, 1100, 1001, 255);
+  }
+
+  @Test
+  public void testOperationsMatchImagesInMemory() {
+    ImprovedImageProcessing inMemory = new ImprovedImageProcessingImpl();
+    ImprovedImageProcessing onDisk = new ImprovedImageProcessingImpl();
+    inMemory.loadImage(packed, "image");
+    onDisk.loadImage(mapped, "image");
+    for (ImprovedImageProcessing model : List.of(inMemory, onDisk)) {
+      model.setParallelism(3);
+      model.horizontalFlip("image", "horizontal");
+      model.verticalFlip("image", "vertical");
+      model.transpose("image", "transpose");
+      model.crop(13, 17, 1000, 900, "image", "crop");
+      model.brighten(40, "image", "brighten");
+      model.greyscale("luma-component", "image", "luma");
+      model.colorTransformation("sepia", "image", "sepia");
+      model.filtering("blur", "image", "blur");
+      model.filtering("sharpen", "image", "sharpen");
+      model.rgbSplit("image", "red", "green", "blue");
+      model.rgbCombine("combine", "blue", "green", "red");
+    }
+    for (String name : List.of("horizontal", "vertical", "transpose", "crop", "brighten", "luma",
+            "sepia", "blur", "sharpen", "red", "combine")) {
+      Image result = onDisk.saveImage(name);
+      assertTrue(name, result instanceof MappedRGBImage);
+      assertSameImage(inMemory.saveImage(name), result);
+    }
+  }
+
+  @Test
+  public void testMappedImagesAreNotSpilled() {
+    BudgetedImageStore store = new BudgetedImageStore(0);
+    store.put("mapped", mapped);
+    store.put("small", new PackedRGBImage(2, 2, 255));
+    assertEquals(16, store.getResidentBytes());
+    assertFalse(store.isSpilled("mapped"));
+    assertSame(mapped, store.get("mapped"));
+  }
+}
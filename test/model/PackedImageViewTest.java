@@ -0,0 +1,96 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class contains tests for PackedImageView class and the model operations which use it.
+ */
+public class PackedImageViewTest {
+
+  private PackedRGBImage createImage(int width, int height) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = i * 101;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  @Test
+  public void testFlipsAndTranspose() {
+    PackedRGBImage image = createImage(4, 3);
+    PackedImageView view = PackedImageView.of(image);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        assertEquals(image.getRGB(i, 3 - j), view.flipHorizontal().getRGB(i, j));
+        assertEquals(image.getRGB(2 - i, j), view.flipVertical().getRGB(i, j));
+        assertEquals(image.getRGB(i, j), view.transpose().getRGB(j, i));
+        assertEquals(image.getRGB(2 - i, 3 - j),
+                view.flipVertical().flipHorizontal().getRGB(i, j));
+      }
+    }
+    assertEquals(3, view.transpose().getWidth());
+    assertEquals(4, view.transpose().getHeight());
+  }
+
+  @Test
+  public void testCropOfFlippedView() {
+    PackedRGBImage image = createImage(5, 4);
+    PackedImageView crop = PackedImageView.of(image).flipHorizontal().crop(1, 2, 2, 3);
+    assertEquals(3, crop.getWidth());
+    assertEquals(2, crop.getHeight());
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(image.getRGB(1 + i, 4 - (2 + j)), crop.getRGB(i, j));
+      }
+    }
+    PackedRGBImage copy = crop.materialize();
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(crop.getRGB(i, j), copy.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testFullViewIsMaterializedWithoutCopy() {
+    PackedRGBImage image = createImage(3, 2);
+    assertSame(image.getData(), PackedImageView.of(image).materialize().getData());
+    assertSame(image.getData(),
+            PackedImageView.of(image).flipVertical().flipVertical().materialize().getData());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCropOutsideImage() {
+    PackedImageView.of(createImage(3, 2)).crop(1, 1, 2, 1);
+  }
+
+  @Test
+  public void testModelCropAndTranspose() {
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    PackedRGBImage image = createImage(6, 5);
+    model.loadImage(image, "image");
+    Image crop = model.crop(1, 2, 3, 2, "image", "crop");
+    assertEquals(3, crop.getWidth());
+    assertEquals(2, crop.getHeight());
+    assertEquals(image.getRGB(2, 1), crop.getRGB(0, 0));
+    assertEquals(image.getRGB(3, 3), crop.getRGB(1, 2));
+    Image transpose = model.transpose("crop", "transpose");
+    assertEquals(crop.getRGB(1, 2), transpose.getRGB(2, 1));
+    Image blurOfTranspose = model.filtering("blur", "transpose", "blur-transpose");
+    model.filtering("blur", "crop", "blur");
+    Image transposeOfBlur = model.transpose("blur", "transpose-blur");
+    for (int i = 0; i < transpose.getHeight(); i++) {
+      for (int j = 0; j < transpose.getWidth(); j++) {
+        assertEquals(transposeOfBlur.getRGB(i, j), blurOfTranspose.getRGB(i, j));
+      }
+    }
+    assertNull(model.crop(4, 0, 3, 1, "image", "outside"));
+    assertNull(model.crop(0, 0, 0, 1, "image", "empty"));
+    assertNull(model.crop(0, 0, 1, 1, "missing", "missing-crop"));
+    assertNull(model.transpose("missing", "missing-transpose"));
+  }
+}
@@ -0,0 +1,55 @@
+package model;
+
+import org.junit.Test;
+
+import controller.ImageUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for PackedRGBImage class.
+ */
+public class PackedRGBImageTest {
+
+  @Test
+  public void testPackedComponents() {
+    int rgb = PackedRGB.pack(10, 20, 30);
+    assertEquals(0x0A141E, rgb);
+    assertEquals(10, PackedRGB.red(rgb));
+    assertEquals(20, PackedRGB.green(rgb));
+    assertEquals(30, PackedRGB.blue(rgb));
+  }
+
+  @Test
+  public void testGetRGBMatchesGetPixels() {
+    Image image = ImageUtil.readPPM("res/testFile.ppm");
+    assertTrue(image instanceof PackedRGBImage);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        Color color = image.getPixels()[i][j].getColorComponent();
+        assertEquals(PackedRGB.pack(color.getRedComponent(), color.getGreenComponent(),
+                color.getBlueComponent()), image.getRGB(i, j));
+      }
+    }
+    assertEquals(PackedRGB.pack(100, 110, 120), image.getRGB(1, 1));
+  }
+
+  @Test
+  public void testOfCopiesRGBImage() {
+    Pixel[][] pixels = new Pixel[][]{
+        {new RGBPixel(0, 0, 1, 2, 3), new RGBPixel(0, 1, 4, 5, 6)}};
+    Image source = new RGBImage(2, 1, 255, pixels);
+    PackedRGBImage packed = PackedRGBImage.of(source);
+    assertEquals(2, packed.getWidth());
+    assertEquals(1, packed.getHeight());
+    assertEquals(PackedRGB.pack(4, 5, 6), packed.getRGB(0, 1));
+    assertSame(packed, PackedRGBImage.of(packed));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDataDoesNotMatchDimensions() {
+    new PackedRGBImage(2, 2, 255, new int[3]);
+  }
+}
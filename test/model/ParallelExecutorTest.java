@@ -0,0 +1,137 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class contains tests for the monitor of ParallelExecutor class.
+ */
+public class ParallelExecutorTest {
+
+  /**
+   * Monitor which cancels the operation after the given number of progress reports.
+   */
+  private static class CountingMonitor implements OperationMonitor {
+    private final int reportsBeforeCancel;
+    private final AtomicInteger reports = new AtomicInteger();
+    private final AtomicInteger maxRowsDone = new AtomicInteger();
+
+    CountingMonitor(int reportsBeforeCancel) {
+      this.reportsBeforeCancel = reportsBeforeCancel;
+    }
+
+    @Override
+    public void progress(int rowsDone, int rows) {
+      assertTrue(rowsDone <= rows);
+      reports.incrementAndGet();
+      maxRowsDone.accumulateAndGet(rowsDone, Math::max);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return reports.get() >= reportsBeforeCancel;
+    }
+  }
+
+  private Image createImage(int width, int height) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919 ^ i >> 5) & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  @Test
+  public void testProgressIsReportedForEveryBand() {
+    for (int parallelism = 1; parallelism <= 4; parallelism *= 4) {
+      ParallelExecutor executor = new ParallelExecutor(parallelism);
+      CountingMonitor monitor = new CountingMonitor(Integer.MAX_VALUE);
+      executor.setMonitor(monitor);
+      int[] rows = new int[1000];
+      executor.forEachRowBand(1000, 1000, (rowStart, rowEnd) -> {
+        for (int i = rowStart; i < rowEnd; i++) {
+          rows[i]++;
+        }
+      });
+      for (int row : rows) {
+        assertEquals(1, row);
+      }
+      assertEquals(1000, monitor.maxRowsDone.get());
+      assertTrue(monitor.reports.get() > 1);
+    }
+  }
+
+  @Test
+  public void testCancelStopsBetweenBands() {
+    for (int parallelism = 1; parallelism <= 4; parallelism *= 4) {
+      ParallelExecutor executor = new ParallelExecutor(parallelism);
+      CountingMonitor monitor = new CountingMonitor(2);
+      executor.setMonitor(monitor);
+      AtomicInteger rowsDone = new AtomicInteger();
+      try {
+        executor.forEachRowBand(1000, 1000, (rowStart, rowEnd) ->
+                rowsDone.addAndGet(rowEnd - rowStart));
+        fail("The action should be cancelled");
+      } catch (CancellationException e) {
+        assertTrue(rowsDone.get() < 1000);
+      }
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testCancelledWavefrontDitherDoesNotBlock() {
+    Image image = createImage(517, 389);
+    for (int parallelism = 1; parallelism <= 4; parallelism *= 4) {
+      ParallelExecutor executor = new ParallelExecutor(parallelism);
+      // the luma pass reports one band, then rows of the wavefront are reported
+      executor.setMonitor(new CountingMonitor(20));
+      try {
+        DitherEngine.floydSteinberg(image, executor);
+        fail("The dither should be cancelled");
+      } catch (CancellationException e) {
+        // expected
+      }
+      executor.setMonitor(null);
+      assertEquals(517, DitherEngine.floydSteinberg(image, executor).getWidth());
+    }
+  }
+
+  @Test
+  public void testCancelledOperationDoesNotStoreImage() {
+    ImprovedImageProcessing model = new ImprovedImageProcessingImpl();
+    model.loadImage(createImage(600, 500), "image");
+    model.setMonitor(new CountingMonitor(1));
+    try {
+      model.filtering("blur", "image", "blurred");
+      fail("The blur should be cancelled");
+    } catch (CancellationException e) {
+      assertNull(model.saveImage("blurred"));
+    }
+    model.setMonitor(null);
+    assertEquals(600, model.filtering("blur", "image", "blurred").getWidth());
+  }
+
+  @Test
+  public void testRejectedParallelismKeepsExecutorUsable() {
+    ParallelExecutor executor = new ParallelExecutor(2);
+    for (int parallelism : new int[]{0, 40000}) {
+      try {
+        executor.setParallelism(parallelism);
+        fail("Parallelism " + parallelism + " should be rejected");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    assertEquals(2, executor.getParallelism());
+    AtomicInteger rows = new AtomicInteger();
+    executor.forEachRowBand(1000, 1000, (rowStart, rowEnd) -> rows.addAndGet(rowEnd - rowStart));
+    assertEquals(1000, rows.get());
+  }
+}
@@ -0,0 +1,138 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * This class contains tests for the implementations of PixelKernels. The vector implementation is
+ * only tested when the tests run with --add-modules jdk.incubator.vector.
+ */
+public class PixelKernelsTest {
+  private static final double[][] SEPIA = {
+      {0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+  private static final double[][] LUMA = {
+      {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}};
+
+  private PixelKernels scalar;
+  private PixelKernels vector;
+  private int[] source;
+
+  @Before
+  public void setUp() {
+    scalar = new ScalarPixelKernels();
+    vector = PixelKernels.vector();
+    Random random = new Random(3);
+    source = new int[1031];
+    for (int i = 0; i < source.length; i++) {
+      source[i] = random.nextInt() & 0xFFFFFF;
+    }
+  }
+
+  private static double[] flatten(double[][] matrix) {
+    double[] coefficients = new double[9];
+    for (int row = 0; row < 3; row++) {
+      System.arraycopy(matrix[row], 0, coefficients, row * 3, 3);
+    }
+    return coefficients;
+  }
+
+  private void assertMatrix(PixelKernels kernels, double[][] matrix, boolean round) {
+    IntUnaryOperator expected = LookupTables.matrix(matrix, round);
+    int[] colors = new int[1 << 16];
+    int[] actual = new int[colors.length];
+    for (int high = 0; high < 256; high++) {
+      int[] wanted = new int[colors.length];
+      for (int low = 0; low < colors.length; low++) {
+        colors[low] = (high << 16) | low;
+        wanted[low] = expected.applyAsInt(colors[low]);
+      }
+      kernels.matrix(flatten(matrix), round, colors, actual, 0, colors.length);
+      assertArrayEquals(wanted, actual);
+    }
+  }
+
+  @Test
+  public void testScalarMatchesLookupTables() {
+    int[] expected = new int[source.length];
+    int[] actual = new int[source.length];
+    for (int increment : new int[]{-300, -40, 0, 17, 255}) {
+      IntUnaryOperator brighten = LookupTables.brighten(increment);
+      for (int i = 0; i < source.length; i++) {
+        expected[i] = brighten.applyAsInt(source[i]);
+      }
+      scalar.brighten(source, actual, 0, source.length, increment);
+      assertArrayEquals(expected, actual);
+    }
+    assertMatrix(scalar, SEPIA, false);
+    assertMatrix(scalar, LUMA, true);
+  }
+
+  @Test
+  public void testVectorMatrixMatchesLookupTables() {
+    assumeNotNull(vector);
+    assertMatrix(vector, SEPIA, false);
+    assertMatrix(vector, LUMA, true);
+    assertMatrix(vector, LUMA, false);
+    assertMatrix(vector, new double[][]{{1.5, -0.25, 0}, {-1, 2, 0.5}, {0, 0, 0.5}}, true);
+  }
+
+  @Test
+  public void testVectorPointOperationsMatchScalar() {
+    assumeNotNull(vector);
+    int[] green = source.clone();
+    int[] blue = new int[source.length];
+    scalar.channel(0, source, blue, 0, source.length);
+    for (int[] range : new int[][]{{0, source.length}, {3, 1030}, {5, 9}}) {
+      int[] expected = new int[source.length];
+      int[] actual = new int[source.length];
+      for (int increment : new int[]{-300, -40, 0, 17, 255}) {
+        scalar.brighten(source, expected, range[0], range[1], increment);
+        vector.brighten(source, actual, range[0], range[1], increment);
+        assertArrayEquals(expected, actual);
+      }
+      for (int shift = 0; shift <= 16; shift += 8) {
+        scalar.channel(shift, source, expected, range[0], range[1]);
+        vector.channel(shift, source, actual, range[0], range[1]);
+        assertArrayEquals(expected, actual);
+      }
+      scalar.combine(source, green, blue, expected, range[0], range[1]);
+      vector.combine(source, green, blue, actual, range[0], range[1]);
+      assertArrayEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testVectorConvolutionMatchesScalar() {
+    assumeNotNull(vector);
+    int width = 203;
+    for (int offset = -4; offset <= 4; offset++) {
+      int[] expected = new int[3 * width + 5];
+      int[] actual = new int[3 * width + 5];
+      scalar.accumulate(source, 7, width, offset, -3, expected, 5);
+      vector.accumulate(source, 7, width, offset, -3, actual, 5);
+      assertArrayEquals(expected, actual);
+    }
+    int[] values = new int[3 * width + 11];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (source[i] & 0xFFFF) - 20000;
+    }
+    int[] expectedSums = new int[3 * width];
+    int[] actualSums = new int[3 * width];
+    scalar.add(values, 11, 5, expectedSums, 3 * width);
+    vector.add(values, 11, 5, actualSums, 3 * width);
+    assertArrayEquals(expectedSums, actualSums);
+    for (int shift = 0; shift <= 6; shift += 3) {
+      int[] expected = new int[width + 2];
+      int[] actual = new int[width + 2];
+      scalar.pack(values, width, 3, shift, expected, 2);
+      vector.pack(values, width, 3, shift, actual, 2);
+      assertArrayEquals(expected, actual);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class contains tests for RasterConverter class.
+ */
+public class RasterConverterTest {
+
+  private BufferedImage createImage(int type, int width, int height) {
+    BufferedImage image = new BufferedImage(width, height, type);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, 0x80000000 | (x * 37 + y * 11) << 16 | (x * 5 + 60) << 8 | y * 23);
+      }
+    }
+    return image;
+  }
+
+  private void assertConverted(BufferedImage expected) {
+    Image image = RasterConverter.fromBufferedImage(expected);
+    assertEquals(expected.getWidth(), image.getWidth());
+    assertEquals(expected.getHeight(), image.getHeight());
+    assertEquals(255, image.getMaxValueOfColor());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getRGB(x, y) & 0xFFFFFF, image.getRGB(y, x));
+      }
+    }
+  }
+
+  @Test
+  public void testFromDirectTypes() {
+    assertConverted(createImage(BufferedImage.TYPE_INT_RGB, 5, 4));
+    assertConverted(createImage(BufferedImage.TYPE_INT_ARGB, 5, 4));
+    assertConverted(createImage(BufferedImage.TYPE_3BYTE_BGR, 5, 4));
+    assertConverted(createImage(BufferedImage.TYPE_4BYTE_ABGR, 5, 4));
+  }
+
+  @Test
+  public void testFromIndexedTypes() {
+    assertConverted(createImage(BufferedImage.TYPE_BYTE_INDEXED, 5, 4));
+    assertConverted(createImage(BufferedImage.TYPE_BYTE_BINARY, 9, 3));
+    IndexColorModel colors = new IndexColorModel(2, 3, new byte[]{10, 20, 30},
+            new byte[]{40, 50, 60}, new byte[]{70, 80, (byte) 200});
+    BufferedImage image = new BufferedImage(6, 2, BufferedImage.TYPE_BYTE_BINARY, colors);
+    image.getRaster().setSample(4, 1, 0, 2);
+    assertConverted(image);
+  }
+
+  @Test
+  public void testFromOtherTypes() {
+    assertConverted(createImage(BufferedImage.TYPE_BYTE_GRAY, 5, 4));
+    assertConverted(createImage(BufferedImage.TYPE_USHORT_565_RGB, 5, 4));
+    assertConverted(createImage(BufferedImage.TYPE_INT_ARGB_PRE, 5, 4));
+  }
+
+  @Test
+  public void testFromSubimage() {
+    assertConverted(createImage(BufferedImage.TYPE_INT_RGB, 7, 6).getSubimage(2, 1, 4, 3));
+    assertConverted(createImage(BufferedImage.TYPE_3BYTE_BGR, 7, 6).getSubimage(1, 2, 5, 3));
+  }
+
+  @Test
+  public void testToBufferedImage() {
+    int[] data = new int[12];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = i * 0x0A0B0C;
+    }
+    PackedRGBImage image = new PackedRGBImage(4, 3, 255, data);
+    for (Image m : new Image[]{image, PackedImageView.of(image).flipHorizontal()}) {
+      BufferedImage converted = RasterConverter.toBufferedImage(m);
+      assertEquals(BufferedImage.TYPE_INT_RGB, converted.getType());
+      for (int y = 0; y < 3; y++) {
+        for (int x = 0; x < 4; x++) {
+          assertEquals(m.getRGB(y, x), converted.getRGB(x, y) & 0xFFFFFF);
+        }
+      }
+    }
+    RasterConverter.toBufferedImage(image).setRGB(0, 1, 0xFFFFFF);
+    assertEquals(4 * 0x0A0B0C, image.getRGB(1, 0));
+  }
+}
@@ -0,0 +1,77 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class contains tests for Resampler class.
+ */
+public class ResamplerTest {
+
+  private PackedRGBImage createImage(int width, int height) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919 ^ i >> 3) & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  @Test
+  public void testImageWhichFitsIsReturned() {
+    Image image = createImage(450, 300);
+    assertSame(image, Resampler.fit(image, 450, 450));
+  }
+
+  @Test
+  public void testFitKeepsAspectRatio() {
+    Image wide = Resampler.fit(createImage(4000, 3000), 450, 450);
+    assertEquals(450, wide.getWidth());
+    assertEquals(338, wide.getHeight());
+    Image tall = Resampler.fit(createImage(10, 5000), 450, 450);
+    assertEquals(1, tall.getWidth());
+    assertEquals(450, tall.getHeight());
+  }
+
+  @Test
+  public void testPixelsAreAveragesOfBlocks() {
+    PackedRGBImage image = createImage(6, 4);
+    Image reduced = Resampler.reduce(image, 3, 2);
+    assertEquals(255, reduced.getMaxValueOfColor());
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        int[] sums = new int[3];
+        for (int y = 2 * i; y < 2 * i + 2; y++) {
+          for (int x = 2 * j; x < 2 * j + 2; x++) {
+            int rgb = image.getRGB(y, x);
+            sums[0] += PackedRGB.red(rgb);
+            sums[1] += PackedRGB.green(rgb);
+            sums[2] += PackedRGB.blue(rgb);
+          }
+        }
+        assertEquals(PackedRGB.pack((sums[0] + 2) / 4, (sums[1] + 2) / 4, (sums[2] + 2) / 4),
+                reduced.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testUnevenBlocksCoverEveryPixel() {
+    int[] data = new int[7 * 5];
+    Arrays.fill(data, PackedRGB.pack(10, 20, 30));
+    Image reduced = Resampler.reduce(new PackedRGBImage(7, 5, 255, data), 3, 2);
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(PackedRGB.pack(10, 20, 30), reduced.getRGB(i, j));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    Resampler.fit(createImage(4, 4), 0, 2);
+  }
+}
@@ -0,0 +1,114 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for ResultCache class and the cache of results of the model.
+ */
+public class ResultCacheTest {
+  private ImprovedImageProcessing model;
+
+  private PackedRGBImage createImage(int width, int height, int seed) {
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (i * 7919 ^ seed) & 0xFFFFFF;
+    }
+    return new PackedRGBImage(width, height, 255, data);
+  }
+
+  @Before
+  public void setup() {
+    model = new ImprovedImageProcessingImpl();
+    model.loadImage(createImage(200, 150, 1), "image");
+  }
+
+  @Test
+  public void testRepeatedOperationReturnsCachedResult() {
+    Image blurred = model.filtering("blur", "image", "a");
+    assertSame(blurred, model.filtering("blur", "image", "b"));
+    assertNotSame(blurred, model.filtering("sharpen", "image", "c"));
+    assertNotSame(model.brighten(10, "image", "d"), model.brighten(20, "image", "e"));
+    ResultCache cache = model.getResultCache();
+    assertEquals(1, cache.getHits());
+    assertEquals(4, cache.getMisses());
+    assertEquals(4L * 4 * 200 * 150, cache.getSize());
+  }
+
+  @Test
+  public void testSameContentLoadedTwiceHits() {
+    model.loadImage(createImage(200, 150, 1), "copy");
+    model.loadImage(createImage(200, 150, 2), "other");
+    Image sepia = model.colorTransformation("sepia", "image", "a");
+    assertSame(sepia, model.colorTransformation("sepia", "copy", "b"));
+    assertNotSame(sepia, model.colorTransformation("sepia", "other", "c"));
+  }
+
+  @Test
+  public void testDerivedImagesAreKeyedWithoutHashing() {
+    Image first = model.filtering("blur", "image", "image");
+    Image second = model.filtering("blur", "image", "image");
+    model.loadImage(createImage(200, 150, 1), "image");
+    assertSame(first, model.filtering("blur", "image", "image"));
+    assertSame(second, model.filtering("blur", "image", "image"));
+    // greyscale and rgb-split share their results
+    Image red = model.greyscale("red-component", "image", "red");
+    assertSame(red, model.rgbSplit("image", "r", "g", "b").get(0));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedResultsAreEvicted() {
+    model.getResultCache().setCapacity(2L * 4 * 200 * 150);
+    Image bright = model.brighten(10, "image", "a");
+    model.brighten(20, "image", "b");
+    assertSame(bright, model.brighten(10, "image", "c"));
+    model.brighten(30, "image", "d");
+    assertEquals(1, model.getResultCache().getEvictions());
+    assertSame(bright, model.brighten(10, "image", "e"));
+    assertNotSame(model.saveImage("b"), model.brighten(20, "image", "f"));
+  }
+
+  @Test
+  public void testRemovedResultLeavesCache() {
+    Image blurred = model.filtering("blur", "image", "a");
+    model.removeImage("a");
+    assertEquals(0, model.getResultCache().getSize());
+    assertNotSame(blurred, model.filtering("blur", "image", "b"));
+  }
+
+  @Test
+  public void testDisabledCacheComputesEveryTime() {
+    model.getResultCache().setCapacity(0);
+    assertNotSame(model.filtering("blur", "image", "a"), model.filtering("blur", "image", "b"));
+    assertEquals(0, model.getResultCache().getHits());
+  }
+
+  @Test
+  public void testHashIsIndependentOfParallelism() {
+    Image image = createImage(517, 389, 3);
+    long hash = ResultCache.hash(image, new ParallelExecutor(1));
+    assertEquals(hash, ResultCache.hash(image, new ParallelExecutor(4)));
+    assertEquals(hash, ResultCache.hash(PackedImageView.of(image).transpose().transpose()
+            .transpose().transpose(), new ParallelExecutor(2)));
+    assertNotEquals(hash, ResultCache.hash(createImage(517, 389, 4), new ParallelExecutor(1)));
+    assertTrue(model.getResultCache().toString().startsWith("result cache: 0 hits"));
+  }
+
+  @Test
+  public void testCacheIsLimitedByBudgetOfStore() {
+    ImprovedImageProcessing budgeted = new ImprovedImageProcessingImpl(
+            new BudgetedImageStore(8L * 4 * 200 * 150));
+    assertEquals(4L * 200 * 150, budgeted.getResultCache().getCapacity());
+    budgeted.loadImage(createImage(200, 150, 1), "image");
+    Image bright = budgeted.brighten(10, "image", "a");
+    budgeted.brighten(20, "image", "b");
+    assertEquals(1, budgeted.getResultCache().getEvictions());
+    assertNotSame(bright, budgeted.brighten(10, "image", "c"));
+  }
+}
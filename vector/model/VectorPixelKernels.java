@@ -0,0 +1,215 @@
+package model;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class implements the inner loops of the image operations with the Vector API, processing
+ * as many pixels per instruction as the widest vectors of the processor hold. The pixels which do
+ * not fill a whole vector at the end of a range are processed by the scalar implementation.
+ *
+ * <p>The matrix operation uses fixed-point coefficients with as many fractional bits as its sums
+ * can hold. When a sum is too close to an integer for the rounding of the coefficients to be
+ * ruled out, the pixels of the vector are computed with doubles by the scalar implementation, so
+ * the results are always identical to it. Matrices whose rows are equal, such as luma, compute a
+ * single sum per pixel.
+ */
+final class VectorPixelKernels implements PixelKernels {
+  private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+  private static final int TOLERANCE = 3 * 128;
+
+  private final ScalarPixelKernels scalar = new ScalarPixelKernels();
+
+  /**
+   * Constructor to check that the Vector API can be used with the vectors of this processor.
+   *
+   * @throws IllegalStateException if the vectors hold less than four ints
+   */
+  VectorPixelKernels() {
+    if (INT.length() < 4) {
+      throw new IllegalStateException("Vectors are too narrow");
+    }
+  }
+
+  @Override
+  public void brighten(int[] source, int[] dest, int from, int to, int increment) {
+    int i = from;
+    for (int end = to - INT.length(); i <= end; i += INT.length()) {
+      IntVector rgb = IntVector.fromArray(INT, source, i);
+      IntVector r = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF).add(increment).max(0)
+              .min(255);
+      IntVector g = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF).add(increment).max(0)
+              .min(255);
+      IntVector b = rgb.and(0xFF).add(increment).max(0).min(255);
+      r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b)
+              .intoArray(dest, i);
+    }
+    scalar.brighten(source, dest, i, to, increment);
+  }
+
+  @Override
+  public void matrix(double[] matrix, boolean round, int[] source, int[] dest, int from, int to) {
+    int shift = precision(matrix);
+    int one = 1 << shift;
+    int[] coefficients = new int[9];
+    for (int k = 0; k < 9; k++) {
+      coefficients[k] = (int) Math.round(matrix[k] * one);
+    }
+    int half = round ? one / 2 : 0;
+    boolean grey = Arrays.equals(matrix, 0, 3, matrix, 3, 6)
+            && Arrays.equals(matrix, 0, 3, matrix, 6, 9);
+    int i = from;
+    for (int end = to - INT.length(); i <= end; i += INT.length()) {
+      IntVector rgb = IntVector.fromArray(INT, source, i);
+      IntVector r = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+      IntVector g = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+      IntVector b = rgb.and(0xFF);
+      if (grey) {
+        IntVector value = sum(coefficients, 0, half, r, g, b);
+        if (uncertain(value, one).anyTrue()) {
+          scalar.matrix(matrix, round, source, dest, i, i + INT.length());
+        } else {
+          component(value, shift).mul(0x010101).intoArray(dest, i);
+        }
+        continue;
+      }
+      IntVector red = sum(coefficients, 0, half, r, g, b);
+      IntVector green = sum(coefficients, 3, half, r, g, b);
+      IntVector blue = sum(coefficients, 6, half, r, g, b);
+      if (uncertain(red, one).or(uncertain(green, one)).or(uncertain(blue, one)).anyTrue()) {
+        scalar.matrix(matrix, round, source, dest, i, i + INT.length());
+        continue;
+      }
+      component(red, shift).lanewise(VectorOperators.LSHL, 16)
+              .or(component(green, shift).lanewise(VectorOperators.LSHL, 8))
+              .or(component(blue, shift))
+              .intoArray(dest, i);
+    }
+    scalar.matrix(matrix, round, source, dest, i, to);
+  }
+
+  /**
+   * Returns the number of fractional bits of the fixed-point coefficients of a matrix, as many as
+   * the sums of its largest row can have without overflowing an int.
+   */
+  private static int precision(double[] matrix) {
+    double largest = 0;
+    for (int row = 0; row < 9; row += 3) {
+      largest = Math.max(largest,
+              Math.abs(matrix[row]) + Math.abs(matrix[row + 1]) + Math.abs(matrix[row + 2]));
+    }
+    int shift = 24;
+    while (shift > 16 && (255 * largest + 2) * (1 << shift) >= Integer.MAX_VALUE) {
+      shift--;
+    }
+    return shift;
+  }
+
+  private static IntVector sum(int[] coefficients, int row, int half, IntVector r, IntVector g,
+                               IntVector b) {
+    return r.mul(coefficients[row]).add(g.mul(coefficients[row + 1]))
+            .add(b.mul(coefficients[row + 2])).add(half);
+  }
+
+  /**
+   * Returns the lanes whose fixed-point sum is so close to an integer that the rounding of the
+   * coefficients, at most 1/2 of 255 for each of the three channels, could have moved it past
+   * the integer. These lanes are computed exactly by the scalar implementation.
+   */
+  private static VectorMask<Integer> uncertain(IntVector sum, int one) {
+    IntVector fraction = sum.and(one - 1);
+    return fraction.compare(VectorOperators.LT, TOLERANCE)
+            .or(fraction.compare(VectorOperators.GT, one - TOLERANCE));
+  }
+
+  private static IntVector component(IntVector sum, int shift) {
+    return sum.lanewise(VectorOperators.ASHR, shift).max(0).min(255);
+  }
+
+  @Override
+  public void channel(int shift, int[] source, int[] dest, int from, int to) {
+    int i = from;
+    for (int end = to - INT.length(); i <= end; i += INT.length()) {
+      IntVector.fromArray(INT, source, i).lanewise(VectorOperators.LSHR, shift).and(0xFF)
+              .mul(0x010101).intoArray(dest, i);
+    }
+    scalar.channel(shift, source, dest, i, to);
+  }
+
+  @Override
+  public void combine(int[] red, int[] green, int[] blue, int[] dest, int from, int to) {
+    int i = from;
+    for (int end = to - INT.length(); i <= end; i += INT.length()) {
+      IntVector.fromArray(INT, red, i).and(0xFF0000)
+              .or(IntVector.fromArray(INT, green, i).and(0xFF00))
+              .or(IntVector.fromArray(INT, blue, i).and(0xFF))
+              .intoArray(dest, i);
+    }
+    scalar.combine(red, green, blue, dest, i, to);
+  }
+
+  @Override
+  public void accumulate(int[] source, int sourceOffset, int width, int offset, int weight,
+                         int[] sums, int sumsOffset) {
+    int start = Math.max(0, -offset);
+    int end = Math.min(width, width - offset);
+    int x = start;
+    int redOffset = sumsOffset;
+    int greenOffset = sumsOffset + width;
+    int blueOffset = sumsOffset + 2 * width;
+    for (int last = end - INT.length(); x <= last; x += INT.length()) {
+      IntVector rgb = IntVector.fromArray(INT, source, sourceOffset + x + offset);
+      IntVector.fromArray(INT, sums, redOffset + x)
+              .add(rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF).mul(weight))
+              .intoArray(sums, redOffset + x);
+      IntVector.fromArray(INT, sums, greenOffset + x)
+              .add(rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF).mul(weight))
+              .intoArray(sums, greenOffset + x);
+      IntVector.fromArray(INT, sums, blueOffset + x)
+              .add(rgb.and(0xFF).mul(weight))
+              .intoArray(sums, blueOffset + x);
+    }
+    if (x < end) {
+      scalar.accumulate(source, sourceOffset, width, offset, weight, sums, sumsOffset, x, end);
+    }
+  }
+
+  @Override
+  public void add(int[] values, int valuesOffset, int factor, int[] sums, int length) {
+    int k = 0;
+    for (int last = length - INT.length(); k <= last; k += INT.length()) {
+      IntVector.fromArray(INT, sums, k)
+              .add(IntVector.fromArray(INT, values, valuesOffset + k).mul(factor))
+              .intoArray(sums, k);
+    }
+    for (; k < length; k++) {
+      sums[k] += factor * values[valuesOffset + k];
+    }
+  }
+
+  @Override
+  public void pack(int[] sums, int width, int scale, int shift, int[] dest, int destOffset) {
+    int half = shift == 0 ? 0 : 1 << (shift - 1);
+    int x = 0;
+    for (int last = width - INT.length(); x <= last; x += INT.length()) {
+      IntVector r = round(IntVector.fromArray(INT, sums, x), scale, half, shift);
+      IntVector g = round(IntVector.fromArray(INT, sums, width + x), scale, half, shift);
+      IntVector b = round(IntVector.fromArray(INT, sums, 2 * width + x), scale, half, shift);
+      r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b)
+              .intoArray(dest, destOffset + x);
+    }
+    for (; x < width; x++) {
+      dest[destOffset + x] = PackedRGB.pack(PackedRGB.clamp((scale * sums[x] + half) >> shift),
+              PackedRGB.clamp((scale * sums[width + x] + half) >> shift),
+              PackedRGB.clamp((scale * sums[2 * width + x] + half) >> shift));
+    }
+  }
+
+  private static IntVector round(IntVector sums, int scale, int half, int shift) {
+    return sums.mul(scale).add(half).lanewise(VectorOperators.ASHR, shift).max(0).min(255);
+  }
+}